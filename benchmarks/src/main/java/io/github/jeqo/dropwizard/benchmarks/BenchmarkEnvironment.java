@@ -0,0 +1,58 @@
+package io.github.jeqo.dropwizard.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+import io.dropwizard.setup.Environment;
+import org.eclipse.jetty.util.component.LifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dropwizard {@link Environment} used by benchmarks to build clients with module factories, without
+ * running a server.
+ */
+final class BenchmarkEnvironment {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkEnvironment.class);
+
+  private BenchmarkEnvironment() {
+  }
+
+  static Environment create() {
+    return new Environment(
+        "benchmarks",
+        Jackson.newObjectMapper(),
+        Validators.newValidator(),
+        new MetricRegistry(),
+        BenchmarkEnvironment.class.getClassLoader());
+  }
+
+  /**
+   * Starts managed objects, as Dropwizard does when the server starts.
+   */
+  static void start(Environment environment) throws Exception {
+    for (LifeCycle lifeCycle : environment.lifecycle().getManagedObjects()) {
+      lifeCycle.start();
+    }
+  }
+
+  /**
+   * Stops managed objects in reverse registration order, as Dropwizard does when the server stops.
+   */
+  static void stop(Environment environment) {
+    final List<LifeCycle> managedObjects = new ArrayList<>(environment.lifecycle().getManagedObjects());
+    Collections.reverse(managedObjects);
+    for (LifeCycle lifeCycle : managedObjects) {
+      try {
+        lifeCycle.stop();
+      } catch (Exception e) {
+        LOGGER.warn("Error stopping managed object {}", lifeCycle, e);
+      }
+    }
+  }
+}
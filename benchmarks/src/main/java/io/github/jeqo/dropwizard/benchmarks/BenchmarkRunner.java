@@ -0,0 +1,31 @@
+package io.github.jeqo.dropwizard.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs JMH benchmarks, accepting the same arguments as the JMH command line. Unless a result
+ * format or file is given, results are written as JSON to {@code jmh-result.json}, so runs can be
+ * compared between releases.
+ */
+public class BenchmarkRunner {
+
+  static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+  public static void main(String[] args) throws Exception {
+    final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+    final ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+    if (!commandLineOptions.getResultFormat().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON);
+    }
+    if (!commandLineOptions.getResult().hasValue()) {
+      options.result(DEFAULT_RESULT_FILE);
+    }
+
+    new Runner(options.build()).run();
+  }
+}
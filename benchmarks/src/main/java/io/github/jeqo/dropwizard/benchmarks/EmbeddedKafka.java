@@ -0,0 +1,95 @@
+package io.github.jeqo.dropwizard.benchmarks;
+
+import io.github.jeqo.dropwizard.kafka.KafkaClientFactory;
+import io.github.jeqo.dropwizard.kafka.KafkaTopic;
+import io.github.jeqo.dropwizard.kafka.KafkaTopicsReconciler;
+import kafka.server.KafkaConfig;
+import kafka.server.KafkaServerStartable;
+import org.apache.kafka.common.utils.Utils;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Properties;
+
+/**
+ * Single-node ZooKeeper and Kafka broker running in-process, on ephemeral ports, so benchmarks go
+ * through the network stack without depending on an external cluster.
+ */
+final class EmbeddedKafka {
+
+  private final File directory;
+  private ServerCnxnFactory zookeeperFactory;
+  private KafkaServerStartable broker;
+  private String bootstrapServers;
+
+  EmbeddedKafka() throws IOException {
+    this.directory = Files.createTempDirectory("kafka-benchmarks").toFile();
+  }
+
+  void start() throws IOException, InterruptedException {
+    final ZooKeeperServer zookeeper =
+        new ZooKeeperServer(new File(directory, "zookeeper"), new File(directory, "zookeeper"), 500);
+    zookeeperFactory = ServerCnxnFactory.createFactory(new InetSocketAddress("localhost", 0), 64);
+    zookeeperFactory.startup(zookeeper);
+
+    final int port = freePort();
+    bootstrapServers = "localhost:" + port;
+
+    final Properties configs = new Properties();
+    configs.put(KafkaConfig.ZkConnectProp(), "localhost:" + zookeeperFactory.getLocalPort());
+    configs.put(KafkaConfig.BrokerIdProp(), "0");
+    configs.put(KafkaConfig.ListenersProp(), "PLAINTEXT://" + bootstrapServers);
+    configs.put(KafkaConfig.LogDirProp(), new File(directory, "kafka").getAbsolutePath());
+    configs.put(KafkaConfig.OffsetsTopicReplicationFactorProp(), "1");
+    configs.put(KafkaConfig.TransactionsTopicReplicationFactorProp(), "1");
+    configs.put(KafkaConfig.TransactionsTopicMinISRProp(), "1");
+    configs.put(KafkaConfig.GroupInitialRebalanceDelayMsProp(), "0");
+    broker = new KafkaServerStartable(new KafkaConfig(configs));
+    broker.startup();
+  }
+
+  String bootstrapServers() {
+    return bootstrapServers;
+  }
+
+  /**
+   * Creates a client factory pointing to this broker, with the topic created.
+   */
+  <K, V> KafkaClientFactory<K, V> clientFactory(String topicName, int partitions) {
+    final KafkaTopic topic = new KafkaTopic();
+    topic.setName(topicName);
+    topic.setPartitions(partitions);
+
+    final KafkaClientFactory<K, V> clientFactory = new KafkaClientFactory<>();
+    clientFactory.setBootstrapServers(bootstrapServers);
+    clientFactory.setTopics(Collections.singletonList(topic));
+    final KafkaTopicsReconciler.Result result = clientFactory.prepareTopics();
+    if (!result.isSuccessful()) {
+      throw new IllegalStateException("Topic " + topicName + " not created: " + result);
+    }
+    return clientFactory;
+  }
+
+  void stop() throws IOException {
+    if (broker != null) {
+      broker.shutdown();
+      broker.awaitShutdown();
+    }
+    if (zookeeperFactory != null) {
+      zookeeperFactory.shutdown();
+    }
+    Utils.delete(directory);
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package io.github.jeqo.dropwizard.benchmarks;
+
+import io.dropwizard.setup.Environment;
+import io.github.jeqo.dropwizard.kafka.KafkaClientFactory;
+import io.opentracing.NoopTracerFactory;
+import io.opentracing.util.GlobalTracer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Poll-and-process loop of consumers built by {@link KafkaClientFactory#buildConsumer} and
+ * {@link KafkaClientFactory#buildTracingConsumer}, over records preloaded on an embedded broker.
+ * The consumer rewinds when it reaches the end of the partition. Score is polls per second; each
+ * poll returns up to {@code max.poll.records}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class KafkaConsumerBenchmark {
+
+  private static final String TOPIC = "benchmark-consumer";
+  private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+  @Param({"PLAIN", "TRACING"})
+  private String consumerType;
+
+  @Param({"100000"})
+  private int records;
+
+  @Param({"100", "1024"})
+  private int recordSize;
+
+  @Param({"500"})
+  private int maxPollRecords;
+
+  private EmbeddedKafka kafka;
+  private Environment environment;
+  private Consumer<byte[], byte[]> consumer;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    kafka = new EmbeddedKafka();
+    kafka.start();
+    final KafkaClientFactory<byte[], byte[]> clientFactory = kafka.clientFactory(TOPIC, 1);
+
+    if (!GlobalTracer.isRegistered()) {
+      GlobalTracer.register(NoopTracerFactory.create());
+    }
+
+    environment = BenchmarkEnvironment.create();
+    final Producer<byte[], byte[]> producer =
+        clientFactory.buildProducer(environment, new ByteArraySerializer(), new ByteArraySerializer(),
+            new Properties());
+    final byte[] value = new byte[recordSize];
+    new Random(0).nextBytes(value);
+    for (int i = 0; i < records; i++) {
+      producer.send(new ProducerRecord<>(TOPIC, value));
+    }
+    producer.flush();
+
+    final Properties properties = new Properties();
+    properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+    properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+    // fetches reaching the end of the partition must not delay fetches after rewinding
+    properties.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, "10");
+    switch (consumerType) {
+      case "TRACING":
+        consumer = clientFactory.buildTracingConsumer(
+            environment, new ByteArrayDeserializer(), new ByteArrayDeserializer(), properties);
+        break;
+      default:
+        consumer = clientFactory.buildConsumer(
+            environment, new ByteArrayDeserializer(), new ByteArrayDeserializer(), properties);
+    }
+    BenchmarkEnvironment.start(environment);
+
+    consumer.assign(Collections.singletonList(PARTITION));
+    consumer.seekToBeginning(Collections.singletonList(PARTITION));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    BenchmarkEnvironment.stop(environment);
+    kafka.stop();
+  }
+
+  @Benchmark
+  public int pollAndProcess(Blackhole blackhole) {
+    final ConsumerRecords<byte[], byte[]> polled = consumer.poll(100L);
+    for (ConsumerRecord<byte[], byte[]> record : polled) {
+      blackhole.consume(record.value());
+    }
+    if (consumer.position(PARTITION) >= records) {
+      consumer.seekToBeginning(Collections.singletonList(PARTITION));
+    }
+    return polled.count();
+  }
+}
@@ -0,0 +1,113 @@
+package io.github.jeqo.dropwizard.benchmarks;
+
+import io.dropwizard.setup.Environment;
+import io.github.jeqo.dropwizard.kafka.KafkaClientFactory;
+import io.github.jeqo.dropwizard.kafka.KafkaTracingSamplerFactory;
+import io.opentracing.NoopTracerFactory;
+import io.opentracing.util.GlobalTracer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Send throughput of producers built by {@link KafkaClientFactory#buildProducer} and
+ * {@link KafkaClientFactory#buildTracingProducer}, against an embedded broker. Tracing producers
+ * use a no-op tracer, so only instrumentation overhead is measured. Sampled tracing producers
+ * ({@link KafkaClientFactory#buildSampledTracingProducer}) trace 1% of records.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class KafkaProducerBenchmark {
+
+  private static final String TOPIC = "benchmark-producer";
+
+  @Param({"PLAIN", "TRACING", "SAMPLED"})
+  private String producerType;
+
+  @Param({"100", "1024"})
+  private int recordSize;
+
+  @Param({"1"})
+  private String acks;
+
+  private EmbeddedKafka kafka;
+  private Environment environment;
+  private Producer<byte[], byte[]> producer;
+  private byte[] value;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    kafka = new EmbeddedKafka();
+    kafka.start();
+    final KafkaClientFactory<byte[], byte[]> clientFactory = kafka.clientFactory(TOPIC, 1);
+
+    if (!GlobalTracer.isRegistered()) {
+      GlobalTracer.register(NoopTracerFactory.create());
+    }
+
+    final Properties properties = new Properties();
+    properties.put(ProducerConfig.ACKS_CONFIG, acks);
+    properties.put(ProducerConfig.LINGER_MS_CONFIG, "5");
+
+    environment = BenchmarkEnvironment.create();
+    switch (producerType) {
+      case "SAMPLED":
+        clientFactory.getTracingSampler().getDefaultRule().setMode(KafkaTracingSamplerFactory.Mode.PROBABILITY);
+        clientFactory.getTracingSampler().getDefaultRule().setProbability(0.01);
+        producer = clientFactory.buildSampledTracingProducer(
+            environment, new ByteArraySerializer(), new ByteArraySerializer(), properties);
+        break;
+      case "TRACING":
+        producer = clientFactory.buildTracingProducer(
+            environment, new ByteArraySerializer(), new ByteArraySerializer(), properties);
+        break;
+      default:
+        producer = clientFactory.buildProducer(
+            environment, new ByteArraySerializer(), new ByteArraySerializer(), properties);
+    }
+    BenchmarkEnvironment.start(environment);
+
+    value = new byte[recordSize];
+    new Random(0).nextBytes(value);
+  }
+
+  @TearDown(Level.Iteration)
+  public void flush() {
+    producer.flush();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    BenchmarkEnvironment.stop(environment);
+    kafka.stop();
+  }
+
+  @Benchmark
+  public Future<RecordMetadata> send() {
+    return producer.send(new ProducerRecord<>(TOPIC, value));
+  }
+}
@@ -0,0 +1,110 @@
+package io.github.jeqo.dropwizard.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.setup.Environment;
+import io.github.jeqo.dropwizard.kafka.KafkaJacksonSerde;
+import io.github.jeqo.dropwizard.kafka.KafkaJacksonSerdeFactory;
+import io.github.jeqo.dropwizard.kafka.KafkaJacksonSerdeFactory.Format;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization cost of {@link KafkaJacksonSerde} compared with per-call {@link ObjectMapper}
+ * usage ({@code writeValueAsBytes}, {@code readValue}), for each supported format.
+ * <p>
+ * Run with {@code -prof gc} to get allocation per message ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KafkaSerdeBenchmark {
+
+  @Param({"JSON", "SMILE", "CBOR"})
+  private Format format;
+
+  @Param({"10", "100"})
+  private int fields;
+
+  private ObjectMapper objectMapper;
+  private KafkaJacksonSerde<Event> serde;
+  private Event event;
+  private byte[] serialized;
+
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    final Environment environment = BenchmarkEnvironment.create();
+    final KafkaJacksonSerdeFactory serdeFactory = new KafkaJacksonSerdeFactory();
+    serdeFactory.setFormat(format);
+    serde = serdeFactory.build(environment, Event.class);
+
+    switch (format) {
+      case SMILE:
+        objectMapper = Jackson.newObjectMapper(new SmileFactory());
+        break;
+      case CBOR:
+        objectMapper = Jackson.newObjectMapper(new CBORFactory());
+        break;
+      default:
+        objectMapper = environment.getObjectMapper();
+    }
+
+    event = new Event();
+    event.id = "event-0";
+    event.timestamp = System.currentTimeMillis();
+    for (int i = 0; i < fields; i++) {
+      event.tags.add("tag-" + i);
+      event.attributes.put("attribute-" + i, "value-" + i);
+    }
+    serialized = objectMapper.writeValueAsBytes(event);
+  }
+
+  @Benchmark
+  public byte[] objectMapperSerialize() throws IOException {
+    return objectMapper.writeValueAsBytes(event);
+  }
+
+  @Benchmark
+  public byte[] serdeSerialize() {
+    return serde.serializer().serialize("events", event);
+  }
+
+  @Benchmark
+  public Event objectMapperDeserialize() throws IOException {
+    return objectMapper.readValue(serialized, Event.class);
+  }
+
+  @Benchmark
+  public Event serdeDeserialize() {
+    return serde.deserializer().deserialize("events", serialized);
+  }
+
+  public static class Event {
+    public String id;
+    public long timestamp;
+    public List<String> tags = new ArrayList<>();
+    public Map<String, String> attributes = new HashMap<>();
+  }
+}
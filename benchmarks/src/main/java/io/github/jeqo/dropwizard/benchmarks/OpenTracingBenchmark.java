@@ -0,0 +1,83 @@
+package io.github.jeqo.dropwizard.benchmarks;
+
+import io.github.jeqo.dropwizard.jaeger.JaegerClientFactory;
+import io.github.jeqo.dropwizard.opentracing.OpenTracingFactory;
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.mock.MockTracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Span creation cost for tracers built by {@link OpenTracingFactory} providers. Jaeger spans are
+ * reported over UDP to a local agent, which does not need to be running.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenTracingBenchmark {
+
+  @Param({"MOCK", "JAEGER"})
+  private String provider;
+
+  private Tracer tracer;
+  private Span parent;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    final JaegerClientFactory jaegerClientFactory = new JaegerClientFactory();
+    jaegerClientFactory.setLogSpans(false);
+
+    final OpenTracingFactory openTracingFactory = new OpenTracingFactory();
+    openTracingFactory.setProvider(provider);
+    openTracingFactory.setJaegerClientFactory(jaegerClientFactory);
+
+    tracer = openTracingFactory.build("benchmarks");
+    parent = tracer.buildSpan("parent").startManual();
+  }
+
+  /**
+   * Mock tracer keeps finished spans in memory.
+   */
+  @TearDown(Level.Iteration)
+  public void reset() {
+    if (tracer instanceof MockTracer) {
+      ((MockTracer) tracer).reset();
+    }
+  }
+
+  @Benchmark
+  public Span span() {
+    final Span span = tracer.buildSpan("operation").startManual();
+    span.finish();
+    return span;
+  }
+
+  @Benchmark
+  public Span childSpanWithTags() {
+    final Span span =
+        tracer.buildSpan("operation")
+            .asChildOf(parent)
+            .withTag("component", "benchmarks")
+            .withTag("partition", 0)
+            .startManual();
+    span.finish();
+    return span;
+  }
+}
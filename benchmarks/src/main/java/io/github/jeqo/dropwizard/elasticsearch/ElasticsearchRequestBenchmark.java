@@ -0,0 +1,76 @@
+package io.github.jeqo.dropwizard.elasticsearch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request body building and serialization for {@link ElasticsearchIndex} and
+ * {@link ElasticsearchMapping} creation requests. Placed on the module package to reach request
+ * building without a cluster.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ElasticsearchRequestBenchmark {
+
+  @Param({"10", "100"})
+  private int properties;
+
+  private ObjectMapper objectMapper;
+  private ElasticsearchIndex index;
+  private ElasticsearchMapping mapping;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    objectMapper = Jackson.newObjectMapper();
+
+    final Map<String, ElasticsearchMapping.Property> mappingProperties = new HashMap<>();
+    for (int i = 0; i < properties; i++) {
+      final ElasticsearchMapping.Property property = new ElasticsearchMapping.Property();
+      property.setType(i % 2 == 0 ? "text" : "keyword");
+      property.setFielddata(i % 10 == 0);
+      mappingProperties.put("field-" + i, property);
+    }
+    mapping = new ElasticsearchMapping();
+    mapping.setName("benchmark");
+    mapping.setProperties(mappingProperties);
+
+    index = new ElasticsearchIndex();
+    index.setName("benchmark");
+    index.setMappings(Collections.singletonList(mapping));
+  }
+
+  @Benchmark
+  public HttpEntity indexRequest() throws JsonProcessingException {
+    return new NStringEntity(index.json(objectMapper), ContentType.APPLICATION_JSON);
+  }
+
+  @Benchmark
+  public HttpEntity mappingRequest() throws JsonProcessingException {
+    return new NStringEntity(mapping.json(objectMapper), ContentType.APPLICATION_JSON);
+  }
+}
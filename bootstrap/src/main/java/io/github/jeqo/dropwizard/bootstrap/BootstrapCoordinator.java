@@ -0,0 +1,246 @@
+package io.github.jeqo.dropwizard.bootstrap;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Runs application bootstrap tasks (topic reconciliation, index preparation, client warm-up, etc.)
+ * concurrently when Dropwizard starts, each one bounded by its own timeout, instead of
+ * sequentially on the main thread.
+ * <p>
+ * When {@code awaitOnStart} is enabled, start blocks until every task completes and fails if any
+ * task failed or timed out, so the HTTP server does not start. Otherwise tasks keep running in
+ * background while the server starts, and {@link BootstrapHealthCheck} reports readiness.
+ * <p>
+ * Duration per task and in total are published as gauges and logged once bootstrap completes.
+ */
+public class BootstrapCoordinator implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BootstrapCoordinator.class);
+
+  private final String name;
+  private final boolean awaitOnStart;
+  private final long defaultTimeoutMs;
+  private final MetricRegistry metrics;
+
+  private final Map<String, Task> tasks = new LinkedHashMap<>();
+  private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+  private ExecutorService executor;
+  private ScheduledExecutorService timer;
+  private volatile long durationMs = -1L;
+
+  BootstrapCoordinator(String name, boolean awaitOnStart, long defaultTimeoutMs, MetricRegistry metrics) {
+    this.name = name;
+    this.awaitOnStart = awaitOnStart;
+    this.defaultTimeoutMs = defaultTimeoutMs;
+    this.metrics = metrics;
+
+    metrics.register(name(BootstrapCoordinator.class, name, "duration-ms"), (Gauge<Long>) () -> durationMs);
+  }
+
+  /**
+   * Adds a task bounded by the default timeout.
+   *
+   * @param taskName Task name, used on logs and metrics
+   * @param task     Task to run
+   * @return this coordinator
+   */
+  public BootstrapCoordinator addTask(String taskName, Callable<?> task) {
+    return addTask(taskName, defaultTimeoutMs, task);
+  }
+
+  /**
+   * Adds a task. Tasks must be added before Dropwizard starts.
+   *
+   * @param taskName  Task name, used on logs and metrics
+   * @param timeoutMs Task timeout. The task is interrupted and reported as failed once reached
+   * @param task      Task to run
+   * @return this coordinator
+   */
+  public synchronized BootstrapCoordinator addTask(String taskName, long timeoutMs, Callable<?> task) {
+    if (executor != null) {
+      throw new IllegalStateException("Bootstrap " + name + " already started");
+    }
+    if (tasks.containsKey(taskName)) {
+      throw new IllegalArgumentException("Bootstrap task " + taskName + " already added");
+    }
+    final Task added = new Task(taskName, timeoutMs, task);
+    tasks.put(taskName, added);
+    metrics.register(name(BootstrapCoordinator.class, name, taskName, "duration-ms"),
+        (Gauge<Long>) () -> added.durationMs);
+    return this;
+  }
+
+  @Override
+  public void start() throws Exception {
+    run();
+    if (awaitOnStart) {
+      try {
+        completion.get();
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Bootstrap " + name + " failed", e.getCause());
+      }
+    }
+  }
+
+  @Override
+  public void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      timer.shutdownNow();
+    }
+  }
+
+  /**
+   * Starts all tasks concurrently, if not started yet.
+   *
+   * @return future completed when every task completes, or exceptionally when any task failed
+   */
+  public synchronized CompletableFuture<Void> run() {
+    if (executor != null) {
+      return completion;
+    }
+    final AtomicInteger threads = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(Math.max(1, tasks.size()), runnable -> {
+      final Thread thread = new Thread(runnable, "bootstrap-" + name + "-" + threads.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "bootstrap-" + name + "-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    final long startMs = System.currentTimeMillis();
+    final List<CompletableFuture<Void>> results = new ArrayList<>();
+    tasks.values().forEach(task -> results.add(task.run(executor, timer)));
+    CompletableFuture.allOf(results.toArray(new CompletableFuture[0]))
+        .whenComplete((ignored, throwable) -> {
+          durationMs = System.currentTimeMillis() - startMs;
+          timer.shutdown();
+          executor.shutdown();
+          LOGGER.info("Bootstrap {} {} in {} ms: {}",
+              name, throwable == null ? "completed" : "failed", durationMs, breakdown());
+          if (throwable == null) {
+            completion.complete(null);
+          } else {
+            completion.completeExceptionally(throwable instanceof CompletionException
+                ? throwable.getCause()
+                : throwable);
+          }
+        });
+    return completion;
+  }
+
+  /**
+   * @return true once every task completed successfully
+   */
+  public boolean isReady() {
+    return completion.isDone() && !completion.isCompletedExceptionally();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return tasks by name, with their state: running, completed, failed or timed out
+   */
+  public synchronized Map<String, String> taskStates() {
+    final Map<String, String> states = new LinkedHashMap<>();
+    tasks.forEach((taskName, task) -> states.put(taskName, task.state));
+    return Collections.unmodifiableMap(states);
+  }
+
+  private synchronized String breakdown() {
+    final StringBuilder builder = new StringBuilder();
+    tasks.values().forEach(task -> {
+      if (builder.length() > 0) {
+        builder.append(", ");
+      }
+      builder.append(task.name).append('=').append(task.durationMs).append("ms (").append(task.state).append(')');
+    });
+    return builder.toString();
+  }
+
+  private static class Task {
+    final String name;
+    final long timeoutMs;
+    final Callable<?> callable;
+
+    volatile String state = "pending";
+    volatile long durationMs = -1L;
+
+    Task(String name, long timeoutMs, Callable<?> callable) {
+      this.name = name;
+      this.timeoutMs = timeoutMs;
+      this.callable = callable;
+    }
+
+    CompletableFuture<Void> run(ExecutorService executor, ScheduledExecutorService timer) {
+      final CompletableFuture<Void> result = new CompletableFuture<>();
+      final long startMs = System.currentTimeMillis();
+      state = "running";
+      final Future<?> future = executor.submit(() -> {
+        try {
+          callable.call();
+          if (finish(startMs, "completed")) {
+            result.complete(null);
+          }
+        } catch (Exception e) {
+          if (finish(startMs, "failed: " + e)) {
+            result.completeExceptionally(new IllegalStateException("Bootstrap task " + name + " failed", e));
+          }
+        }
+      });
+      final ScheduledFuture<?> timeout = timer.schedule(() -> {
+        if (finish(startMs, "timed out")) {
+          future.cancel(true);
+          result.completeExceptionally(
+              new TimeoutException("Bootstrap task " + name + " not completed after " + timeoutMs + " ms"));
+        }
+      }, timeoutMs, TimeUnit.MILLISECONDS);
+      result.whenComplete((ignored, throwable) -> timeout.cancel(false));
+      return result;
+    }
+
+    /**
+     * Records the final state, only once.
+     *
+     * @return false if the task was already finished
+     */
+    synchronized boolean finish(long startMs, String finalState) {
+      if (durationMs >= 0L) {
+        return false;
+      }
+      durationMs = System.currentTimeMillis() - startMs;
+      state = finalState;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package io.github.jeqo.dropwizard.bootstrap;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.setup.Environment;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Dropwizard Factory to create a managed {@link BootstrapCoordinator}.
+ */
+public class BootstrapCoordinatorFactory {
+
+  @NotEmpty
+  @JsonProperty
+  private String name = "bootstrap";
+
+  @JsonProperty
+  private boolean awaitOnStart = true;
+
+  @Min(1)
+  @JsonProperty
+  private long taskTimeoutMs = 60000L;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public boolean isAwaitOnStart() {
+    return awaitOnStart;
+  }
+
+  public void setAwaitOnStart(boolean awaitOnStart) {
+    this.awaitOnStart = awaitOnStart;
+  }
+
+  public long getTaskTimeoutMs() {
+    return taskTimeoutMs;
+  }
+
+  public void setTaskTimeoutMs(long taskTimeoutMs) {
+    this.taskTimeoutMs = taskTimeoutMs;
+  }
+
+  /**
+   * Creates a managed {@link BootstrapCoordinator}. Tasks have to be added before Dropwizard
+   * starts, and run concurrently when it does.
+   *
+   * @param environment Dropwizard Environment
+   * @return Dropwizard managed Bootstrap Coordinator
+   */
+  public BootstrapCoordinator build(Environment environment) {
+    final BootstrapCoordinator coordinator =
+        new BootstrapCoordinator(name, awaitOnStart, taskTimeoutMs, environment.metrics());
+
+    environment.lifecycle().manage(coordinator);
+
+    return coordinator;
+  }
+
+  /**
+   * Creates a readiness health check for a coordinator.
+   *
+   * @param coordinator Bootstrap Coordinator
+   * @return Health check, healthy once bootstrap tasks are completed
+   */
+  public BootstrapHealthCheck buildHealthCheck(BootstrapCoordinator coordinator) {
+    return new BootstrapHealthCheck(coordinator);
+  }
+}
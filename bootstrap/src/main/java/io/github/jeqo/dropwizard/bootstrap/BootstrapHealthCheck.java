@@ -0,0 +1,24 @@
+package io.github.jeqo.dropwizard.bootstrap;
+
+import com.codahale.metrics.health.HealthCheck;
+
+/**
+ * Readiness check for a {@link BootstrapCoordinator}: unhealthy until every bootstrap task has
+ * completed, or when any task failed. Task states are reported as details.
+ */
+public class BootstrapHealthCheck extends HealthCheck {
+  private final BootstrapCoordinator coordinator;
+
+  public BootstrapHealthCheck(BootstrapCoordinator coordinator) {
+    this.coordinator = coordinator;
+  }
+
+  @Override
+  protected Result check() throws Exception {
+    final ResultBuilder result = coordinator.isReady()
+        ? Result.builder().healthy()
+        : Result.builder().unhealthy().withMessage("Bootstrap %s not completed", coordinator.getName());
+    coordinator.taskStates().forEach(result::withDetail);
+    return result.build();
+  }
+}
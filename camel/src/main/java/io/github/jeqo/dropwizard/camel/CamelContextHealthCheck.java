@@ -1,6 +1,6 @@
 package io.github.jeqo.dropwizard.camel;
 
-import com.codahale.metrics.health.HealthCheck;
+import io.github.jeqo.dropwizard.health.ScheduledHealthCheck;
 import org.apache.camel.CamelContext;
 import org.apache.camel.Component;
 import org.apache.camel.Consumer;
@@ -16,20 +16,26 @@ import java.util.Map;
 import java.util.Set;
 
 /**
- *
+ * Checks that Camel context, routes, components and endpoints are started. Executed in
+ * background, see {@link ScheduledHealthCheck}.
  */
-public class CamelContextHealthCheck extends HealthCheck {
+public class CamelContextHealthCheck extends ScheduledHealthCheck {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(CamelContextHealthCheck.class);
 
   private final CamelContext camelContext;
 
   public CamelContextHealthCheck(CamelContext camelContext) {
+    this(camelContext, DEFAULT_INTERVAL_MS, DEFAULT_TIMEOUT_MS);
+  }
+
+  public CamelContextHealthCheck(CamelContext camelContext, long intervalMs, long timeoutMs) {
+    super("camel-context", intervalMs, timeoutMs);
     this.camelContext = camelContext;
   }
 
   @Override
-  protected Result check() throws Exception {
+  protected Result checkNow(long timeoutMs) throws Exception {
     Result result = checkCamelContext();
     if (!result.isHealthy()) {
       return result;
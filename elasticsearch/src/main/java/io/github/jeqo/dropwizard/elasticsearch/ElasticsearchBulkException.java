@@ -0,0 +1,20 @@
+package io.github.jeqo.dropwizard.elasticsearch;
+
+import java.io.IOException;
+
+/**
+ * Failure of a single bulk item, with the status returned by Elasticsearch.
+ */
+public class ElasticsearchBulkException extends IOException {
+
+  private final int status;
+
+  public ElasticsearchBulkException(int status, String message) {
+    super(message);
+    this.status = status;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+}
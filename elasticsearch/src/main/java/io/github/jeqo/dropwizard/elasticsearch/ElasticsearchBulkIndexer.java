@@ -0,0 +1,422 @@
+package io.github.jeqo.dropwizard.elasticsearch;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.dropwizard.lifecycle.Managed;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Managed bulk indexer: documents are buffered and sent with the {@code _bulk} API once a number
+ * of actions, a size in bytes or a flush interval is reached. Concurrent bulk requests are bounded:
+ * when all are in-flight, callers triggering a flush wait for one to complete.
+ * <p>
+ * Items rejected with status 429 (e.g. {@code es_rejected_execution_exception}) are retried with
+ * exponential backoff; other item failures complete their future exceptionally with
+ * {@link ElasticsearchBulkException}. Pending documents are flushed on stop.
+ * <p>
+ * Document futures are completed on a completion executor instead of the client I/O threads, and
+ * request slots are released by I/O threads, so dependent actions can add documents (and wait for
+ * a request slot) without blocking responses.
+ */
+public class ElasticsearchBulkIndexer implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ElasticsearchBulkIndexer.class);
+
+  private static final ContentType NDJSON = ContentType.create("application/x-ndjson");
+  private static final Map<String, String> PARAMS =
+      Collections.singletonMap("filter_path", "items.*.status,items.*.error");
+  private static final int TOO_MANY_REQUESTS = 429;
+
+  private final String name;
+  private final RestClient restClient;
+  private final ObjectMapper objectMapper;
+  private final int bulkActions;
+  private final long bulkSizeBytes;
+  private final long flushIntervalMs;
+  private final int concurrentRequests;
+  private final int maxRetries;
+  private final long initialBackoffMs;
+  private final long stopTimeoutMs;
+  private final Executor completionExecutor;
+
+  private final Semaphore requests;
+  private final ScheduledExecutorService flusher;
+  private final ScheduledExecutorService retries;
+
+  private final Timer latency;
+  private final Meter docs;
+  private final Meter rejections;
+  private final Meter failures;
+
+  private final Set<PendingRetry> pendingRetries = ConcurrentHashMap.newKeySet();
+
+  private List<Item> items = new ArrayList<>();
+  private long bytes = 0L;
+
+  ElasticsearchBulkIndexer(String name,
+                           RestClient restClient,
+                           ObjectMapper objectMapper,
+                           int bulkActions,
+                           long bulkSizeBytes,
+                           long flushIntervalMs,
+                           int concurrentRequests,
+                           int maxRetries,
+                           long initialBackoffMs,
+                           long stopTimeoutMs,
+                           Executor completionExecutor,
+                           MetricRegistry metrics) {
+    this.name = name;
+    this.restClient = restClient;
+    this.objectMapper = objectMapper;
+    this.bulkActions = bulkActions;
+    this.bulkSizeBytes = bulkSizeBytes;
+    this.flushIntervalMs = flushIntervalMs;
+    this.concurrentRequests = concurrentRequests;
+    this.maxRetries = maxRetries;
+    this.initialBackoffMs = initialBackoffMs;
+    this.stopTimeoutMs = stopTimeoutMs;
+    this.completionExecutor = completionExecutor;
+
+    this.requests = new Semaphore(concurrentRequests);
+    this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "elasticsearch-bulk-" + name + "-flusher");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "elasticsearch-bulk-" + name + "-retries");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    this.latency = metrics.timer(name(ElasticsearchBulkIndexer.class, name, "bulk-latency"));
+    this.docs = metrics.meter(name(ElasticsearchBulkIndexer.class, name, "docs"));
+    this.rejections = metrics.meter(name(ElasticsearchBulkIndexer.class, name, "rejections"));
+    this.failures = metrics.meter(name(ElasticsearchBulkIndexer.class, name, "failures"));
+    metrics.register(name(ElasticsearchBulkIndexer.class, name, "in-flight-requests"),
+        (Gauge<Integer>) () -> concurrentRequests - requests.availablePermits());
+    metrics.register(name(ElasticsearchBulkIndexer.class, name, "buffered-docs"),
+        (Gauge<Integer>) this::buffered);
+  }
+
+  @Override
+  public void start() {
+    if (flushIntervalMs > 0) {
+      flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public void stop() throws Exception {
+    flusher.shutdown();
+    flush();
+    if (!requests.tryAcquire(concurrentRequests, stopTimeoutMs, TimeUnit.MILLISECONDS)) {
+      LOGGER.warn("Bulk indexer {} stopped with requests in-flight", name);
+    }
+    retries.shutdownNow();
+    // retries scheduled but not sent are dropped by shutdownNow, so their futures are failed
+    for (PendingRetry retry : pendingRetries) {
+      if (pendingRetries.remove(retry)) {
+        fail(retry.batch, new IOException("Bulk indexer " + name + " stopped before retrying", retry.cause));
+      }
+    }
+  }
+
+  /**
+   * Adds a document to index, serialized with the object mapper.
+   *
+   * @param index    Index name
+   * @param type     Document type
+   * @param id       Document id, generated by Elasticsearch if null
+   * @param document Document
+   * @return future completed once the document is indexed
+   */
+  public CompletableFuture<Void> index(String index, String type, String id, Object document) {
+    final byte[] source;
+    try {
+      source = objectMapper.writeValueAsBytes(document);
+    } catch (JsonProcessingException e) {
+      final CompletableFuture<Void> future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+      return future;
+    }
+    return index(index, type, id, source);
+  }
+
+  /**
+   * Adds a serialized JSON document to index.
+   *
+   * @param index  Index name
+   * @param type   Document type
+   * @param id     Document id, generated by Elasticsearch if null
+   * @param source JSON document
+   * @return future completed once the document is indexed
+   */
+  public CompletableFuture<Void> index(String index, String type, String id, byte[] source) {
+    return add("index", index, type, id, source);
+  }
+
+  /**
+   * Adds a document to delete.
+   *
+   * @param index Index name
+   * @param type  Document type
+   * @param id    Document id
+   * @return future completed once the document is deleted, or not found
+   */
+  public CompletableFuture<Void> delete(String index, String type, String id) {
+    return add("delete", index, type, id, null);
+  }
+
+  /**
+   * Sends buffered documents, waiting for a request slot if all are in-flight.
+   */
+  public void flush() {
+    final List<Item> batch;
+    synchronized (this) {
+      if (items.isEmpty()) {
+        return;
+      }
+      batch = items;
+      items = new ArrayList<>();
+      bytes = 0L;
+    }
+    try {
+      requests.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      batch.forEach(item -> item.future.completeExceptionally(e));
+      return;
+    }
+    send(batch, 0);
+  }
+
+  public synchronized int buffered() {
+    return items.size();
+  }
+
+  private CompletableFuture<Void> add(String action, String index, String type, String id, byte[] source) {
+    final Item item;
+    try {
+      item = new Item(actionLine(action, index, type, id), source);
+    } catch (JsonProcessingException e) {
+      final CompletableFuture<Void> future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+      return future;
+    }
+    final boolean full;
+    synchronized (this) {
+      items.add(item);
+      bytes += item.size();
+      full = items.size() >= bulkActions || bytes >= bulkSizeBytes;
+    }
+    if (full) {
+      flush();
+    }
+    return item.future;
+  }
+
+  private byte[] actionLine(String action, String index, String type, String id)
+      throws JsonProcessingException {
+    final ObjectNode metadata = objectMapper.createObjectNode()
+        .put("_index", index)
+        .put("_type", type);
+    if (id != null) {
+      metadata.put("_id", id);
+    }
+    return objectMapper.writeValueAsBytes(objectMapper.createObjectNode().set(action, metadata));
+  }
+
+  /**
+   * Sends a bulk request. The request slot is released once every item is completed, including
+   * retries.
+   */
+  private void send(List<Item> batch, int attempt) {
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    for (Item item : batch) {
+      body.write(item.action, 0, item.action.length);
+      body.write('\n');
+      if (item.source != null) {
+        body.write(item.source, 0, item.source.length);
+        body.write('\n');
+      }
+    }
+
+    final Timer.Context context = latency.time();
+    restClient.performRequestAsync(
+        "POST",
+        "/_bulk",
+        PARAMS,
+        new ByteArrayEntity(body.toByteArray(), NDJSON),
+        new ResponseListener() {
+          @Override
+          public void onSuccess(Response response) {
+            context.stop();
+            try {
+              handle(batch, response, attempt);
+            } catch (Exception e) {
+              fail(batch, e);
+            }
+          }
+
+          @Override
+          public void onFailure(Exception exception) {
+            context.stop();
+            if (exception instanceof ResponseException
+                && ((ResponseException) exception).getResponse().getStatusLine().getStatusCode() == TOO_MANY_REQUESTS) {
+              rejections.mark(batch.size());
+              retry(batch, attempt, exception);
+            } else {
+              fail(batch, exception);
+            }
+          }
+        });
+  }
+
+  private void handle(List<Item> batch, Response response, int attempt) throws Exception {
+    final JsonNode result;
+    try (InputStream content = response.getEntity().getContent()) {
+      result = objectMapper.readTree(content);
+    }
+    final JsonNode results = result.path("items");
+    final List<Item> rejected = new ArrayList<>();
+    final Map<Integer, String> errors = new HashMap<>();
+    for (int i = 0; i < batch.size(); i++) {
+      final Item item = batch.get(i);
+      final Iterator<JsonNode> itemResults = results.path(i).elements();
+      final JsonNode itemResult = itemResults.hasNext() ? itemResults.next() : null;
+      final int status = itemResult == null ? 0 : itemResult.path("status").asInt();
+      if (status >= 200 && status < 300 || status == 404 && item.source == null) {
+        docs.mark();
+        complete(item, null);
+      } else if (status == TOO_MANY_REQUESTS) {
+        rejections.mark();
+        rejected.add(item);
+      } else {
+        failures.mark();
+        final String error = itemResult == null ? "missing item result" : itemResult.path("error").toString();
+        errors.merge(status, error, (first, ignored) -> first);
+        complete(item, new ElasticsearchBulkException(status, error));
+      }
+    }
+    if (!errors.isEmpty()) {
+      LOGGER.warn("Bulk indexer {} item failures, first error by status: {}", name, errors);
+    }
+    if (rejected.isEmpty()) {
+      requests.release();
+    } else {
+      retry(rejected, attempt, new ElasticsearchBulkException(TOO_MANY_REQUESTS, "rejected"));
+    }
+  }
+
+  private void retry(List<Item> batch, int attempt, Exception cause) {
+    if (attempt >= maxRetries || retries.isShutdown()) {
+      fail(batch, cause);
+      return;
+    }
+    final long backoffMs = initialBackoffMs << Math.min(attempt, 20);
+    final PendingRetry retry = new PendingRetry(batch, attempt, cause);
+    pendingRetries.add(retry);
+    try {
+      retries.schedule(retry, backoffMs, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      if (pendingRetries.remove(retry)) {
+        fail(batch, cause);
+      }
+    }
+  }
+
+  private void fail(List<Item> batch, Exception exception) {
+    LOGGER.warn("Bulk indexer {} request of {} items failed", name, batch.size(), exception);
+    failures.mark(batch.size());
+    batch.forEach(item -> complete(item, exception));
+    requests.release();
+  }
+
+  private void complete(Item item, Exception exception) {
+    final Runnable completion = () -> {
+      if (exception == null) {
+        item.future.complete(null);
+      } else {
+        item.future.completeExceptionally(exception);
+      }
+    };
+    try {
+      completionExecutor.execute(completion);
+    } catch (RejectedExecutionException e) {
+      // executor already stopped
+      completion.run();
+    }
+  }
+
+  /**
+   * Batch waiting to be sent again, tracked so it can be failed if the indexer stops first.
+   */
+  private class PendingRetry implements Runnable {
+    final List<Item> batch;
+    final int attempt;
+    final Exception cause;
+
+    PendingRetry(List<Item> batch, int attempt, Exception cause) {
+      this.batch = batch;
+      this.attempt = attempt;
+      this.cause = cause;
+    }
+
+    @Override
+    public void run() {
+      if (pendingRetries.remove(this)) {
+        send(batch, attempt + 1);
+      }
+    }
+  }
+
+  private static class Item {
+    final byte[] action;
+    final byte[] source;
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    Item(byte[] action, byte[] source) {
+      this.action = action;
+      this.source = source;
+    }
+
+    long size() {
+      return action.length + (source == null ? 0 : source.length) + 2;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package io.github.jeqo.dropwizard.elasticsearch;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.setup.Environment;
+import org.elasticsearch.client.RestClient;
+
+import javax.validation.constraints.Min;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Dropwizard Factory to create managed {@link ElasticsearchBulkIndexer} instances.
+ */
+public class ElasticsearchBulkIndexerFactory {
+
+  @JsonProperty
+  private String name;
+
+  @Min(1)
+  @JsonProperty
+  private int bulkActions = 1000;
+
+  @Min(1)
+  @JsonProperty
+  private long bulkSizeBytes = 5L * 1024 * 1024;
+
+  @Min(0)
+  @JsonProperty
+  private long flushIntervalMs = 1000L;
+
+  @Min(1)
+  @JsonProperty
+  private int concurrentRequests = 1;
+
+  @Min(0)
+  @JsonProperty
+  private int maxRetries = 8;
+
+  @Min(1)
+  @JsonProperty
+  private long initialBackoffMs = 50L;
+
+  @Min(0)
+  @JsonProperty
+  private long stopTimeoutMs = 30000L;
+
+  @Min(1)
+  @JsonProperty
+  private int completionThreads = 1;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public int getBulkActions() {
+    return bulkActions;
+  }
+
+  public void setBulkActions(int bulkActions) {
+    this.bulkActions = bulkActions;
+  }
+
+  public long getBulkSizeBytes() {
+    return bulkSizeBytes;
+  }
+
+  public void setBulkSizeBytes(long bulkSizeBytes) {
+    this.bulkSizeBytes = bulkSizeBytes;
+  }
+
+  public long getFlushIntervalMs() {
+    return flushIntervalMs;
+  }
+
+  public void setFlushIntervalMs(long flushIntervalMs) {
+    this.flushIntervalMs = flushIntervalMs;
+  }
+
+  public int getConcurrentRequests() {
+    return concurrentRequests;
+  }
+
+  public void setConcurrentRequests(int concurrentRequests) {
+    this.concurrentRequests = concurrentRequests;
+  }
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  public void setMaxRetries(int maxRetries) {
+    this.maxRetries = maxRetries;
+  }
+
+  public long getInitialBackoffMs() {
+    return initialBackoffMs;
+  }
+
+  public void setInitialBackoffMs(long initialBackoffMs) {
+    this.initialBackoffMs = initialBackoffMs;
+  }
+
+  public long getStopTimeoutMs() {
+    return stopTimeoutMs;
+  }
+
+  public void setStopTimeoutMs(long stopTimeoutMs) {
+    this.stopTimeoutMs = stopTimeoutMs;
+  }
+
+  public int getCompletionThreads() {
+    return completionThreads;
+  }
+
+  public void setCompletionThreads(int completionThreads) {
+    this.completionThreads = completionThreads;
+  }
+
+  /**
+   * Creates a managed {@link ElasticsearchBulkIndexer} sending requests with a low level client,
+   * e.g. created by {@link ElasticsearchClientFactory}. Documents are serialized with the
+   * environment object mapper, and futures are completed on a managed executor. {@code name} is
+   * required, as it names metrics and threads.
+   *
+   * @param environment Dropwizard Environment
+   * @param restClient  Low level Elasticsearch client
+   * @return Dropwizard managed Elasticsearch Bulk Indexer
+   */
+  public ElasticsearchBulkIndexer build(Environment environment, RestClient restClient) {
+    if (name == null || name.isEmpty()) {
+      throw new IllegalStateException("name is required to build a bulk indexer");
+    }
+
+    // registered before the indexer, so it is stopped once buffered documents are flushed
+    final ExecutorService completionExecutor =
+        environment.lifecycle()
+            .executorService("elasticsearch-bulk-" + name + "-%d")
+            .minThreads(completionThreads)
+            .maxThreads(completionThreads)
+            .build();
+
+    final ElasticsearchBulkIndexer indexer =
+        new ElasticsearchBulkIndexer(
+            name,
+            restClient,
+            environment.getObjectMapper(),
+            bulkActions,
+            bulkSizeBytes,
+            flushIntervalMs,
+            concurrentRequests,
+            maxRetries,
+            initialBackoffMs,
+            stopTimeoutMs,
+            completionExecutor,
+            environment.metrics());
+
+    environment.lifecycle().manage(indexer);
+
+    return indexer;
+  }
+}
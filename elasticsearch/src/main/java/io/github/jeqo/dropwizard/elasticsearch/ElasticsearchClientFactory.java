@@ -8,33 +8,77 @@ import io.opentracing.Tracer;
 import io.opentracing.contrib.elasticsearch.TracingHttpClientConfigCallback;
 import io.opentracing.util.GlobalTracer;
 import org.apache.http.HttpHost;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.RestClientBuilder.HttpClientConfigCallback;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.hibernate.validator.constraints.NotEmpty;
 
+import javax.validation.Valid;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Dropwizard Elasticsearch Client Factory
+ * Dropwizard Elasticsearch Client Factory. Clients built by a factory share a single low level
+ * client, and its connection pool. Requests are spread across configured {@code hosts}, or nodes
+ * found by the {@code sniffer} when enabled.
  */
 public class ElasticsearchClientFactory {
   @NotEmpty
   @JsonProperty
-  private String host;
+  private String host = "localhost";
 
   @Min(1)
   @Max(65535)
   @JsonProperty
   private int port = 9200;
 
+  @JsonProperty
+  private List<String> hosts = new ArrayList<>();
+
   @JsonProperty
   private List<ElasticsearchIndex> indices = new ArrayList<>();
 
+  @Min(1)
+  @JsonProperty
+  private int maxConnTotal = RestClientBuilder.DEFAULT_MAX_CONN_TOTAL;
+
+  @Min(1)
+  @JsonProperty
+  private int maxConnPerRoute = RestClientBuilder.DEFAULT_MAX_CONN_PER_ROUTE;
+
+  @Min(0)
+  @JsonProperty
+  private int ioThreadCount = 0;
+
+  @Min(0)
+  @JsonProperty
+  private int connectTimeoutMs = RestClientBuilder.DEFAULT_CONNECT_TIMEOUT_MILLIS;
+
+  @Min(0)
+  @JsonProperty
+  private int socketTimeoutMs = RestClientBuilder.DEFAULT_SOCKET_TIMEOUT_MILLIS;
+
+  @Min(0)
+  @JsonProperty
+  private int maxRetryTimeoutMs = RestClientBuilder.DEFAULT_MAX_RETRY_TIMEOUT_MILLIS;
+
+  @Valid
+  @NotNull
+  @JsonProperty
+  private ElasticsearchNodesSnifferFactory sniffer = new ElasticsearchNodesSnifferFactory();
+
+  @JsonProperty
+  private boolean tracing = false;
+
+  private RestClient restClient;
+  private RestHighLevelClient highLevelRestClient;
+
   public String getHost() {
     return host;
   }
@@ -51,6 +95,14 @@ public class ElasticsearchClientFactory {
     this.port = port;
   }
 
+  public List<String> getHosts() {
+    return hosts;
+  }
+
+  public void setHosts(List<String> hosts) {
+    this.hosts = hosts;
+  }
+
   public List<ElasticsearchIndex> getIndices() {
     return indices;
   }
@@ -59,111 +111,169 @@ public class ElasticsearchClientFactory {
     this.indices = indices;
   }
 
+  public int getMaxConnTotal() {
+    return maxConnTotal;
+  }
+
+  public void setMaxConnTotal(int maxConnTotal) {
+    this.maxConnTotal = maxConnTotal;
+  }
+
+  public int getMaxConnPerRoute() {
+    return maxConnPerRoute;
+  }
+
+  public void setMaxConnPerRoute(int maxConnPerRoute) {
+    this.maxConnPerRoute = maxConnPerRoute;
+  }
+
+  public int getIoThreadCount() {
+    return ioThreadCount;
+  }
+
+  public void setIoThreadCount(int ioThreadCount) {
+    this.ioThreadCount = ioThreadCount;
+  }
+
+  public int getConnectTimeoutMs() {
+    return connectTimeoutMs;
+  }
+
+  public void setConnectTimeoutMs(int connectTimeoutMs) {
+    this.connectTimeoutMs = connectTimeoutMs;
+  }
+
+  public int getSocketTimeoutMs() {
+    return socketTimeoutMs;
+  }
+
+  public void setSocketTimeoutMs(int socketTimeoutMs) {
+    this.socketTimeoutMs = socketTimeoutMs;
+  }
+
+  public int getMaxRetryTimeoutMs() {
+    return maxRetryTimeoutMs;
+  }
+
+  public void setMaxRetryTimeoutMs(int maxRetryTimeoutMs) {
+    this.maxRetryTimeoutMs = maxRetryTimeoutMs;
+  }
+
+  public ElasticsearchNodesSnifferFactory getSniffer() {
+    return sniffer;
+  }
+
+  public void setSniffer(ElasticsearchNodesSnifferFactory sniffer) {
+    this.sniffer = sniffer;
+  }
+
+  public boolean isTracing() {
+    return tracing;
+  }
+
+  public void setTracing(boolean tracing) {
+    this.tracing = tracing;
+  }
+
   /**
-   * Creates a managed low level Elasticsearch REST client {@link RestClient}.
+   * Returns the managed low level Elasticsearch REST client {@link RestClient}, created on first
+   * call and shared by all clients built by this factory.
    *
    * @param environment Dropwizard Environment
    * @return Low Level Elasticsearch instance
    */
   public RestClient buildLowLevelClient(Environment environment) {
-    final RestClient client = getRestClient();
-
-    environment.lifecycle().manage(new Managed() {
-      @Override
-      public void start() {
-      }
-
-      @Override
-      public void stop() {
-        try {
-          client.close();
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-      }
-    });
-
-    return client;
+    return getOrCreateRestClient(environment);
   }
 
   /**
-   * Creates a managed high level Elasticsearch REST client {@link RestHighLevelClient}.
+   * Returns a high level Elasticsearch REST client {@link RestHighLevelClient}, on top of the
+   * shared low level client.
    *
    * @param environment Dropwizard Environment
    * @return High Level Elasticsearch instance
    */
-  public RestHighLevelClient buildHighLevelClient(Environment environment) {
-    final RestClient lowLevelRestClient = getRestClient();
-    final RestHighLevelClient client = new RestHighLevelClient(lowLevelRestClient);
-
-    environment.lifecycle().manage(new Managed() {
-      @Override
-      public void start() {
-      }
-
-      @Override
-      public void stop() {
-        try {
-          lowLevelRestClient.close();
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-      }
-    });
-
-    return client;
+  public synchronized RestHighLevelClient buildHighLevelClient(Environment environment) {
+    final RestClient lowLevelRestClient = getOrCreateRestClient(environment);
+    if (highLevelRestClient == null) {
+      highLevelRestClient = new RestHighLevelClient(lowLevelRestClient);
+    }
+    return highLevelRestClient;
   }
 
   /**
-   * Creates a managed low level Elasticsearch REST client {@link RestClient} instrumented with
-   * OpenTracing.
+   * Returns the managed low level Elasticsearch REST client {@link RestClient} instrumented with
+   * OpenTracing. Enables {@code tracing}, so it has to be called before the shared client is
+   * created.
    * You will need to have a {@link Tracer} instance registered on {@link GlobalTracer} helper.
    *
    * @param environment Dropwizard Environment
    * @return Low Level Elasticsearch instance
    */
-  public RestClient buildLowLevelClientWithTracing(Environment environment) {
-    final HttpHost httpHost = new HttpHost(host, port);
-    final Tracer tracer = GlobalTracer.get();
-    final RestClientBuilder restClientBuilder =
-        RestClient.builder(httpHost)
-            .setHttpClientConfigCallback(new TracingHttpClientConfigCallback(tracer));
-    final RestClient client = restClientBuilder.build();
-
-    environment.lifecycle().manage(new Managed() {
-      @Override
-      public void start() {
-      }
-
-      @Override
-      public void stop() {
-        try {
-          client.close();
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-      }
-    });
-
-    return client;
+  public synchronized RestClient buildLowLevelClientWithTracing(Environment environment) {
+    enableTracing();
+    return getOrCreateRestClient(environment);
   }
 
   /**
-   * Creates a managed high level Elasticsearch REST client {@link RestHighLevelClient}instrumented with
-   * OpenTracing.
-   * You will need to have a {@link Tracer} instance registered on {@link GlobalTracer} helper..
+   * Returns a high level Elasticsearch REST client {@link RestHighLevelClient} instrumented with
+   * OpenTracing. Enables {@code tracing}, so it has to be called before the shared client is
+   * created.
+   * You will need to have a {@link Tracer} instance registered on {@link GlobalTracer} helper.
    *
    * @param environment Dropwizard Environment
    * @return High Level Elasticsearch instance
    */
-  public RestHighLevelClient buildHighLevelClientWithTracing(Environment environment) {
-    final HttpHost httpHost = new HttpHost(host, port);
-    final Tracer tracer = GlobalTracer.get();
-    final RestClientBuilder restClientBuilder =
-        RestClient.builder(httpHost)
-            .setHttpClientConfigCallback(new TracingHttpClientConfigCallback(tracer));
-    final RestClient lowLevelRestClient = restClientBuilder.build();
-    final RestHighLevelClient client = new RestHighLevelClient(lowLevelRestClient);
+  public synchronized RestHighLevelClient buildHighLevelClientWithTracing(Environment environment) {
+    enableTracing();
+    return buildHighLevelClient(environment);
+  }
+
+  /**
+   * Creates Indexes and Mappings, with the shared client.
+   * @param environment Dropwizard Environment
+   */
+  public void prepareIndexes(Environment environment) {
+    final ObjectMapper objectMapper = environment.getObjectMapper();
+    final RestClient restClient = getOrCreateRestClient(environment);
+    indices.forEach(index -> index.create(restClient, objectMapper));
+  }
+
+  /**
+   * Sends a request to the cluster, so a connection is established before the first request
+   * served by the application.
+   *
+   * @param client Low level Elasticsearch client
+   * @throws IOException if the cluster is not available
+   */
+  public void warmUp(RestClient client) throws IOException {
+    client.performRequest("HEAD", "/");
+  }
+
+  private synchronized void enableTracing() {
+    if (restClient != null && !tracing) {
+      throw new IllegalStateException(
+          "Elasticsearch client already created without tracing, set tracing property to enable it");
+    }
+    tracing = true;
+  }
+
+  /**
+   * Creates the shared client on first call, closed once on stop, with a nodes sniffer when
+   * enabled. The sniffer is registered after the client, so it is stopped before the client is
+   * closed.
+   */
+  private synchronized RestClient getOrCreateRestClient(Environment environment) {
+    if (restClient != null) {
+      return restClient;
+    }
+    final RestClientBuilder restClientBuilder = getRestClientBuilder(tracing ? GlobalTracer.get() : null);
+    final ElasticsearchNodesSniffer.SniffOnFailureListener failureListener =
+        new ElasticsearchNodesSniffer.SniffOnFailureListener();
+    if (sniffer.isEnabled()) {
+      restClientBuilder.setFailureListener(failureListener);
+    }
+    final RestClient client = restClientBuilder.build();
 
     environment.lifecycle().manage(new Managed() {
       @Override
@@ -173,29 +283,53 @@ public class ElasticsearchClientFactory {
       @Override
       public void stop() {
         try {
-          lowLevelRestClient.close();
+          client.close();
         } catch (IOException e) {
           e.printStackTrace();
         }
       }
     });
 
+    if (sniffer.isEnabled()) {
+      environment.lifecycle().manage(sniffer.build(client, getHttpHosts()[0].getSchemeName(), failureListener));
+    }
+
+    restClient = client;
     return client;
   }
 
-  /**
-   * Creates Indexes and Mappings
-   * @param environment Dropwizard Environment
-   */
-  public void prepareIndexes(Environment environment) {
-    final RestClient restClient = getRestClient();
-    final ObjectMapper objectMapper = environment.getObjectMapper();
-    indices.forEach(index -> index.create(restClient, objectMapper));
+  private RestClientBuilder getRestClientBuilder(Tracer tracer) {
+    final HttpClientConfigCallback tracingCallback =
+        tracer == null ? null : new TracingHttpClientConfigCallback(tracer);
+    return RestClient.builder(getHttpHosts())
+        .setMaxRetryTimeoutMillis(maxRetryTimeoutMs)
+        .setRequestConfigCallback(requestConfigBuilder ->
+            requestConfigBuilder
+                .setConnectTimeout(connectTimeoutMs)
+                .setSocketTimeout(socketTimeoutMs))
+        .setHttpClientConfigCallback(httpClientBuilder -> {
+          httpClientBuilder
+              .setMaxConnTotal(maxConnTotal)
+              .setMaxConnPerRoute(maxConnPerRoute);
+          if (ioThreadCount > 0) {
+            httpClientBuilder.setDefaultIOReactorConfig(
+                IOReactorConfig.custom().setIoThreadCount(ioThreadCount).build());
+          }
+          return tracingCallback == null
+              ? httpClientBuilder
+              : tracingCallback.customizeHttpClient(httpClientBuilder);
+        });
   }
 
-  private RestClient getRestClient() {
-    final HttpHost httpHost = new HttpHost(host, port);
-    final RestClientBuilder restClientBuilder = RestClient.builder(httpHost);
-    return restClientBuilder.build();
+  private HttpHost[] getHttpHosts() {
+    if (hosts.isEmpty()) {
+      return new HttpHost[]{new HttpHost(host, port)};
+    }
+    return hosts.stream()
+        .map(HttpHost::create)
+        .map(httpHost -> httpHost.getPort() < 0
+            ? new HttpHost(httpHost.getHostName(), port, httpHost.getSchemeName())
+            : httpHost)
+        .toArray(HttpHost[]::new);
   }
 }
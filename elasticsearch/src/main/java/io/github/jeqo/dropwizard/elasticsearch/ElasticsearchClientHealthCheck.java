@@ -1,27 +1,49 @@
 package io.github.jeqo.dropwizard.elasticsearch;
 
-import com.codahale.metrics.health.HealthCheck;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.jeqo.dropwizard.health.ScheduledHealthCheck;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestClient;
 
+import java.io.InputStream;
+
 /**
- *
+ * Checks Elasticsearch cluster health ({@code _cluster/health}): unhealthy when the cluster is
+ * not available or its status is red. Executed in background, see {@link ScheduledHealthCheck}.
  */
-public class ElasticsearchClientHealthCheck extends HealthCheck {
+public class ElasticsearchClientHealthCheck extends ScheduledHealthCheck {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
   private final RestClient restClient;
 
   public ElasticsearchClientHealthCheck(RestClient restClient) {
+    this(restClient, DEFAULT_INTERVAL_MS, DEFAULT_TIMEOUT_MS);
+  }
+
+  public ElasticsearchClientHealthCheck(RestClient restClient, long intervalMs, long timeoutMs) {
+    super("elasticsearch-client", intervalMs, timeoutMs);
     this.restClient = restClient;
   }
 
   @Override
-  protected Result check() throws Exception {
-    Response response = restClient.performRequest("GET", "_nodes");
-    if (response.getStatusLine().getStatusCode() == 200) {
-      return Result.healthy();
-    } else {
+  protected Result checkNow(long timeoutMs) throws Exception {
+    Response response = restClient.performRequest("GET", "/_cluster/health");
+    if (response.getStatusLine().getStatusCode() != 200) {
       return Result.unhealthy("Elasticsearch is not available");
     }
+
+    final JsonNode health;
+    try (InputStream content = response.getEntity().getContent()) {
+      health = OBJECT_MAPPER.readTree(content);
+    }
+    final String status = health.path("status").asText();
+    final ResultBuilder result = "red".equals(status) ? Result.builder().unhealthy() : Result.builder().healthy();
+    return result
+        .withMessage("Elasticsearch cluster %s status is %s", health.path("cluster_name").asText(), status)
+        .withDetail("status", status)
+        .withDetail("numberOfNodes", health.path("number_of_nodes").asInt())
+        .build();
   }
 }
@@ -1,6 +1,7 @@
 package io.github.jeqo.dropwizard.elasticsearch;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -72,8 +73,7 @@ public class ElasticsearchIndex {
       try {
         if (e.getResponse().getStatusLine().getStatusCode() == 404) {
           LOGGER.info("Elasticsearch Index not found. Creating Elasticsearch Index {}", name);
-          final JsonNode jsonNode = getJson(objectMapper);
-          final String json = objectMapper.writeValueAsString(jsonNode);
+          final String json = json(objectMapper);
           LOGGER.info("Index {}: {}", name, json);
           final HttpEntity entity = new NStringEntity(json, ContentType.APPLICATION_JSON);
           restClient.performRequest(
@@ -92,6 +92,13 @@ public class ElasticsearchIndex {
     }
   }
 
+  /**
+   * @return Index creation request body
+   */
+  String json(ObjectMapper objectMapper) throws JsonProcessingException {
+    return objectMapper.writeValueAsString(getJson(objectMapper));
+  }
+
   private JsonNode getJson(ObjectMapper objectMapper) {
     return
         objectMapper.createObjectNode()
@@ -1,6 +1,7 @@
 package io.github.jeqo.dropwizard.elasticsearch;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -55,10 +56,16 @@ public class ElasticsearchMapping {
     return objectMapper.createObjectNode().set("properties", propertiesNode);
   }
 
+  /**
+   * @return Mapping creation request body
+   */
+  String json(ObjectMapper objectMapper) throws JsonProcessingException {
+    return objectMapper.writeValueAsString(getJson(objectMapper));
+  }
+
   void create(String index, RestClient restClient, ObjectMapper objectMapper) {
     try {
-      final JsonNode jsonNode = getJson(objectMapper);
-      final String json = objectMapper.writeValueAsString(jsonNode);
+      final String json = json(objectMapper);
       LOGGER.info("Mapping {}: {}", name, json);
       final HttpEntity entity = new NStringEntity(json, ContentType.APPLICATION_JSON);
       final Response response =
@@ -0,0 +1,177 @@
+package io.github.jeqo.dropwizard.elasticsearch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.lifecycle.Managed;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the hosts of a {@link RestClient} up to date with the HTTP nodes of the cluster
+ * ({@code _nodes/http}), so requests are spread across nodes and the client survives node
+ * failures. Nodes are sniffed periodically, and right away when a node fails, then again after
+ * a delay instead of the interval. Failures while a failure sniff is pending are ignored, so
+ * repeated failures do not keep pushing sniffing back.
+ */
+public class ElasticsearchNodesSniffer implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ElasticsearchNodesSniffer.class);
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private enum Round {
+    PERIODIC, ON_FAILURE, AFTER_FAILURE
+  }
+
+  private final RestClient restClient;
+  private final String scheme;
+  private final long intervalMs;
+  private final long afterFailureDelayMs;
+  private final ScheduledExecutorService scheduler;
+
+  private ScheduledFuture<?> next;
+  private Round nextRound = Round.PERIODIC;
+  private long scheduled = 0L;
+  private volatile List<HttpHost> hosts = Collections.emptyList();
+
+  ElasticsearchNodesSniffer(RestClient restClient, String scheme, long intervalMs, long afterFailureDelayMs) {
+    this.restClient = restClient;
+    this.scheme = scheme;
+    this.intervalMs = intervalMs;
+    this.afterFailureDelayMs = afterFailureDelayMs;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "elasticsearch-sniffer");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @Override
+  public void start() {
+    schedule(Round.PERIODIC, 0L);
+  }
+
+  @Override
+  public void stop() {
+    scheduler.shutdownNow();
+  }
+
+  /**
+   * @return hosts found on last sniff
+   */
+  public List<HttpHost> hosts() {
+    return hosts;
+  }
+
+  /**
+   * Sniffs nodes right away, and again after the failure delay, unless a failure sniff is already
+   * pending.
+   */
+  synchronized void onFailure(HttpHost host) {
+    if (nextRound != Round.PERIODIC) {
+      LOGGER.debug("Elasticsearch node {} failed, sniff already pending", host);
+      return;
+    }
+    LOGGER.debug("Elasticsearch node {} failed, sniffing nodes", host);
+    schedule(Round.ON_FAILURE, 0L);
+  }
+
+  /**
+   * Replaces the next round. Rounds already running complete, but do not schedule another one.
+   */
+  private synchronized void schedule(Round round, long delayMs) {
+    if (scheduler.isShutdown()) {
+      return;
+    }
+    if (next != null) {
+      next.cancel(false);
+    }
+    final long id = ++scheduled;
+    nextRound = round;
+    next = scheduler.schedule(() -> sniff(round, id), delayMs, TimeUnit.MILLISECONDS);
+  }
+
+  private synchronized void scheduleAfter(Round round, long id) {
+    if (id != scheduled) {
+      // replaced while running, e.g. by a failure sniff
+      return;
+    }
+    if (round == Round.ON_FAILURE) {
+      schedule(Round.AFTER_FAILURE, afterFailureDelayMs);
+    } else {
+      schedule(Round.PERIODIC, intervalMs);
+    }
+  }
+
+  private void sniff(Round round, long id) {
+    try {
+      final List<HttpHost> sniffed = sniffHosts();
+      if (sniffed.isEmpty()) {
+        LOGGER.warn("No Elasticsearch HTTP nodes found, keeping hosts {}", hosts);
+      } else {
+        if (!sniffed.equals(hosts)) {
+          LOGGER.info("Elasticsearch hosts updated: {}", sniffed);
+        }
+        hosts = sniffed;
+        restClient.setHosts(sniffed.toArray(new HttpHost[0]));
+      }
+    } catch (Exception e) {
+      LOGGER.warn("Error sniffing Elasticsearch nodes", e);
+    } finally {
+      scheduleAfter(round, id);
+    }
+  }
+
+  private List<HttpHost> sniffHosts() throws IOException {
+    final Response response =
+        restClient.performRequest("GET", "/_nodes/http", Collections.singletonMap("timeout", "1s"));
+    final JsonNode nodes;
+    try (InputStream content = response.getEntity().getContent()) {
+      nodes = OBJECT_MAPPER.readTree(content).path("nodes");
+    }
+    final List<HttpHost> sniffed = new ArrayList<>();
+    final Iterator<JsonNode> iterator = nodes.elements();
+    while (iterator.hasNext()) {
+      final String address = iterator.next().path("http").path("publish_address").asText(null);
+      if (address != null) {
+        // publish address can be formatted as hostname/ip:port
+        final int slash = address.lastIndexOf('/');
+        sniffed.add(HttpHost.create(scheme + "://" + address.substring(slash + 1)));
+      }
+    }
+    return sniffed;
+  }
+
+  /**
+   * Failure listener triggering a sniff when a node fails. Created before the client, as the
+   * listener is set on the client builder.
+   */
+  static class SniffOnFailureListener extends RestClient.FailureListener {
+    private volatile ElasticsearchNodesSniffer sniffer;
+
+    void setSniffer(ElasticsearchNodesSniffer sniffer) {
+      this.sniffer = sniffer;
+    }
+
+    @Override
+    public void onFailure(HttpHost host) {
+      if (sniffer != null) {
+        sniffer.onFailure(host);
+      }
+    }
+  }
+}
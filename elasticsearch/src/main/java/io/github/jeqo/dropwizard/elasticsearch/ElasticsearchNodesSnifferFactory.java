@@ -0,0 +1,56 @@
+package io.github.jeqo.dropwizard.elasticsearch;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.elasticsearch.client.RestClient;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Dropwizard Factory to create {@link ElasticsearchNodesSniffer}s, disabled by default.
+ */
+public class ElasticsearchNodesSnifferFactory {
+
+  @JsonProperty
+  private boolean enabled = false;
+
+  @Min(1)
+  @JsonProperty
+  private long intervalMs = 300000L;
+
+  @Min(0)
+  @JsonProperty
+  private long afterFailureDelayMs = 60000L;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public long getIntervalMs() {
+    return intervalMs;
+  }
+
+  public void setIntervalMs(long intervalMs) {
+    this.intervalMs = intervalMs;
+  }
+
+  public long getAfterFailureDelayMs() {
+    return afterFailureDelayMs;
+  }
+
+  public void setAfterFailureDelayMs(long afterFailureDelayMs) {
+    this.afterFailureDelayMs = afterFailureDelayMs;
+  }
+
+  ElasticsearchNodesSniffer build(RestClient restClient,
+                                  String scheme,
+                                  ElasticsearchNodesSniffer.SniffOnFailureListener failureListener) {
+    final ElasticsearchNodesSniffer sniffer =
+        new ElasticsearchNodesSniffer(restClient, scheme, intervalMs, afterFailureDelayMs);
+    failureListener.setSniffer(sniffer);
+    return sniffer;
+  }
+}
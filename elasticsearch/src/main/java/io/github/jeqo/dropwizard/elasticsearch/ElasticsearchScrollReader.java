@@ -0,0 +1,420 @@
+package io.github.jeqo.dropwizard.elasticsearch;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static java.util.Spliterators.spliteratorUnknownSize;
+
+/**
+ * Reads every hit matching a query with the scroll API, as an {@link Iterator} or {@link Stream},
+ * instead of paging with {@code from}/{@code size}. Memory is bounded by page size, whatever the
+ * number of hits:
+ * <ul>
+ * <li>hits are parsed one at a time from the response, instead of reading the whole response as
+ * a tree,</li>
+ * <li>the next page is requested while the current one is consumed, if {@code prefetch} is
+ * enabled.</li>
+ * </ul>
+ * Scans can be split in {@code slices} (sliced scroll), read in parallel by
+ * {@link #scan(String, String, Consumer)}.
+ */
+public class ElasticsearchScrollReader {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ElasticsearchScrollReader.class);
+
+  private final String name;
+  private final RestClient restClient;
+  private final ObjectMapper objectMapper;
+  private final int pageSize;
+  private final String keepAlive;
+  private final int slices;
+  private final boolean prefetch;
+  private final ExecutorService executor;
+
+  private final Timer pageLatency;
+  private final Meter hits;
+
+  ElasticsearchScrollReader(String name,
+                            RestClient restClient,
+                            ObjectMapper objectMapper,
+                            int pageSize,
+                            String keepAlive,
+                            int slices,
+                            boolean prefetch,
+                            ExecutorService executor,
+                            MetricRegistry metrics) {
+    this.name = name;
+    this.restClient = restClient;
+    this.objectMapper = objectMapper;
+    this.pageSize = pageSize;
+    this.keepAlive = keepAlive;
+    this.slices = slices;
+    this.prefetch = prefetch;
+    this.executor = executor;
+
+    this.pageLatency = metrics.timer(name(ElasticsearchScrollReader.class, name, "page-latency"));
+    this.hits = metrics.meter(name(ElasticsearchScrollReader.class, name, "hits"));
+  }
+
+  /**
+   * @return number of slices scanned in parallel by {@link #scan(String, String, Consumer)}
+   */
+  public int slices() {
+    return slices;
+  }
+
+  /**
+   * Reads all hits matching a query, without slicing.
+   *
+   * @param index Index name, or pattern
+   * @param query JSON query, e.g. {@code {"term":{"user":"kimchy"}}}, or null to match all
+   * @return stream of hits, to be closed if not fully consumed to release the scroll
+   */
+  public Stream<JsonNode> stream(String index, String query) {
+    return stream(iterator(index, query, 0, 1));
+  }
+
+  /**
+   * Reads hits of a slice of the scan.
+   *
+   * @param index Index name, or pattern
+   * @param query JSON query, or null to match all
+   * @param slice Slice id, from 0 to {@link #slices()} - 1
+   * @return stream of hits, to be closed if not fully consumed to release the scroll
+   */
+  public Stream<JsonNode> stream(String index, String query, int slice) {
+    return stream(iterator(index, query, slice, slices));
+  }
+
+  /**
+   * Reads all hits matching a query, with a sliced scroll per slice read in parallel.
+   *
+   * @param index  Index name, or pattern
+   * @param query  JSON query, or null to match all
+   * @param action Action applied to each hit, called concurrently from different slices
+   * @return future completed with the number of hits once all slices are read
+   */
+  public CompletableFuture<Long> scan(String index, String query, Consumer<JsonNode> action) {
+    final List<CompletableFuture<Long>> futures = new ArrayList<>(slices);
+    for (int slice = 0; slice < slices; slice++) {
+      final int id = slice;
+      futures.add(CompletableFuture.supplyAsync(() -> {
+        long count = 0L;
+        try (ScrollIterator iterator = iterator(index, query, id, slices)) {
+          while (iterator.hasNext()) {
+            action.accept(iterator.next());
+            count++;
+          }
+        }
+        return count;
+      }, executor));
+    }
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+        .thenApply(ignored -> futures.stream().mapToLong(CompletableFuture::join).sum());
+  }
+
+  private Stream<JsonNode> stream(ScrollIterator iterator) {
+    return StreamSupport.stream(spliteratorUnknownSize(iterator, ORDERED | NONNULL), false)
+        .onClose(iterator::close);
+  }
+
+  private ScrollIterator iterator(String index, String query, int slice, int max) {
+    final ObjectNode body = objectMapper.createObjectNode();
+    body.put("size", pageSize);
+    body.putArray("sort").add("_doc");
+    try {
+      if (query != null) {
+        body.set("query", objectMapper.readTree(query));
+      }
+      if (max > 1) {
+        body.putObject("slice").put("id", slice).put("max", max);
+      }
+      final Response response =
+          request(
+              "POST",
+              "/" + index + "/_search",
+              Collections.singletonMap("scroll", keepAlive),
+              body.toString());
+      return new ScrollIterator(response);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Response request(String method, String endpoint, Map<String, String> params, String body)
+      throws IOException {
+    final Timer.Context context = pageLatency.time();
+    try {
+      return restClient.performRequest(method, endpoint, params, entity(body));
+    } finally {
+      context.stop();
+    }
+  }
+
+  private CompletableFuture<Response> requestAsync(String method, String endpoint, String body) {
+    final CompletableFuture<Response> future = new CompletableFuture<>();
+    final Timer.Context context = pageLatency.time();
+    restClient.performRequestAsync(method, endpoint, Collections.emptyMap(), entity(body),
+        new ResponseListener() {
+          @Override
+          public void onSuccess(Response response) {
+            context.stop();
+            future.complete(response);
+          }
+
+          @Override
+          public void onFailure(Exception exception) {
+            context.stop();
+            future.completeExceptionally(exception);
+          }
+        });
+    return future;
+  }
+
+  private HttpEntity entity(String body) {
+    return new NStringEntity(body, ContentType.APPLICATION_JSON);
+  }
+
+  private String scrollBody(String scrollId) {
+    return objectMapper.createObjectNode()
+        .put("scroll", keepAlive)
+        .put("scroll_id", scrollId)
+        .toString();
+  }
+
+  /**
+   * Iterates hits of a scroll, parsing one page at a time. The scroll is cleared once all hits
+   * are read, or when closed, after any prefetched page is answered.
+   */
+  private class ScrollIterator implements Iterator<JsonNode>, Closeable {
+    private JsonParser parser;
+    private String scrollId;
+    private CompletableFuture<Response> next;
+    private JsonNode hit;
+    private long total = -1L;
+    private long seen = 0L;
+    private int pageHits = 0;
+    private boolean done = false;
+
+    ScrollIterator(Response response) throws IOException {
+      open(response);
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (hit != null) {
+        return true;
+      }
+      if (done) {
+        return false;
+      }
+      try {
+        return advance();
+      } catch (IOException e) {
+        close();
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public JsonNode next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final JsonNode current = hit;
+      hit = null;
+      return current;
+    }
+
+    @Override
+    public void close() {
+      if (done) {
+        return;
+      }
+      done = true;
+      closePage();
+      if (next != null) {
+        // a prefetched page is still in flight: the scroll is cleared once it is answered, so
+        // the clear request does not race it
+        final CompletableFuture<Response> pending = next;
+        next = null;
+        pending.whenComplete((response, exception) -> clearScroll(discard(response)));
+      } else {
+        clearScroll(null);
+      }
+    }
+
+    /**
+     * Releases a prefetched page that will not be read.
+     *
+     * @return scroll id of the page, if any
+     */
+    private String discard(Response response) {
+      if (response == null) {
+        return null;
+      }
+      try (JsonParser pageParser = objectMapper.getFactory().createParser(response.getEntity().getContent())) {
+        if (pageParser.nextToken() == JsonToken.START_OBJECT) {
+          while (pageParser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = pageParser.getCurrentName();
+            pageParser.nextToken();
+            if ("_scroll_id".equals(field)) {
+              return pageParser.getText();
+            }
+            pageParser.skipChildren();
+          }
+        }
+      } catch (IOException e) {
+        LOGGER.debug("Error reading discarded scroll page", e);
+      } finally {
+        EntityUtils.consumeQuietly(response.getEntity());
+      }
+      return null;
+    }
+
+    private void clearScroll(String nextScrollId) {
+      final ArrayNode scrollIds = objectMapper.createArrayNode();
+      if (scrollId != null) {
+        scrollIds.add(scrollId);
+      }
+      if (nextScrollId != null && !nextScrollId.equals(scrollId)) {
+        scrollIds.add(nextScrollId);
+      }
+      if (scrollIds.size() == 0) {
+        return;
+      }
+      final String body = objectMapper.createObjectNode().set("scroll_id", scrollIds).toString();
+      restClient.performRequestAsync("DELETE", "/_search/scroll", Collections.emptyMap(), entity(body),
+          new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+              LOGGER.warn("Error clearing scroll on reader {}", name, exception);
+            }
+          });
+    }
+
+    private boolean advance() throws IOException {
+      while (true) {
+        if (parser != null && parser.nextToken() == JsonToken.START_OBJECT) {
+          hit = objectMapper.readTree(parser);
+          seen++;
+          pageHits++;
+          hits.mark();
+          return true;
+        }
+        closePage();
+        if (pageHits == 0 || seen >= total || scrollId == null) {
+          close();
+          return false;
+        }
+        open(nextPage());
+      }
+    }
+
+    private Response nextPage() throws IOException {
+      if (next == null) {
+        return request("POST", "/_search/scroll", Collections.emptyMap(), scrollBody(scrollId));
+      }
+      final CompletableFuture<Response> prefetched = next;
+      next = null;
+      try {
+        return prefetched.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted reading scroll page", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException(e.getCause());
+      }
+    }
+
+    /**
+     * Parses a page until the hits array, requesting the next page once the scroll id and total
+     * hits are known.
+     */
+    private void open(Response response) throws IOException {
+      pageHits = 0;
+      parser = objectMapper.getFactory().createParser(response.getEntity().getContent());
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Unexpected scroll response");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String field = parser.getCurrentName();
+        parser.nextToken();
+        if ("_scroll_id".equals(field)) {
+          scrollId = parser.getText();
+        } else if ("hits".equals(field) && parser.getCurrentToken() == JsonToken.START_OBJECT) {
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String hitsField = parser.getCurrentName();
+            parser.nextToken();
+            if ("total".equals(hitsField)) {
+              total = parser.getLongValue();
+            } else if ("hits".equals(hitsField) && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+              if (prefetch && scrollId != null && seen + pageSize < total) {
+                next = requestAsync("POST", "/_search/scroll", scrollBody(scrollId));
+              }
+              return;
+            } else {
+              parser.skipChildren();
+            }
+          }
+        } else {
+          parser.skipChildren();
+        }
+      }
+      closePage();
+    }
+
+    private void closePage() {
+      if (parser != null) {
+        try {
+          parser.close();
+        } catch (IOException e) {
+          LOGGER.debug("Error closing scroll page", e);
+        }
+        parser = null;
+      }
+    }
+  }
+}
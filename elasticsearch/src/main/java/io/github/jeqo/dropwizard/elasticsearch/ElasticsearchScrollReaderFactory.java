@@ -0,0 +1,103 @@
+package io.github.jeqo.dropwizard.elasticsearch;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.setup.Environment;
+import org.elasticsearch.client.RestClient;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.constraints.Min;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Dropwizard Factory to create {@link ElasticsearchScrollReader} instances.
+ */
+public class ElasticsearchScrollReaderFactory {
+
+  @NotEmpty
+  @JsonProperty
+  private String name;
+
+  @Min(1)
+  @JsonProperty
+  private int pageSize = 1000;
+
+  @NotEmpty
+  @JsonProperty
+  private String keepAlive = "1m";
+
+  @Min(1)
+  @JsonProperty
+  private int slices = 1;
+
+  @JsonProperty
+  private boolean prefetch = true;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  public void setPageSize(int pageSize) {
+    this.pageSize = pageSize;
+  }
+
+  public String getKeepAlive() {
+    return keepAlive;
+  }
+
+  public void setKeepAlive(String keepAlive) {
+    this.keepAlive = keepAlive;
+  }
+
+  public int getSlices() {
+    return slices;
+  }
+
+  public void setSlices(int slices) {
+    this.slices = slices;
+  }
+
+  public boolean isPrefetch() {
+    return prefetch;
+  }
+
+  public void setPrefetch(boolean prefetch) {
+    this.prefetch = prefetch;
+  }
+
+  /**
+   * Creates an {@link ElasticsearchScrollReader} sending requests with a low level client, e.g.
+   * created by {@link ElasticsearchClientFactory}. Slices are scanned on a managed executor, with
+   * a thread per slice.
+   *
+   * @param environment Dropwizard Environment
+   * @param restClient  Low level Elasticsearch client
+   * @return Elasticsearch Scroll Reader
+   */
+  public ElasticsearchScrollReader build(Environment environment, RestClient restClient) {
+    final ExecutorService executor =
+        environment.lifecycle()
+            .executorService("elasticsearch-scroll-" + name + "-%d")
+            .minThreads(slices)
+            .maxThreads(slices)
+            .build();
+
+    return new ElasticsearchScrollReader(
+        name,
+        restClient,
+        environment.getObjectMapper(),
+        pageSize,
+        keepAlive,
+        slices,
+        prefetch,
+        executor,
+        environment.metrics());
+  }
+}
@@ -0,0 +1,243 @@
+package io.github.jeqo.dropwizard.elasticsearch;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Sends bulk requests to a stub {@code _bulk} endpoint answering with queued responses.
+ */
+public class ElasticsearchBulkIndexerTest {
+
+  private static final String INDEX = "events";
+  private static final String TYPE = "doc";
+
+  private final Queue<Response> responses = new ConcurrentLinkedQueue<>();
+  private final List<String> requests = new CopyOnWriteArrayList<>();
+
+  private HttpServer server;
+  private RestClient restClient;
+  private MetricRegistry metrics;
+  private ElasticsearchBulkIndexer indexer;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/_bulk", exchange -> {
+      requests.add(read(exchange.getRequestBody()));
+      final Response response = responses.poll();
+      final byte[] body = response == null ? new byte[0] : response.body.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(response == null ? 500 : response.status, body.length == 0 ? -1 : body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    });
+    server.start();
+
+    restClient = RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())).build();
+    metrics = new MetricRegistry();
+    indexer =
+        new ElasticsearchBulkIndexer(
+            "test",
+            restClient,
+            new ObjectMapper(),
+            1000,
+            5L * 1024 * 1024,
+            0L,
+            1,
+            2,
+            1L,
+            1000L,
+            Runnable::run,
+            metrics);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    indexer.stop();
+    restClient.close();
+    server.stop(0);
+  }
+
+  @Test
+  public void shouldCompleteItemsByStatus() throws Exception {
+    respond(200, items(201, 404, 400));
+
+    final CompletableFuture<Void> indexed = indexer.index(INDEX, TYPE, "1", "{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+    final CompletableFuture<Void> deleted = indexer.delete(INDEX, TYPE, "2");
+    final CompletableFuture<Void> invalid = indexer.index(INDEX, TYPE, "3", "{\"a\":\"x\"}".getBytes(StandardCharsets.UTF_8));
+    indexer.flush();
+
+    assertNull(indexed.get(5, TimeUnit.SECONDS));
+    assertNull(deleted.get(5, TimeUnit.SECONDS));
+    assertEquals(400, bulkException(invalid).getStatus());
+    assertEquals(1, requests.size());
+    assertEquals(2L, metrics.meter(name(ElasticsearchBulkIndexer.class, "test", "docs")).getCount());
+    assertEquals(1L, metrics.meter(name(ElasticsearchBulkIndexer.class, "test", "failures")).getCount());
+  }
+
+  @Test
+  public void shouldFailIndexedDocumentsNotFound() throws Exception {
+    respond(200, items(404));
+
+    final CompletableFuture<Void> indexed = indexer.index(INDEX, TYPE, "1", "{}".getBytes(StandardCharsets.UTF_8));
+    indexer.flush();
+
+    assertEquals(404, bulkException(indexed).getStatus());
+  }
+
+  @Test
+  public void shouldRetryRejectedItemsOnly() throws Exception {
+    respond(200, items(201, 429));
+    respond(200, items(201));
+
+    final CompletableFuture<Void> first = indexer.index(INDEX, TYPE, "1", "{\"n\":1}".getBytes(StandardCharsets.UTF_8));
+    final CompletableFuture<Void> second = indexer.index(INDEX, TYPE, "2", "{\"n\":2}".getBytes(StandardCharsets.UTF_8));
+    indexer.flush();
+
+    assertNull(first.get(5, TimeUnit.SECONDS));
+    assertNull(second.get(5, TimeUnit.SECONDS));
+    assertEquals(2, requests.size());
+    assertTrue(requests.get(1).contains("\"n\":2"));
+    assertFalse(requests.get(1).contains("\"n\":1"));
+    assertEquals(1L, metrics.meter(name(ElasticsearchBulkIndexer.class, "test", "rejections")).getCount());
+  }
+
+  @Test
+  public void shouldFailRejectedItemsAfterMaxRetries() throws Exception {
+    respond(200, items(429));
+    respond(200, items(429));
+    respond(200, items(429));
+
+    final CompletableFuture<Void> rejected = indexer.index(INDEX, TYPE, "1", "{}".getBytes(StandardCharsets.UTF_8));
+    indexer.flush();
+
+    assertEquals(429, bulkException(rejected).getStatus());
+    assertEquals(3, requests.size());
+  }
+
+  @Test
+  public void shouldFailPendingRetriesOnStop() throws Exception {
+    respond(200, items(201, 429));
+    final ElasticsearchBulkIndexer stopping =
+        new ElasticsearchBulkIndexer(
+            "stopping",
+            restClient,
+            new ObjectMapper(),
+            1000,
+            5L * 1024 * 1024,
+            0L,
+            1,
+            2,
+            60000L,
+            100L,
+            Runnable::run,
+            metrics);
+
+    final CompletableFuture<Void> indexed = stopping.index(INDEX, TYPE, "1", "{}".getBytes(StandardCharsets.UTF_8));
+    final CompletableFuture<Void> rejected = stopping.index(INDEX, TYPE, "2", "{}".getBytes(StandardCharsets.UTF_8));
+    stopping.flush();
+    assertNull(indexed.get(5, TimeUnit.SECONDS));
+
+    stopping.stop();
+
+    assertTrue(cause(rejected) instanceof IOException);
+    assertEquals(1, requests.size());
+  }
+
+  @Test
+  public void shouldFailAllItemsWhenRequestFails() throws Exception {
+    respond(400, "{\"error\":\"bad request\"}");
+
+    final CompletableFuture<Void> first = indexer.index(INDEX, TYPE, "1", "{}".getBytes(StandardCharsets.UTF_8));
+    final CompletableFuture<Void> second = indexer.delete(INDEX, TYPE, "2");
+    indexer.flush();
+
+    assertTrue(cause(first) instanceof ResponseException);
+    assertTrue(cause(second) instanceof ResponseException);
+    assertEquals(1, requests.size());
+  }
+
+  private void respond(int status, String body) {
+    responses.add(new Response(status, body));
+  }
+
+  private static String items(int... statuses) {
+    final StringBuilder body = new StringBuilder("{\"items\":[");
+    for (int i = 0; i < statuses.length; i++) {
+      if (i > 0) {
+        body.append(',');
+      }
+      body.append("{\"index\":{\"status\":").append(statuses[i]);
+      if (statuses[i] >= 300) {
+        body.append(",\"error\":{\"type\":\"error-").append(statuses[i]).append("\"}");
+      }
+      body.append("}}");
+    }
+    return body.append("]}").toString();
+  }
+
+  private static ElasticsearchBulkException bulkException(CompletableFuture<Void> future) throws Exception {
+    final Throwable cause = cause(future);
+    assertTrue("Unexpected error " + cause, cause instanceof ElasticsearchBulkException);
+    return (ElasticsearchBulkException) cause;
+  }
+
+  private static Throwable cause(CompletableFuture<Void> future) throws Exception {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("Expected future to fail");
+      return null;
+    } catch (ExecutionException e) {
+      return e.getCause();
+    }
+  }
+
+  private static String read(InputStream input) throws IOException {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[4096];
+    int read;
+    while ((read = input.read(buffer)) != -1) {
+      output.write(buffer, 0, read);
+    }
+    return new String(output.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static class Response {
+    final int status;
+    final String body;
+
+    Response(int status, String body) {
+      this.status = status;
+      this.body = body;
+    }
+  }
+}
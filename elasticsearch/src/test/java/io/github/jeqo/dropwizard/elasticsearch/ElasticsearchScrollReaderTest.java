@@ -0,0 +1,121 @@
+package io.github.jeqo.dropwizard.elasticsearch;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.RestClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads scrolls from a stub search endpoint answering scroll pages slowly.
+ */
+public class ElasticsearchScrollReaderTest {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final long PAGE_DELAY_MS = 300L;
+
+  private final AtomicLong pageAnsweredNanos = new AtomicLong();
+  private final AtomicLong clearReceivedNanos = new AtomicLong();
+  private final AtomicReference<JsonNode> clearBody = new AtomicReference<>();
+  private final CountDownLatch cleared = new CountDownLatch(1);
+
+  private HttpServer server;
+  private RestClient restClient;
+  private ExecutorService executor;
+  private ElasticsearchScrollReader reader;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/events/_search", exchange -> respond(exchange, page("scroll-1")));
+    server.createContext("/_search/scroll", exchange -> {
+      if ("DELETE".equals(exchange.getRequestMethod())) {
+        clearReceivedNanos.set(System.nanoTime());
+        clearBody.set(OBJECT_MAPPER.readTree(exchange.getRequestBody()));
+        respond(exchange, "{\"succeeded\":true}");
+        cleared.countDown();
+        return;
+      }
+      drain(exchange.getRequestBody());
+      try {
+        Thread.sleep(PAGE_DELAY_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      pageAnsweredNanos.set(System.nanoTime());
+      respond(exchange, page("scroll-2"));
+    });
+    server.start();
+
+    restClient = RestClient.builder(new HttpHost("localhost", server.getAddress().getPort())).build();
+    executor = Executors.newSingleThreadExecutor();
+    reader = new ElasticsearchScrollReader("test", restClient, OBJECT_MAPPER, 2, "1m", 1, true, executor,
+        new MetricRegistry());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    restClient.close();
+    executor.shutdownNow();
+    server.stop(0);
+  }
+
+  @Test
+  public void shouldClearScrollAfterPrefetchedPageWhenClosedEarly() throws Exception {
+    try (Stream<JsonNode> hits = reader.stream("events", null)) {
+      final Iterator<JsonNode> iterator = hits.iterator();
+      assertEquals(0, iterator.next().path("_id").asInt());
+    }
+
+    assertTrue(cleared.await(5, TimeUnit.SECONDS));
+    assertTrue(clearReceivedNanos.get() >= pageAnsweredNanos.get());
+    assertTrue(pageAnsweredNanos.get() > 0L);
+    final JsonNode scrollIds = clearBody.get().path("scroll_id");
+    assertEquals(2, scrollIds.size());
+    assertEquals("scroll-1", scrollIds.path(0).asText());
+    assertEquals("scroll-2", scrollIds.path(1).asText());
+  }
+
+  private static String page(String scrollId) {
+    return "{\"_scroll_id\":\"" + scrollId + "\",\"hits\":{\"total\":10,\"hits\":[{\"_id\":0},{\"_id\":1}]}}";
+  }
+
+  private static void respond(HttpExchange exchange, String body) throws IOException {
+    final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(bytes);
+    }
+  }
+
+  private static void drain(InputStream input) throws IOException {
+    final byte[] buffer = new byte[1024];
+    while (input.read(buffer) != -1) {
+      // request body is not used
+    }
+  }
+}
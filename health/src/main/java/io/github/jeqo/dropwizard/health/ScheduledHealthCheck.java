@@ -0,0 +1,166 @@
+package io.github.jeqo.dropwizard.health;
+
+import com.codahale.metrics.health.HealthCheck;
+import io.dropwizard.lifecycle.Managed;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Health check refreshed in background on a fixed interval, with a hard timeout per execution.
+ * {@link #check()} returns the last result without blocking, so frequent calls or a slow back-end
+ * do not pile up threads or add load to the back-end.
+ * <p>
+ * Refreshes are scheduled when the check is started as {@link Managed} object, or on the first
+ * call, which waits for the first result up to the timeout. Once stopped, the check is reported
+ * as unhealthy instead of being started again. A check still running after the timeout is
+ * interrupted, and no other execution starts until it finishes. Results include the check
+ * latency as {@code latencyMs} detail.
+ */
+public abstract class ScheduledHealthCheck extends HealthCheck implements Managed {
+
+  public static final long DEFAULT_INTERVAL_MS = 10000L;
+  public static final long DEFAULT_TIMEOUT_MS = 5000L;
+
+  private final String name;
+  private final long intervalMs;
+  private final long timeoutMs;
+  private final CountDownLatch firstResult = new CountDownLatch(1);
+
+  private ScheduledExecutorService scheduler;
+  private ThreadPoolExecutor executor;
+  private Future<Result> execution;
+  private boolean stopped = false;
+
+  private volatile Result result;
+  private volatile long latencyMs;
+
+  /**
+   * @param name       Name used on check threads
+   * @param intervalMs Delay between checks
+   * @param timeoutMs  Maximum time a check can take before being reported as unhealthy
+   */
+  protected ScheduledHealthCheck(String name, long intervalMs, long timeoutMs) {
+    this.name = name;
+    this.intervalMs = intervalMs;
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * Checks the back-end. Calls to the back-end should be bounded by the timeout when possible.
+   *
+   * @param timeoutMs Time available for the check
+   * @return check result
+   */
+  protected abstract Result checkNow(long timeoutMs) throws Exception;
+
+  /**
+   * @return latency of the last check, in milliseconds
+   */
+  public long getLatencyMs() {
+    return latencyMs;
+  }
+
+  @Override
+  public synchronized void start() {
+    stopped = false;
+    if (scheduler != null) {
+      return;
+    }
+    scheduler = Executors.newSingleThreadScheduledExecutor(daemon("health-check-" + name + "-scheduler"));
+    executor =
+        new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<>(),
+            daemon("health-check-" + name), new ThreadPoolExecutor.DiscardPolicy());
+    scheduler.scheduleWithFixedDelay(this::refresh, 0L, intervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public synchronized void stop() {
+    stopped = true;
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      executor.shutdownNow();
+      scheduler = null;
+      executor = null;
+    }
+  }
+
+  @Override
+  protected Result check() throws Exception {
+    synchronized (this) {
+      if (stopped) {
+        return Result.unhealthy("Health check %s stopped", name);
+      }
+      start();
+    }
+    if (!firstResult.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+      return Result.unhealthy("Health check %s did not complete after %d ms", name, timeoutMs);
+    }
+    return result;
+  }
+
+  private void refresh() {
+    final Future<Result> future;
+    synchronized (this) {
+      if (executor == null) {
+        return;
+      }
+      // while a timed out check is still running, new executions are discarded and time out
+      if (execution == null || execution.isDone()) {
+        execution = executor.submit(() -> checkNow(timeoutMs));
+      }
+      future = execution;
+    }
+
+    final long start = System.nanoTime();
+    Result checked;
+    try {
+      checked = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      checked = Result.unhealthy("Health check %s timed out after %d ms", name, timeoutMs);
+    } catch (ExecutionException e) {
+      checked = Result.unhealthy(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    result = withLatency(checked, latencyMs);
+    firstResult.countDown();
+  }
+
+  private static Result withLatency(Result result, long latencyMs) {
+    final ResultBuilder builder;
+    if (result.isHealthy()) {
+      builder = Result.builder().healthy();
+    } else if (result.getError() != null) {
+      builder = Result.builder().unhealthy(result.getError());
+    } else {
+      builder = Result.builder().unhealthy();
+    }
+    if (result.getMessage() != null) {
+      builder.withMessage(result.getMessage());
+    }
+    if (result.getDetails() != null) {
+      result.getDetails().forEach(builder::withDetail);
+    }
+    return builder.withDetail("latencyMs", latencyMs).build();
+  }
+
+  private static ThreadFactory daemon(String threadName) {
+    return runnable -> {
+      final Thread thread = new Thread(runnable, threadName);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
@@ -0,0 +1,385 @@
+package io.github.jeqo.dropwizard.kafka.elasticsearch;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.dropwizard.lifecycle.Managed;
+import io.github.jeqo.dropwizard.elasticsearch.ElasticsearchBulkException;
+import io.github.jeqo.dropwizard.elasticsearch.ElasticsearchBulkIndexer;
+import io.github.jeqo.dropwizard.kafka.KafkaRecordFailureHandler;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Managed sink indexing records consumed from Kafka topics into an Elasticsearch index, with
+ * at-least-once delivery: offsets are committed only once the bulk requests containing their
+ * records are acknowledged.
+ * <p>
+ * Records polled from each partition are sent as a bulk request, so partitions are indexed in
+ * parallel, up to the bulk indexer concurrent requests. A partition is paused while its bulk
+ * request is in-flight, keeping documents of a partition in order. Records are indexed with the
+ * record key as document id, if enabled, and tombstones delete the document with that id.
+ * <p>
+ * Documents rejected (status 429) or failing with a transport error are retried: the partition is
+ * rewound to the first of them, and indexed again after a backoff. Other failures (e.g. 400
+ * {@code mapper_parsing_exception}) are permanent: their records are passed to a
+ * {@link KafkaRecordFailureHandler}, from the polling thread, and offsets are committed past them.
+ * If the handler fails, the partition is rewound to that record instead.
+ */
+public class KafkaElasticsearchSink<K, V> implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaElasticsearchSink.class);
+
+  private static final int TOO_MANY_REQUESTS = 429;
+
+  private final String name;
+  private final Consumer<K, V> consumer;
+  private final List<String> topics;
+  private final ElasticsearchBulkIndexer indexer;
+  private final String index;
+  private final String type;
+  private final boolean documentIdFromKey;
+  private final long pollTimeoutMs;
+  private final long retryBackoffMs;
+  private final long awaitTimeoutMs;
+  private final KafkaRecordFailureHandler<K, V> failureHandler;
+
+  private final Map<TopicPartition, Batch> inFlight = new ConcurrentHashMap<>();
+  private final Queue<Batch> completed = new ConcurrentLinkedQueue<>();
+  private final Map<TopicPartition, Long> retries = new HashMap<>();
+  private final Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+
+  private final Timer latency;
+  private final Meter docs;
+  private final Meter failures;
+  private final Meter permanentFailures;
+  private final Histogram lag;
+
+  private volatile boolean running = false;
+  private Thread pollThread;
+
+  KafkaElasticsearchSink(String name,
+                         Consumer<K, V> consumer,
+                         List<String> topics,
+                         ElasticsearchBulkIndexer indexer,
+                         String index,
+                         String type,
+                         boolean documentIdFromKey,
+                         long pollTimeoutMs,
+                         long retryBackoffMs,
+                         long awaitTimeoutMs,
+                         KafkaRecordFailureHandler<K, V> failureHandler,
+                         MetricRegistry metrics) {
+    this.name = name;
+    this.consumer = consumer;
+    this.topics = topics;
+    this.indexer = indexer;
+    this.index = index;
+    this.type = type;
+    this.documentIdFromKey = documentIdFromKey;
+    this.pollTimeoutMs = pollTimeoutMs;
+    this.retryBackoffMs = retryBackoffMs;
+    this.awaitTimeoutMs = awaitTimeoutMs;
+    this.failureHandler = failureHandler;
+
+    this.latency = metrics.timer(name(KafkaElasticsearchSink.class, name, "batch-latency"));
+    this.docs = metrics.meter(name(KafkaElasticsearchSink.class, name, "docs"));
+    this.failures = metrics.meter(name(KafkaElasticsearchSink.class, name, "failures"));
+    this.permanentFailures = metrics.meter(name(KafkaElasticsearchSink.class, name, "permanent-failures"));
+    this.lag = metrics.histogram(name(KafkaElasticsearchSink.class, name, "end-to-end-lag-ms"));
+    metrics.register(name(KafkaElasticsearchSink.class, name, "in-flight-batches"),
+        (Gauge<Integer>) inFlight::size);
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    pollThread = new Thread(this::pollLoop, "kafka-elasticsearch-sink-" + name);
+    pollThread.start();
+  }
+
+  @Override
+  public void stop() throws Exception {
+    running = false;
+    consumer.wakeup();
+    if (pollThread != null) {
+      pollThread.join();
+    }
+  }
+
+  /**
+   * @return true while the sink is consuming. False once stopped, or after an unexpected error.
+   */
+  public boolean isRunning() {
+    return running && pollThread != null && pollThread.isAlive();
+  }
+
+  private void pollLoop() {
+    try {
+      consumer.subscribe(topics, new RebalanceListener());
+      while (running) {
+        final ConsumerRecords<K, V> records = consumer.poll(pollTimeoutMs);
+        for (TopicPartition topicPartition : records.partitions()) {
+          send(topicPartition, records.records(topicPartition));
+        }
+        complete();
+        resume();
+        if (!offsets.isEmpty()) {
+          consumer.commitAsync(new HashMap<>(offsets), (committed, exception) -> {
+            if (exception != null) {
+              LOGGER.warn("Error committing offsets on sink {}", name, exception);
+            }
+          });
+          offsets.clear();
+        }
+      }
+    } catch (WakeupException e) {
+      if (running) {
+        LOGGER.error("Kafka Elasticsearch sink {} woken up unexpectedly", name, e);
+      }
+    } catch (Exception e) {
+      LOGGER.error("Kafka Elasticsearch sink {} failed", name, e);
+    } finally {
+      shutdown();
+    }
+  }
+
+  /**
+   * Adds partition records to the bulk indexer and sends them, pausing the partition until the
+   * bulk request is acknowledged.
+   */
+  private void send(TopicPartition topicPartition, List<ConsumerRecord<K, V>> records) {
+    final Timer.Context context = latency.time();
+    final List<CompletableFuture<Void>> futures = new ArrayList<>(records.size());
+    for (ConsumerRecord<K, V> record : records) {
+      final String id = documentIdFromKey ? documentId(record.key()) : null;
+      final V value = record.value();
+      if (value == null) {
+        // tombstones without document id are skipped
+        futures.add(id != null ? indexer.delete(index, type, id) : CompletableFuture.completedFuture(null));
+      } else if (value instanceof byte[]) {
+        futures.add(indexer.index(index, type, id, (byte[]) value));
+      } else if (value instanceof String) {
+        futures.add(indexer.index(index, type, id, ((String) value).getBytes(StandardCharsets.UTF_8)));
+      } else {
+        futures.add(indexer.index(index, type, id, value));
+      }
+    }
+    indexer.flush();
+    consumer.pause(Collections.singleton(topicPartition));
+
+    final Batch batch = new Batch(topicPartition, records, futures, context);
+    inFlight.put(topicPartition, batch);
+    batch.done =
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .whenComplete((ignored, exception) -> completed.add(batch));
+  }
+
+  private String documentId(K key) {
+    if (key == null) {
+      return null;
+    }
+    if (key instanceof byte[]) {
+      return new String((byte[]) key, StandardCharsets.UTF_8);
+    }
+    return key.toString();
+  }
+
+  /**
+   * Handles acknowledged batches: offsets are committed and partitions resumed, or rewound to
+   * retry failed records.
+   */
+  private void complete() {
+    Batch batch;
+    while ((batch = completed.poll()) != null) {
+      batch.context.stop();
+      if (!inFlight.remove(batch.topicPartition, batch)) {
+        // partition revoked while the batch was in-flight
+        continue;
+      }
+      final long retryOffset = handleResults(batch);
+      if (retryOffset < 0) {
+        offsets.put(batch.topicPartition, new OffsetAndMetadata(batch.nextOffset()));
+        consumer.resume(Collections.singleton(batch.topicPartition));
+      } else {
+        failures.mark();
+        if (retryOffset > batch.firstOffset()) {
+          offsets.put(batch.topicPartition, new OffsetAndMetadata(retryOffset));
+        }
+        consumer.seek(batch.topicPartition, retryOffset);
+        retries.put(batch.topicPartition, System.currentTimeMillis() + retryBackoffMs);
+      }
+    }
+  }
+
+  /**
+   * Checks batch results in offset order, passing permanent failures to the failure handler.
+   *
+   * @return offset of the first record to retry, or -1 if every record is indexed or handled
+   */
+  private long handleResults(Batch batch) {
+    final long now = System.currentTimeMillis();
+    for (int i = 0; i < batch.records.size(); i++) {
+      final ConsumerRecord<K, V> record = batch.records.get(i);
+      final Throwable error = error(batch.futures.get(i));
+      if (error == null) {
+        docs.mark();
+        lag.update(now - record.timestamp());
+      } else if (isRetryable(error)) {
+        LOGGER.warn("Error indexing {} from offset {} on sink {}, retrying in {} ms",
+            batch.topicPartition, record.offset(), name, retryBackoffMs, error);
+        return record.offset();
+      } else {
+        permanentFailures.mark();
+        try {
+          final Exception exception = error instanceof Exception ? (Exception) error : new RuntimeException(error);
+          failureHandler.handle(record, exception);
+        } catch (Exception e) {
+          LOGGER.warn("Error handling failed record {}@{} on sink {}, retrying in {} ms",
+              batch.topicPartition, record.offset(), name, retryBackoffMs, e);
+          return record.offset();
+        }
+      }
+    }
+    return -1L;
+  }
+
+  private static Throwable error(CompletableFuture<Void> future) {
+    if (!future.isCompletedExceptionally()) {
+      return null;
+    }
+    try {
+      future.join();
+      return null;
+    } catch (CompletionException e) {
+      return e.getCause();
+    } catch (Exception e) {
+      return e;
+    }
+  }
+
+  /**
+   * @return true for rejections and transport errors, false for failures that would fail again
+   */
+  private static boolean isRetryable(Throwable error) {
+    if (error instanceof ElasticsearchBulkException) {
+      return ((ElasticsearchBulkException) error).getStatus() == TOO_MANY_REQUESTS;
+    }
+    return error instanceof IOException && !(error instanceof JsonProcessingException);
+  }
+
+  private void resume() {
+    final long now = System.currentTimeMillis();
+    final Iterator<Map.Entry<TopicPartition, Long>> iterator = retries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      final Map.Entry<TopicPartition, Long> retry = iterator.next();
+      if (retry.getValue() <= now) {
+        consumer.resume(Collections.singleton(retry.getKey()));
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Waits for in-flight batches to be acknowledged, and commits their offsets.
+   */
+  private void completeInFlight() {
+    final CompletableFuture<?>[] pending =
+        inFlight.values().stream().map(batch -> batch.done).toArray(CompletableFuture[]::new);
+    try {
+      CompletableFuture.allOf(pending).get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      // failures are handled per batch
+    } catch (TimeoutException e) {
+      LOGGER.warn("Sink {} in-flight batches not acknowledged after {} ms", name, awaitTimeoutMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    complete();
+    if (!offsets.isEmpty()) {
+      consumer.commitSync(offsets);
+      offsets.clear();
+    }
+  }
+
+  private void shutdown() {
+    try {
+      completeInFlight();
+    } catch (Exception e) {
+      LOGGER.warn("Error committing last offsets on sink {}", name, e);
+    } finally {
+      running = false;
+      LOGGER.info("Kafka Elasticsearch sink {} stopped", name);
+    }
+  }
+
+  private class RebalanceListener implements ConsumerRebalanceListener {
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+      completeInFlight();
+      inFlight.keySet().removeAll(partitions);
+      partitions.forEach(retries::remove);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+    }
+  }
+
+  private class Batch {
+    final TopicPartition topicPartition;
+    final List<ConsumerRecord<K, V>> records;
+    final List<CompletableFuture<Void>> futures;
+    final Timer.Context context;
+    volatile CompletableFuture<Void> done;
+
+    Batch(TopicPartition topicPartition,
+          List<ConsumerRecord<K, V>> records,
+          List<CompletableFuture<Void>> futures,
+          Timer.Context context) {
+      this.topicPartition = topicPartition;
+      this.records = records;
+      this.futures = futures;
+      this.context = context;
+    }
+
+    long firstOffset() {
+      return records.get(0).offset();
+    }
+
+    long nextOffset() {
+      return records.get(records.size() - 1).offset() + 1;
+    }
+  }
+}
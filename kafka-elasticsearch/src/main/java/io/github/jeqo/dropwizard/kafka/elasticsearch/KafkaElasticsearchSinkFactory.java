@@ -0,0 +1,248 @@
+package io.github.jeqo.dropwizard.kafka.elasticsearch;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.setup.Environment;
+import io.github.jeqo.dropwizard.elasticsearch.ElasticsearchBulkIndexer;
+import io.github.jeqo.dropwizard.elasticsearch.ElasticsearchBulkIndexerFactory;
+import io.github.jeqo.dropwizard.elasticsearch.ElasticsearchClientFactory;
+import io.github.jeqo.dropwizard.elasticsearch.ElasticsearchIndex;
+import io.github.jeqo.dropwizard.kafka.KafkaClientFactory;
+import io.github.jeqo.dropwizard.kafka.KafkaRecordFailureHandler;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Dropwizard Factory to create managed {@link KafkaElasticsearchSink} instances, from topics and
+ * indices configured on {@link KafkaClientFactory} and {@link ElasticsearchClientFactory}.
+ */
+public class KafkaElasticsearchSinkFactory {
+
+  private static final String DEFAULT_TYPE = "doc";
+
+  @NotEmpty
+  @JsonProperty
+  private String name;
+
+  @NotEmpty
+  @JsonProperty
+  private String groupId;
+
+  @NotEmpty
+  @JsonProperty
+  private List<String> topics = new ArrayList<>();
+
+  @NotEmpty
+  @JsonProperty
+  private String index;
+
+  @JsonProperty
+  private String type;
+
+  @JsonProperty
+  private boolean documentIdFromKey = true;
+
+  @Min(0)
+  @JsonProperty
+  private long pollTimeoutMs = 100L;
+
+  @Min(0)
+  @JsonProperty
+  private long retryBackoffMs = 1000L;
+
+  @Min(0)
+  @JsonProperty
+  private long awaitTimeoutMs = 30000L;
+
+  @Valid
+  @NotNull
+  @JsonProperty
+  private ElasticsearchBulkIndexerFactory bulk = defaultBulk();
+
+  private static ElasticsearchBulkIndexerFactory defaultBulk() {
+    final ElasticsearchBulkIndexerFactory bulk = new ElasticsearchBulkIndexerFactory();
+    bulk.setConcurrentRequests(4);
+    return bulk;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getGroupId() {
+    return groupId;
+  }
+
+  public void setGroupId(String groupId) {
+    this.groupId = groupId;
+  }
+
+  public List<String> getTopics() {
+    return topics;
+  }
+
+  public void setTopics(List<String> topics) {
+    this.topics = topics;
+  }
+
+  public String getIndex() {
+    return index;
+  }
+
+  public void setIndex(String index) {
+    this.index = index;
+  }
+
+  public String getType() {
+    return type;
+  }
+
+  public void setType(String type) {
+    this.type = type;
+  }
+
+  public boolean isDocumentIdFromKey() {
+    return documentIdFromKey;
+  }
+
+  public void setDocumentIdFromKey(boolean documentIdFromKey) {
+    this.documentIdFromKey = documentIdFromKey;
+  }
+
+  public long getPollTimeoutMs() {
+    return pollTimeoutMs;
+  }
+
+  public void setPollTimeoutMs(long pollTimeoutMs) {
+    this.pollTimeoutMs = pollTimeoutMs;
+  }
+
+  public long getRetryBackoffMs() {
+    return retryBackoffMs;
+  }
+
+  public void setRetryBackoffMs(long retryBackoffMs) {
+    this.retryBackoffMs = retryBackoffMs;
+  }
+
+  public long getAwaitTimeoutMs() {
+    return awaitTimeoutMs;
+  }
+
+  public void setAwaitTimeoutMs(long awaitTimeoutMs) {
+    this.awaitTimeoutMs = awaitTimeoutMs;
+  }
+
+  public ElasticsearchBulkIndexerFactory getBulk() {
+    return bulk;
+  }
+
+  public void setBulk(ElasticsearchBulkIndexerFactory bulk) {
+    this.bulk = bulk;
+  }
+
+  /**
+   * Creates a managed {@link KafkaElasticsearchSink}, logging and skipping records failing with
+   * permanent errors.
+   *
+   * @see #build(Environment, KafkaClientFactory, Deserializer, Deserializer, Properties, ElasticsearchClientFactory, KafkaRecordFailureHandler)
+   */
+  public <K, V> KafkaElasticsearchSink<K, V> build(Environment environment,
+                                                   KafkaClientFactory<K, V> kafkaClientFactory,
+                                                   Deserializer<K> keyDeserializer,
+                                                   Deserializer<V> valueDeserializer,
+                                                   Properties consumerProperties,
+                                                   ElasticsearchClientFactory elasticsearchClientFactory) {
+    return build(
+        environment,
+        kafkaClientFactory,
+        keyDeserializer,
+        valueDeserializer,
+        consumerProperties,
+        elasticsearchClientFactory,
+        KafkaRecordFailureHandler.logging());
+  }
+
+  /**
+   * Creates a managed {@link KafkaElasticsearchSink}. {@code index} has to be declared on the
+   * Elasticsearch client factory; when {@code type} is not set, its first mapping is used.
+   * Documents are sent with the client factory shared client. The bulk indexer is named after the
+   * sink, unless {@code bulk.name} is set.
+   *
+   * @param environment                Dropwizard environment
+   * @param kafkaClientFactory         Kafka Client Factory
+   * @param keyDeserializer            Kafka Key Deserializer
+   * @param valueDeserializer          Kafka Value Deserializer
+   * @param consumerProperties         Consumer configuration properties
+   * @param elasticsearchClientFactory Elasticsearch Client Factory
+   * @param failureHandler             Handler of records failing with permanent errors, e.g.
+   *                                   routing them to a dead letter topic
+   * @return Dropwizard managed Kafka Elasticsearch Sink
+   */
+  public <K, V> KafkaElasticsearchSink<K, V> build(Environment environment,
+                                                   KafkaClientFactory<K, V> kafkaClientFactory,
+                                                   Deserializer<K> keyDeserializer,
+                                                   Deserializer<V> valueDeserializer,
+                                                   Properties consumerProperties,
+                                                   ElasticsearchClientFactory elasticsearchClientFactory,
+                                                   KafkaRecordFailureHandler<K, V> failureHandler) {
+    final ElasticsearchIndex elasticsearchIndex =
+        elasticsearchClientFactory.getIndices().stream()
+            .filter(declared -> index.equals(declared.getName()))
+            .findFirst()
+            .orElseThrow(() ->
+                new IllegalArgumentException("Index " + index + " is not declared on Elasticsearch client factory"));
+    final String documentType =
+        type != null
+            ? type
+            : elasticsearchIndex.getMappings().isEmpty()
+            ? DEFAULT_TYPE
+            : elasticsearchIndex.getMappings().get(0).getName();
+
+    final Properties consumerConfigs = new Properties();
+    consumerConfigs.putAll(consumerProperties);
+    consumerConfigs.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+    consumerConfigs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+
+    if (bulk.getName() == null) {
+      bulk.setName(name);
+    }
+
+    // consumer and indexer are registered first, so they are closed once the sink is stopped
+    final KafkaConsumer<K, V> consumer =
+        kafkaClientFactory.buildConsumer(environment, keyDeserializer, valueDeserializer, consumerConfigs);
+    final ElasticsearchBulkIndexer indexer =
+        bulk.build(environment, elasticsearchClientFactory.buildLowLevelClient(environment));
+
+    final KafkaElasticsearchSink<K, V> sink =
+        new KafkaElasticsearchSink<>(
+            name,
+            consumer,
+            topics,
+            indexer,
+            elasticsearchIndex.getName(),
+            documentType,
+            documentIdFromKey,
+            pollTimeoutMs,
+            retryBackoffMs,
+            awaitTimeoutMs,
+            failureHandler,
+            environment.metrics());
+
+    environment.lifecycle().manage(sink);
+
+    return sink;
+  }
+}
@@ -0,0 +1,227 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ExtendedSerializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Non-blocking facade over a Kafka Producer. In-flight records and bytes are bounded, so callers
+ * are never blocked by producer buffer exhaustion: when limits are reached the configured
+ * {@link OverflowPolicy} is applied.
+ * <p>
+ * Records are serialized before being sent, to account for their size. Returned futures are
+ * completed on a completion executor, not on the producer I/O thread, so dependent stages can send
+ * records (even under {@link OverflowPolicy#BLOCK}) without stalling acknowledgements.
+ */
+public class KafkaAsyncProducer<K, V> implements Closeable {
+
+  /**
+   * What to do with a record when in-flight limits are reached.
+   */
+  public enum OverflowPolicy {
+    /**
+     * Complete the returned future exceptionally with {@link RejectedExecutionException}.
+     */
+    FAIL,
+    /**
+     * Drop the record, completing the returned future with {@code null}.
+     */
+    SHED,
+    /**
+     * Park the caller until there is capacity, or fail when the block timeout is reached.
+     */
+    BLOCK
+  }
+
+  private final Producer<byte[], byte[]> producer;
+  private final ExtendedSerializer<K> keySerializer;
+  private final ExtendedSerializer<V> valueSerializer;
+  private final OverflowPolicy overflowPolicy;
+  private final long blockTimeoutMs;
+  private final int maxInFlightRecords;
+  private final int maxInFlightBytes;
+  private final Executor completionExecutor;
+
+  private final Semaphore records;
+  private final Semaphore bytes;
+
+  private final Meter rejected;
+  private final Meter shed;
+  private final Timer waits;
+
+  KafkaAsyncProducer(String name,
+                     Producer<byte[], byte[]> producer,
+                     Serializer<K> keySerializer,
+                     Serializer<V> valueSerializer,
+                     OverflowPolicy overflowPolicy,
+                     int maxInFlightRecords,
+                     int maxInFlightBytes,
+                     long blockTimeoutMs,
+                     Executor completionExecutor,
+                     MetricRegistry metrics) {
+    this.producer = producer;
+    this.keySerializer = ExtendedSerializer.Wrapper.ensureExtended(keySerializer);
+    this.valueSerializer = ExtendedSerializer.Wrapper.ensureExtended(valueSerializer);
+    this.overflowPolicy = overflowPolicy;
+    this.maxInFlightRecords = maxInFlightRecords;
+    this.maxInFlightBytes = maxInFlightBytes;
+    this.blockTimeoutMs = blockTimeoutMs;
+    this.completionExecutor = completionExecutor;
+    this.records = new Semaphore(maxInFlightRecords);
+    this.bytes = new Semaphore(maxInFlightBytes);
+
+    metrics.register(name(KafkaAsyncProducer.class, name, "in-flight-records"),
+        (Gauge<Integer>) () -> maxInFlightRecords - records.availablePermits());
+    metrics.register(name(KafkaAsyncProducer.class, name, "in-flight-bytes"),
+        (Gauge<Integer>) () -> maxInFlightBytes - bytes.availablePermits());
+    this.rejected = metrics.meter(name(KafkaAsyncProducer.class, name, "rejected"));
+    this.shed = metrics.meter(name(KafkaAsyncProducer.class, name, "shed"));
+    this.waits = metrics.timer(name(KafkaAsyncProducer.class, name, "waits"));
+  }
+
+  /**
+   * Sends a record without blocking on producer buffer, unless {@link OverflowPolicy#BLOCK} is
+   * configured and in-flight limits are reached.
+   *
+   * @param record Kafka record
+   * @return future completed when the record is acknowledged
+   */
+  public CompletableFuture<RecordMetadata> send(ProducerRecord<K, V> record) {
+    final CompletableFuture<RecordMetadata> future = new CompletableFuture<>();
+
+    final byte[] key;
+    final byte[] value;
+    try {
+      key = keySerializer.serialize(record.topic(), record.headers(), record.key());
+      value = valueSerializer.serialize(record.topic(), record.headers(), record.value());
+    } catch (Exception e) {
+      future.completeExceptionally(e);
+      return future;
+    }
+
+    final int size = Math.min(size(key, value, record), maxInFlightBytes);
+    try {
+      if (!acquire(size)) {
+        if (overflowPolicy == OverflowPolicy.SHED) {
+          shed.mark();
+          future.complete(null);
+        } else {
+          rejected.mark();
+          future.completeExceptionally(
+              new RejectedExecutionException("Kafka producer in-flight limits reached"));
+        }
+        return future;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      future.completeExceptionally(e);
+      return future;
+    }
+
+    try {
+      producer.send(
+          new ProducerRecord<>(
+              record.topic(),
+              record.partition(),
+              record.timestamp(),
+              key,
+              value,
+              record.headers()),
+          (metadata, exception) -> {
+            release(size);
+            complete(future, metadata, exception);
+          });
+    } catch (Exception e) {
+      release(size);
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  /**
+   * Flushes the underlying producer.
+   */
+  public void flush() {
+    producer.flush();
+  }
+
+  @Override
+  public void close() {
+    producer.close();
+  }
+
+  private boolean acquire(int size) throws InterruptedException {
+    if (overflowPolicy != OverflowPolicy.BLOCK) {
+      if (!records.tryAcquire()) {
+        return false;
+      }
+      if (!bytes.tryAcquire(size)) {
+        records.release();
+        return false;
+      }
+      return true;
+    }
+
+    final Timer.Context context = waits.time();
+    try {
+      final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+      if (!records.tryAcquire(blockTimeoutMs, TimeUnit.MILLISECONDS)) {
+        return false;
+      }
+      if (!bytes.tryAcquire(size, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+        records.release();
+        return false;
+      }
+      return true;
+    } finally {
+      context.stop();
+    }
+  }
+
+  private void complete(CompletableFuture<RecordMetadata> future,
+                        RecordMetadata metadata,
+                        Exception exception) {
+    final Runnable completion = () -> {
+      if (exception != null) {
+        future.completeExceptionally(exception);
+      } else {
+        future.complete(metadata);
+      }
+    };
+    try {
+      completionExecutor.execute(completion);
+    } catch (RejectedExecutionException e) {
+      // executor already stopped, e.g. acknowledgements flushed on close
+      completion.run();
+    }
+  }
+
+  private void release(int size) {
+    bytes.release(size);
+    records.release();
+  }
+
+  private static int size(byte[] key, byte[] value, ProducerRecord<?, ?> record) {
+    int size = (key == null ? 0 : key.length) + (value == null ? 0 : value.length);
+    for (Header header : record.headers()) {
+      size += header.key().length() + (header.value() == null ? 0 : header.value().length);
+    }
+    return size;
+  }
+}
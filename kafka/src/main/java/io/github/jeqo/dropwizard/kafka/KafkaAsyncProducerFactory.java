@@ -0,0 +1,166 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Serializer;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Dropwizard Factory to create managed {@link KafkaAsyncProducer} instances.
+ */
+public class KafkaAsyncProducerFactory {
+
+  @NotEmpty
+  @JsonProperty
+  private String name;
+
+  @NotNull
+  @JsonProperty
+  private KafkaAsyncProducer.OverflowPolicy overflowPolicy = KafkaAsyncProducer.OverflowPolicy.FAIL;
+
+  @Min(1)
+  @JsonProperty
+  private int maxInFlightRecords = 10000;
+
+  @Min(1)
+  @JsonProperty
+  private int maxInFlightBytes = 16 * 1024 * 1024;
+
+  @Min(0)
+  @JsonProperty
+  private long blockTimeoutMs = 100L;
+
+  @Min(0)
+  @JsonProperty
+  private long maxBlockMs = 1000L;
+
+  @Min(1)
+  @JsonProperty
+  private int completionThreads = 1;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public KafkaAsyncProducer.OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  public void setOverflowPolicy(KafkaAsyncProducer.OverflowPolicy overflowPolicy) {
+    this.overflowPolicy = overflowPolicy;
+  }
+
+  public int getMaxInFlightRecords() {
+    return maxInFlightRecords;
+  }
+
+  public void setMaxInFlightRecords(int maxInFlightRecords) {
+    this.maxInFlightRecords = maxInFlightRecords;
+  }
+
+  public int getMaxInFlightBytes() {
+    return maxInFlightBytes;
+  }
+
+  public void setMaxInFlightBytes(int maxInFlightBytes) {
+    this.maxInFlightBytes = maxInFlightBytes;
+  }
+
+  public long getBlockTimeoutMs() {
+    return blockTimeoutMs;
+  }
+
+  public void setBlockTimeoutMs(long blockTimeoutMs) {
+    this.blockTimeoutMs = blockTimeoutMs;
+  }
+
+  public long getMaxBlockMs() {
+    return maxBlockMs;
+  }
+
+  public void setMaxBlockMs(long maxBlockMs) {
+    this.maxBlockMs = maxBlockMs;
+  }
+
+  public int getCompletionThreads() {
+    return completionThreads;
+  }
+
+  public void setCompletionThreads(int completionThreads) {
+    this.completionThreads = completionThreads;
+  }
+
+  /**
+   * Creates a managed {@link KafkaAsyncProducer} using a producer created by
+   * {@link KafkaClientFactory}. Producer's {@code max.block.ms} defaults to {@code maxBlockMs},
+   * bounding how long a send waits on metadata on the caller thread, and {@code maxInFlightBytes}
+   * has to fit in producer's {@code buffer.memory}, so sends are not blocked by buffer exhaustion.
+   *
+   * @param environment     Dropwizard environment
+   * @param clientFactory   Kafka Client Factory
+   * @param keySerializer   Kafka Key Serializer
+   * @param valueSerializer Kafka Value Serializer
+   * @param properties      Producer configuration properties
+   * @return Dropwizard managed Kafka Async Producer
+   */
+  public <K, V> KafkaAsyncProducer<K, V> build(Environment environment,
+                                               KafkaClientFactory<K, V> clientFactory,
+                                               Serializer<K> keySerializer,
+                                               Serializer<V> valueSerializer,
+                                               Properties properties) {
+    final Properties configs = new Properties();
+    configs.putAll(properties);
+    configs.putIfAbsent(ProducerConfig.MAX_BLOCK_MS_CONFIG, String.valueOf(maxBlockMs));
+    final long bufferMemory =
+        Long.parseLong(configs.getOrDefault(ProducerConfig.BUFFER_MEMORY_CONFIG, 32L * 1024 * 1024).toString());
+    if (maxInFlightBytes > bufferMemory) {
+      throw new IllegalArgumentException(
+          "maxInFlightBytes (" + maxInFlightBytes + ") has to be lower than producer buffer.memory (" + bufferMemory + ")");
+    }
+
+    // registered before the producer, so it is stopped once pending acknowledgements are flushed
+    final ExecutorService completionExecutor =
+        environment.lifecycle()
+            .executorService("kafka-async-producer-" + name + "-%d")
+            .minThreads(completionThreads)
+            .maxThreads(completionThreads)
+            .build();
+
+    final KafkaAsyncProducer<K, V> producer =
+        new KafkaAsyncProducer<>(
+            name,
+            clientFactory.createByteArrayProducer(environment, configs),
+            keySerializer,
+            valueSerializer,
+            overflowPolicy,
+            maxInFlightRecords,
+            maxInFlightBytes,
+            blockTimeoutMs,
+            completionExecutor,
+            environment.metrics());
+
+    environment.lifecycle().manage(new Managed() {
+      @Override
+      public void start() {
+      }
+
+      @Override
+      public void stop() {
+        producer.close();
+      }
+    });
+
+    return producer;
+  }
+}
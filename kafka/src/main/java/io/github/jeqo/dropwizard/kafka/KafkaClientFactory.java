@@ -7,23 +7,28 @@ import io.opentracing.Tracer;
 import io.opentracing.contrib.kafka.TracingKafkaConsumer;
 import io.opentracing.contrib.kafka.TracingKafkaProducer;
 import io.opentracing.util.GlobalTracer;
+import org.apache.kafka.clients.CommonClientConfigs;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.KafkaAdminClient;
-import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
-import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -33,6 +38,8 @@ public class KafkaClientFactory<K, V> {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(KafkaClientFactory.class);
 
+  private static final AtomicInteger CLIENT_ID_SEQUENCE = new AtomicInteger();
+
   @Valid
   @NotNull
   private String bootstrapServers;
@@ -41,6 +48,25 @@ public class KafkaClientFactory<K, V> {
   @JsonProperty
   private List<KafkaTopic> topics = new ArrayList<>();
 
+  @Min(1)
+  @JsonProperty
+  private long prepareTopicsTimeoutMs = 60000L;
+
+  @JsonProperty
+  private boolean metricsEnabled = false;
+
+  @Valid
+  @NotNull
+  @JsonProperty
+  private KafkaTracingSamplerFactory tracingSampler = new KafkaTracingSamplerFactory();
+
+  @Valid
+  @NotNull
+  @JsonProperty
+  private KafkaFlowControlFactory flowControl = new KafkaFlowControlFactory();
+
+  private KafkaProducerRegistry producerRegistry;
+
   public String getBootstrapServers() {
     return bootstrapServers;
   }
@@ -57,6 +83,38 @@ public class KafkaClientFactory<K, V> {
     this.topics = topics;
   }
 
+  public long getPrepareTopicsTimeoutMs() {
+    return prepareTopicsTimeoutMs;
+  }
+
+  public void setPrepareTopicsTimeoutMs(long prepareTopicsTimeoutMs) {
+    this.prepareTopicsTimeoutMs = prepareTopicsTimeoutMs;
+  }
+
+  public boolean isMetricsEnabled() {
+    return metricsEnabled;
+  }
+
+  public void setMetricsEnabled(boolean metricsEnabled) {
+    this.metricsEnabled = metricsEnabled;
+  }
+
+  public KafkaTracingSamplerFactory getTracingSampler() {
+    return tracingSampler;
+  }
+
+  public void setTracingSampler(KafkaTracingSamplerFactory tracingSampler) {
+    this.tracingSampler = tracingSampler;
+  }
+
+  public KafkaFlowControlFactory getFlowControl() {
+    return flowControl;
+  }
+
+  public void setFlowControl(KafkaFlowControlFactory flowControl) {
+    this.flowControl = flowControl;
+  }
+
   /**
    * Creates a {@link KafkaConsumer} using configuration properties.
    *
@@ -70,12 +128,8 @@ public class KafkaClientFactory<K, V> {
                                            Deserializer<K> keyDeserializer,
                                            Deserializer<V> valueDeserializer,
                                            Properties properties) {
-    final Properties configs = new Properties();
-    configs.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-    configs.putAll(properties);
-
     final KafkaConsumer<K, V> kafkaConsumer =
-        new KafkaConsumer<>(configs, keyDeserializer, valueDeserializer);
+        createConsumer(environment, keyDeserializer, valueDeserializer, properties);
 
     environment.lifecycle().manage(new Managed() {
       @Override
@@ -105,12 +159,8 @@ public class KafkaClientFactory<K, V> {
                                                          Deserializer<K> keyDeserializer,
                                                          Deserializer<V> valueDeserializer,
                                                          Properties properties) {
-    final Properties configs = new Properties();
-    configs.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-    configs.putAll(properties);
-
     final KafkaConsumer<K, V> kafkaConsumer =
-        new KafkaConsumer<>(configs, keyDeserializer, valueDeserializer);
+        createConsumer(environment, keyDeserializer, valueDeserializer, properties);
     final Tracer tracer = GlobalTracer.get();
     final TracingKafkaConsumer<K, V> tracingKafkaConsumer = new TracingKafkaConsumer<>(kafkaConsumer, tracer);
 
@@ -128,6 +178,81 @@ public class KafkaClientFactory<K, V> {
     return tracingKafkaConsumer;
   }
 
+  /**
+   * Creates a Kafka Consumer tracing only records selected by {@code tracingSampler} rules.
+   * Traced and skipped records are counted per topic rule, named by {@code client.id} property,
+   * generated if not set.
+   * You will need to have a {@link Tracer} instance registered on {@link GlobalTracer} helper.
+   *
+   * @param environment       Dropwizard environment
+   * @param keyDeserializer   Kafka Key Deserializer
+   * @param valueDeserializer Kafka Value Deserializer
+   * @param properties        Configuration properties
+   * @return Dropwizard managed sampled tracing Kafka Consumer instance
+   */
+  public KafkaSampledTracingConsumer<K, V> buildSampledTracingConsumer(Environment environment,
+                                                                       Deserializer<K> keyDeserializer,
+                                                                       Deserializer<V> valueDeserializer,
+                                                                       Properties properties) {
+    final Properties configs = withClientId(properties, "consumer");
+    final KafkaConsumer<K, V> kafkaConsumer =
+        createConsumer(environment, keyDeserializer, valueDeserializer, configs);
+    final KafkaTracingSampler sampler =
+        tracingSampler.build(environment.metrics(), configs.getProperty(CommonClientConfigs.CLIENT_ID_CONFIG));
+    final KafkaSampledTracingConsumer<K, V> tracingConsumer =
+        new KafkaSampledTracingConsumer<>(kafkaConsumer, GlobalTracer.get(), sampler);
+
+    environment.lifecycle().manage(new Managed() {
+      @Override
+      public void start() {
+      }
+
+      @Override
+      public void stop() {
+        tracingConsumer.close();
+      }
+    });
+
+    return tracingConsumer;
+  }
+
+  /**
+   * Creates a Kafka Consumer pausing partitions with too many records or bytes buffered, per
+   * {@code flowControl} watermarks, until they are released. Flow control metrics are named by
+   * {@code client.id} property, generated if not set.
+   *
+   * @param environment       Dropwizard environment
+   * @param keyDeserializer   Kafka Key Deserializer
+   * @param valueDeserializer Kafka Value Deserializer
+   * @param properties        Configuration properties
+   * @return Dropwizard managed flow controlled Kafka Consumer instance
+   */
+  public KafkaFlowControlledConsumer<K, V> buildFlowControlledConsumer(Environment environment,
+                                                                      Deserializer<K> keyDeserializer,
+                                                                      Deserializer<V> valueDeserializer,
+                                                                      Properties properties) {
+    final Properties configs = withClientId(properties, "consumer");
+    final KafkaConsumer<K, V> kafkaConsumer =
+        createConsumer(environment, keyDeserializer, valueDeserializer, configs);
+    final KafkaFlowControl control =
+        flowControl.build(environment.metrics(), configs.getProperty(CommonClientConfigs.CLIENT_ID_CONFIG));
+    final KafkaFlowControlledConsumer<K, V> flowControlledConsumer =
+        new KafkaFlowControlledConsumer<>(kafkaConsumer, control);
+
+    environment.lifecycle().manage(new Managed() {
+      @Override
+      public void start() {
+      }
+
+      @Override
+      public void stop() {
+        flowControlledConsumer.close();
+      }
+    });
+
+    return flowControlledConsumer;
+  }
+
   /**
    * Creates a {@link KafkaProducer} using configuration properties.
    *
@@ -141,10 +266,7 @@ public class KafkaClientFactory<K, V> {
                                            Serializer<K> keySerializer,
                                            Serializer<V> valueSerializer,
                                            Properties properties) {
-    final Properties configs = new Properties();
-
-    configs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-    configs.putAll(properties);
+    final Properties configs = clientConfigs(environment, properties);
 
     KafkaProducer<K, V> producer =
         new KafkaProducer<>(configs, keySerializer, valueSerializer);
@@ -177,10 +299,7 @@ public class KafkaClientFactory<K, V> {
                                                          Serializer<K> keySerializer,
                                                          Serializer<V> valueSerializer,
                                                          Properties properties) {
-    final Properties configs = new Properties();
-
-    configs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
-    configs.putAll(properties);
+    final Properties configs = clientConfigs(environment, properties);
 
     final KafkaProducer<K, V> producer =
         new KafkaProducer<>(configs, keySerializer, valueSerializer);
@@ -202,6 +321,113 @@ public class KafkaClientFactory<K, V> {
     return tracingKafkaProducer;
   }
 
+  /**
+   * Creates a Kafka Producer tracing only records selected by {@code tracingSampler} rules.
+   * Traced and skipped records are counted per topic rule, named by {@code client.id} property,
+   * generated if not set.
+   * You will need to have a {@link Tracer} instance registered on {@link GlobalTracer} helper.
+   *
+   * @param environment     Dropwizard environment
+   * @param keySerializer   Kafka Key Serializer
+   * @param valueSerializer Kafka Value Serialized
+   * @param properties      Configuration properties
+   * @return Dropwizard managed sampled tracing Kafka Producer instance
+   */
+  public KafkaSampledTracingProducer<K, V> buildSampledTracingProducer(Environment environment,
+                                                                       Serializer<K> keySerializer,
+                                                                       Serializer<V> valueSerializer,
+                                                                       Properties properties) {
+    final Properties configs = clientConfigs(environment, withClientId(properties, "producer"));
+
+    final KafkaProducer<K, V> producer =
+        new KafkaProducer<>(configs, keySerializer, valueSerializer);
+    final KafkaTracingSampler sampler =
+        tracingSampler.build(environment.metrics(), configs.getProperty(CommonClientConfigs.CLIENT_ID_CONFIG));
+    final KafkaSampledTracingProducer<K, V> tracingProducer =
+        new KafkaSampledTracingProducer<>(producer, GlobalTracer.get(), sampler);
+
+    environment.lifecycle().manage(new Managed() {
+      @Override
+      public void start() {
+      }
+
+      @Override
+      public void stop() {
+        tracingProducer.close();
+      }
+    });
+
+    return tracingProducer;
+  }
+
+  /**
+   * Gets a {@link Producer} view over a Kafka Producer shared by all callers with the same
+   * configuration properties. Shared producers are closed once, when Dropwizard stops.
+   *
+   * @param environment     Dropwizard environment
+   * @param keySerializer   Kafka Key Serializer
+   * @param valueSerializer Kafka Value Serialized
+   * @param properties      Configuration properties
+   * @return Producer backed by a shared Kafka Producer instance
+   */
+  public Producer<K, V> buildSharedProducer(Environment environment,
+                                            Serializer<K> keySerializer,
+                                            Serializer<V> valueSerializer,
+                                            Properties properties) {
+    final Properties configs = clientConfigs(environment, properties);
+
+    return producerRegistry(environment).acquire(configs, keySerializer, valueSerializer);
+  }
+
+  /**
+   * Gets a {@link TracingKafkaProducer} over a Kafka Producer shared by all callers with the same
+   * configuration properties.
+   * You will need to have a {@link Tracer} instance registered on {@link GlobalTracer} helper.
+   *
+   * @param environment     Dropwizard environment
+   * @param keySerializer   Kafka Key Serializer
+   * @param valueSerializer Kafka Value Serialized
+   * @param properties      Configuration properties
+   * @return Tracing Producer backed by a shared Kafka Producer instance
+   */
+  public TracingKafkaProducer<K, V> buildSharedTracingProducer(Environment environment,
+                                                               Serializer<K> keySerializer,
+                                                               Serializer<V> valueSerializer,
+                                                               Properties properties) {
+    final Producer<K, V> producer =
+        buildSharedProducer(environment, keySerializer, valueSerializer, properties);
+    final Tracer tracer = GlobalTracer.get();
+    return new TracingKafkaProducer<>(producer, tracer);
+  }
+
+  /**
+   * Fetches metadata of configured topics, so connections to the cluster are established and
+   * metadata is cached before the first record is sent.
+   *
+   * @param producer Kafka Producer
+   */
+  public void warmUp(Producer<?, ?> producer) {
+    topics.forEach(topic -> producer.partitionsFor(topic.getName()));
+  }
+
+  /**
+   * Fetches metadata of configured topics, so connections to the cluster are established before
+   * the first poll.
+   *
+   * @param consumer Kafka Consumer
+   */
+  public void warmUp(Consumer<?, ?> consumer) {
+    topics.forEach(topic -> consumer.partitionsFor(topic.getName()));
+  }
+
+  private synchronized KafkaProducerRegistry producerRegistry(Environment environment) {
+    if (producerRegistry == null) {
+      producerRegistry = new KafkaProducerRegistry();
+      environment.lifecycle().manage(producerRegistry);
+    }
+    return producerRegistry;
+  }
+
   /**
    * Creates a managed Kafka Admin Client.
    *
@@ -225,6 +451,73 @@ public class KafkaClientFactory<K, V> {
     return adminClient;
   }
 
+  /**
+   * Creates a {@link KafkaConsumer} that is not managed by Dropwizard lifecycle. Used by components
+   * that own the consumer thread and are responsible for closing it.
+   */
+  KafkaConsumer<K, V> createConsumer(Environment environment,
+                                     Deserializer<K> keyDeserializer,
+                                     Deserializer<V> valueDeserializer,
+                                     Properties properties) {
+    final Properties configs = clientConfigs(environment, properties);
+    return new KafkaConsumer<>(configs, keyDeserializer, valueDeserializer);
+  }
+
+  /**
+   * Creates a {@link KafkaConsumer} reading serialized records, that is not managed by Dropwizard
+   * lifecycle. Used by components that do not deserialize records.
+   */
+  KafkaConsumer<byte[], byte[]> createByteArrayConsumer(Environment environment,
+                                                        Properties properties) {
+    final Properties configs = clientConfigs(environment, properties);
+    return new KafkaConsumer<>(configs, new ByteArrayDeserializer(), new ByteArrayDeserializer());
+  }
+
+  /**
+   * Creates a {@link KafkaProducer} that is not managed by Dropwizard lifecycle, with its own key
+   * and value types. Used by components that own the producer and are responsible for closing it.
+   */
+  <PK, PV> KafkaProducer<PK, PV> createProducer(Environment environment,
+                                                Serializer<PK> keySerializer,
+                                                Serializer<PV> valueSerializer,
+                                                Properties properties) {
+    final Properties configs = clientConfigs(environment, properties);
+    return new KafkaProducer<>(configs, keySerializer, valueSerializer);
+  }
+
+  /**
+   * Creates a {@link KafkaProducer} sending serialized records, that is not managed by Dropwizard
+   * lifecycle. Used by components that serialize records themselves.
+   */
+  KafkaProducer<byte[], byte[]> createByteArrayProducer(Environment environment,
+                                                        Properties properties) {
+    final Properties configs = clientConfigs(environment, properties);
+    return new KafkaProducer<>(configs, new ByteArraySerializer(), new ByteArraySerializer());
+  }
+
+  private Properties clientConfigs(Environment environment, Properties properties) {
+    final Properties configs = new Properties();
+    configs.put(CommonClientConfigs.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+    configs.putAll(properties);
+    if (metricsEnabled) {
+      KafkaMetricsReporter.register(configs, environment.metrics());
+    }
+    return configs;
+  }
+
+  /**
+   * Sets a unique {@code client.id} when not configured, as client metrics are named by it.
+   */
+  private static Properties withClientId(Properties properties, String prefix) {
+    if (properties.getProperty(CommonClientConfigs.CLIENT_ID_CONFIG) != null) {
+      return properties;
+    }
+    final Properties configs = new Properties();
+    configs.putAll(properties);
+    configs.put(CommonClientConfigs.CLIENT_ID_CONFIG, prefix + "-" + CLIENT_ID_SEQUENCE.incrementAndGet());
+    return configs;
+  }
+
   private AdminClient getAdminClient() {
     final Properties configs = new Properties();
     configs.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
@@ -232,14 +525,27 @@ public class KafkaClientFactory<K, V> {
   }
 
   /**
-   * Creates or updated Kafka Topics.
+   * Creates or updates Kafka Topics. Topics are described in a single pass and changes (new
+   * topics, configuration drift, partition increases) are applied in batches.
+   *
+   * @return Reconciliation result: topics changed, failures and duration
    */
-  public void prepareTopics() {
-    AdminClient adminClient = getAdminClient();
-    if (topics.isEmpty()) {
-      LOGGER.info("Topic list is empty");
+  public KafkaTopicsReconciler.Result prepareTopics() {
+    return prepareTopics(topics);
+  }
+
+  /**
+   * Creates or updates the given Kafka Topics. Used by components provisioning their own topics.
+   */
+  KafkaTopicsReconciler.Result prepareTopics(List<KafkaTopic> topics) {
+    final AdminClient adminClient = getAdminClient();
+    try {
+      if (topics.isEmpty()) {
+        LOGGER.info("Topic list is empty");
+      }
+      return new KafkaTopicsReconciler(adminClient, prepareTopicsTimeoutMs).reconcile(topics);
+    } finally {
+      adminClient.close();
     }
-    topics.forEach(topic -> topic.create(adminClient));
-    adminClient.close();
   }
 }
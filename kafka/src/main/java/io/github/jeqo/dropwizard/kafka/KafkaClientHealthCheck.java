@@ -1,24 +1,34 @@
 package io.github.jeqo.dropwizard.kafka;
 
-import com.codahale.metrics.health.HealthCheck;
+import io.github.jeqo.dropwizard.health.ScheduledHealthCheck;
 import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.DescribeClusterOptions;
 import org.apache.kafka.clients.admin.DescribeClusterResult;
 
+import java.util.concurrent.TimeUnit;
+
 /**
- *
+ * Checks that Kafka cluster nodes can be described. Executed in background, see
+ * {@link ScheduledHealthCheck}.
  */
-public class KafkaClientHealthCheck extends HealthCheck {
+public class KafkaClientHealthCheck extends ScheduledHealthCheck {
   private final AdminClient adminClient;
 
   public KafkaClientHealthCheck(AdminClient adminClient) {
+    this(adminClient, DEFAULT_INTERVAL_MS, DEFAULT_TIMEOUT_MS);
+  }
+
+  public KafkaClientHealthCheck(AdminClient adminClient, long intervalMs, long timeoutMs) {
+    super("kafka-client", intervalMs, timeoutMs);
     this.adminClient = adminClient;
   }
 
   @Override
-  protected Result check() throws Exception {
+  protected Result checkNow(long timeoutMs) throws Exception {
     try {
-      DescribeClusterResult response = adminClient.describeCluster();
-      final boolean nodesNotEmpty = !response.nodes().get().isEmpty();
+      DescribeClusterResult response =
+          adminClient.describeCluster(new DescribeClusterOptions().timeoutMs((int) timeoutMs));
+      final boolean nodesNotEmpty = !response.nodes().get(timeoutMs, TimeUnit.MILLISECONDS).isEmpty();
       final boolean clusterIdAvailable = response.clusterId() != null;
       if (clusterIdAvailable && nodesNotEmpty) {
         return Result.healthy();
@@ -0,0 +1,374 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.lifecycle.Managed;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Managed Kafka consumer that polls records on a dedicated thread and dispatches them to a pool of
+ * workers. Records are assigned to workers by partition or by key, so ordering is preserved per
+ * partition (or per key) while processing scales across workers.
+ * <p>
+ * Offsets are committed only when all records up to that offset have been processed. Records
+ * failing to process are passed to a {@link KafkaRecordFailureHandler}; if the handler fails, the
+ * engine stops without committing the record.
+ */
+public class KafkaConsumerEngine<K, V> implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaConsumerEngine.class);
+
+  /**
+   * How records are assigned to workers.
+   */
+  public enum Ordering {
+    /**
+     * All records from a partition are processed by the same worker, in offset order.
+     */
+    PARTITION,
+    /**
+     * All records with the same key are processed by the same worker, in offset order.
+     */
+    KEY
+  }
+
+  private final String name;
+  private final KafkaConsumer<K, V> consumer;
+  private final List<String> topics;
+  private final KafkaRecordProcessor<K, V> processor;
+  private final KafkaRecordFailureHandler<K, V> failureHandler;
+  private final Ordering ordering;
+  private final long pollTimeoutMs;
+  private final long commitIntervalMs;
+  private final long shutdownTimeoutMs;
+  private final int maxInFlightRecords;
+  private final MetricRegistry metrics;
+
+  private final ThreadPoolExecutor[] workers;
+  private final Map<TopicPartition, KafkaPartitionOffsets> offsets = new ConcurrentHashMap<>();
+  private final Map<TopicPartition, Timer> latencies = new ConcurrentHashMap<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final Meter failures;
+
+  private volatile boolean running = false;
+  private boolean paused = false;
+  private long lastCommitMs = 0L;
+  private Thread pollThread;
+
+  KafkaConsumerEngine(String name,
+                      KafkaConsumer<K, V> consumer,
+                      List<String> topics,
+                      KafkaRecordProcessor<K, V> processor,
+                      KafkaRecordFailureHandler<K, V> failureHandler,
+                      Ordering ordering,
+                      int workers,
+                      int maxInFlightRecords,
+                      long pollTimeoutMs,
+                      long commitIntervalMs,
+                      long shutdownTimeoutMs,
+                      MetricRegistry metrics) {
+    this.name = name;
+    this.consumer = consumer;
+    this.topics = topics;
+    this.processor = processor;
+    this.failureHandler = failureHandler;
+    this.ordering = ordering;
+    this.maxInFlightRecords = maxInFlightRecords;
+    this.pollTimeoutMs = pollTimeoutMs;
+    this.commitIntervalMs = commitIntervalMs;
+    this.shutdownTimeoutMs = shutdownTimeoutMs;
+    this.metrics = metrics;
+
+    this.workers = new ThreadPoolExecutor[workers];
+    for (int i = 0; i < workers; i++) {
+      final String threadName = "kafka-consumer-engine-" + name + "-worker-" + i;
+      this.workers[i] =
+          new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+              runnable -> new Thread(runnable, threadName));
+    }
+
+    metrics.register(name(KafkaConsumerEngine.class, name, "queue-depth"),
+        (Gauge<Integer>) this::queueDepth);
+    metrics.register(name(KafkaConsumerEngine.class, name, "in-flight"),
+        (Gauge<Integer>) inFlight::get);
+    this.failures = metrics.meter(name(KafkaConsumerEngine.class, name, "failures"));
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    pollThread = new Thread(this::pollLoop, "kafka-consumer-engine-" + name);
+    pollThread.start();
+  }
+
+  @Override
+  public void stop() throws Exception {
+    running = false;
+    consumer.wakeup();
+    if (pollThread != null) {
+      // shutdown waits up to shutdownTimeoutMs for in-flight records, then commits
+      pollThread.join(2 * shutdownTimeoutMs + pollTimeoutMs);
+      if (pollThread.isAlive()) {
+        LOGGER.warn("Kafka consumer engine {} did not stop in time", name);
+      }
+    }
+  }
+
+  /**
+   * @return true while the engine is consuming. False once stopped, after a failure handler
+   * error, or if the poll loop failed.
+   */
+  public boolean isRunning() {
+    return running && pollThread != null && pollThread.isAlive();
+  }
+
+  /**
+   * @return number of records waiting on worker queues.
+   */
+  public int queueDepth() {
+    int depth = 0;
+    for (ThreadPoolExecutor worker : workers) {
+      depth += worker.getQueue().size();
+    }
+    return depth;
+  }
+
+  /**
+   * @return number of records dispatched and not yet processed.
+   */
+  public int inFlight() {
+    return inFlight.get();
+  }
+
+  private void pollLoop() {
+    try {
+      consumer.subscribe(topics, new RebalanceListener());
+      while (running) {
+        final ConsumerRecords<K, V> records = consumer.poll(pollTimeoutMs);
+        for (ConsumerRecord<K, V> record : records) {
+          dispatch(record);
+        }
+        controlFlow();
+        maybeCommit();
+      }
+    } catch (WakeupException e) {
+      if (running) {
+        LOGGER.error("Kafka consumer engine {} woken up unexpectedly", name, e);
+      }
+    } catch (Exception e) {
+      LOGGER.error("Kafka consumer engine {} failed", name, e);
+    } finally {
+      shutdown();
+    }
+  }
+
+  private void dispatch(ConsumerRecord<K, V> record) {
+    final TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+    final KafkaPartitionOffsets partitionOffsets =
+        offsets.computeIfAbsent(topicPartition, tp -> new KafkaPartitionOffsets());
+    final Timer latency = latencies.computeIfAbsent(topicPartition, tp -> metrics.timer(timerName(tp)));
+
+    partitionOffsets.dispatched(record.offset());
+    inFlight.incrementAndGet();
+
+    workers[worker(record)].execute(() -> {
+      final Timer.Context context = latency.time();
+      boolean completed = true;
+      try {
+        processor.process(record);
+      } catch (Exception e) {
+        failures.mark();
+        completed = handleFailure(record, e);
+      } finally {
+        context.stop();
+        if (completed) {
+          partitionOffsets.completed(record.offset());
+        } else {
+          partitionOffsets.failed(record.offset());
+        }
+        inFlight.decrementAndGet();
+      }
+    });
+  }
+
+  /**
+   * @return false if the failure handler failed, stopping the engine
+   */
+  private boolean handleFailure(ConsumerRecord<K, V> record, Exception exception) {
+    try {
+      failureHandler.handle(record, exception);
+      return true;
+    } catch (Exception e) {
+      LOGGER.error("Error handling failed record {}-{}@{}, stopping engine {}",
+          record.topic(), record.partition(), record.offset(), name, e);
+      running = false;
+      consumer.wakeup();
+      return false;
+    }
+  }
+
+  private String timerName(TopicPartition topicPartition) {
+    return name(KafkaConsumerEngine.class, name, topicPartition.topic(), String.valueOf(topicPartition.partition()), "processing");
+  }
+
+  private int worker(ConsumerRecord<K, V> record) {
+    final int hash;
+    final K key = record.key();
+    if (ordering == Ordering.KEY && key instanceof byte[]) {
+      hash = Arrays.hashCode((byte[]) key);
+    } else if (ordering == Ordering.KEY && key != null) {
+      hash = key.hashCode();
+    } else {
+      hash = Objects.hash(record.topic(), record.partition());
+    }
+    return Math.floorMod(hash, workers.length);
+  }
+
+  /**
+   * Pauses fetching when too many records are in-flight, and resumes once workers catch up. The
+   * poll loop keeps running so the consumer stays alive in its group.
+   */
+  private void controlFlow() {
+    final int current = inFlight.get();
+    if (!paused && current >= maxInFlightRecords) {
+      consumer.pause(consumer.assignment());
+      paused = true;
+    } else if (paused && current <= maxInFlightRecords / 2) {
+      consumer.resume(consumer.paused());
+      paused = false;
+    }
+  }
+
+  private void maybeCommit() {
+    final long now = System.currentTimeMillis();
+    if (now - lastCommitMs >= commitIntervalMs) {
+      lastCommitMs = now;
+      final Map<TopicPartition, OffsetAndMetadata> toCommit = committable(offsets.keySet());
+      if (!toCommit.isEmpty()) {
+        consumer.commitAsync(toCommit, (committed, exception) -> {
+          if (exception != null) {
+            LOGGER.warn("Error committing offsets {}", committed, exception);
+          } else {
+            markCommitted(committed);
+          }
+        });
+      }
+    }
+  }
+
+  private void commitSync(Collection<TopicPartition> partitions) {
+    final Map<TopicPartition, OffsetAndMetadata> toCommit = committable(partitions);
+    if (!toCommit.isEmpty()) {
+      try {
+        consumer.commitSync(toCommit);
+        markCommitted(toCommit);
+      } catch (Exception e) {
+        LOGGER.warn("Error committing offsets {}", toCommit, e);
+      }
+    }
+  }
+
+  private Map<TopicPartition, OffsetAndMetadata> committable(Collection<TopicPartition> partitions) {
+    final Map<TopicPartition, OffsetAndMetadata> toCommit = new HashMap<>();
+    for (TopicPartition topicPartition : partitions) {
+      final KafkaPartitionOffsets partitionOffsets = offsets.get(topicPartition);
+      if (partitionOffsets != null) {
+        final long offset = partitionOffsets.committable();
+        if (offset >= 0) {
+          toCommit.put(topicPartition, new OffsetAndMetadata(offset));
+        }
+      }
+    }
+    return toCommit;
+  }
+
+  private void markCommitted(Map<TopicPartition, OffsetAndMetadata> committed) {
+    committed.forEach((topicPartition, offsetAndMetadata) -> {
+      final KafkaPartitionOffsets partitionOffsets = offsets.get(topicPartition);
+      if (partitionOffsets != null) {
+        partitionOffsets.committed(offsetAndMetadata.offset());
+      }
+    });
+  }
+
+  /**
+   * Waits until records dispatched from the given partitions are processed, or shutdown timeout
+   * is reached.
+   */
+  private void awaitCompletion(Collection<TopicPartition> partitions) {
+    final long deadline = System.currentTimeMillis() + shutdownTimeoutMs;
+    for (TopicPartition topicPartition : partitions) {
+      final KafkaPartitionOffsets partitionOffsets = offsets.get(topicPartition);
+      while (partitionOffsets != null
+          && partitionOffsets.pending() > 0
+          && System.currentTimeMillis() < deadline) {
+        try {
+          Thread.sleep(10L);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private void shutdown() {
+    try {
+      awaitCompletion(offsets.keySet());
+      commitSync(offsets.keySet());
+    } finally {
+      for (ThreadPoolExecutor worker : workers) {
+        // records still queued are not committed, and will be consumed again
+        worker.shutdownNow();
+      }
+      consumer.close();
+      LOGGER.info("Kafka consumer engine {} stopped", name);
+    }
+  }
+
+  private class RebalanceListener implements ConsumerRebalanceListener {
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+      awaitCompletion(partitions);
+      commitSync(partitions);
+      for (TopicPartition topicPartition : partitions) {
+        offsets.remove(topicPartition);
+        if (latencies.remove(topicPartition) != null) {
+          metrics.remove(timerName(topicPartition));
+        }
+      }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+      if (paused) {
+        consumer.pause(partitions);
+      }
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.setup.Environment;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Dropwizard Factory to create managed {@link KafkaConsumerEngine} instances.
+ */
+public class KafkaConsumerEngineFactory {
+
+  @NotEmpty
+  @JsonProperty
+  private String name;
+
+  @NotEmpty
+  @JsonProperty
+  private List<String> topics = new ArrayList<>();
+
+  @NotNull
+  @JsonProperty
+  private KafkaConsumerEngine.Ordering ordering = KafkaConsumerEngine.Ordering.PARTITION;
+
+  @Min(1)
+  @JsonProperty
+  private int workers = Runtime.getRuntime().availableProcessors();
+
+  @Min(1)
+  @JsonProperty
+  private int maxInFlightRecords = 10000;
+
+  @Min(0)
+  @JsonProperty
+  private long pollTimeoutMs = 100L;
+
+  @Min(0)
+  @JsonProperty
+  private long commitIntervalMs = 1000L;
+
+  @Min(0)
+  @JsonProperty
+  private long shutdownTimeoutMs = 30000L;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public List<String> getTopics() {
+    return topics;
+  }
+
+  public void setTopics(List<String> topics) {
+    this.topics = topics;
+  }
+
+  public KafkaConsumerEngine.Ordering getOrdering() {
+    return ordering;
+  }
+
+  public void setOrdering(KafkaConsumerEngine.Ordering ordering) {
+    this.ordering = ordering;
+  }
+
+  public int getWorkers() {
+    return workers;
+  }
+
+  public void setWorkers(int workers) {
+    this.workers = workers;
+  }
+
+  public int getMaxInFlightRecords() {
+    return maxInFlightRecords;
+  }
+
+  public void setMaxInFlightRecords(int maxInFlightRecords) {
+    this.maxInFlightRecords = maxInFlightRecords;
+  }
+
+  public long getPollTimeoutMs() {
+    return pollTimeoutMs;
+  }
+
+  public void setPollTimeoutMs(long pollTimeoutMs) {
+    this.pollTimeoutMs = pollTimeoutMs;
+  }
+
+  public long getCommitIntervalMs() {
+    return commitIntervalMs;
+  }
+
+  public void setCommitIntervalMs(long commitIntervalMs) {
+    this.commitIntervalMs = commitIntervalMs;
+  }
+
+  public long getShutdownTimeoutMs() {
+    return shutdownTimeoutMs;
+  }
+
+  public void setShutdownTimeoutMs(long shutdownTimeoutMs) {
+    this.shutdownTimeoutMs = shutdownTimeoutMs;
+  }
+
+  /**
+   * Creates a managed {@link KafkaConsumerEngine} using a consumer created by
+   * {@link KafkaClientFactory}. Auto-commit is disabled, as offsets are committed by the engine.
+   *
+   * @param environment       Dropwizard environment
+   * @param clientFactory     Kafka Client Factory
+   * @param keyDeserializer   Kafka Key Deserializer
+   * @param valueDeserializer Kafka Value Deserializer
+   * @param properties        Consumer configuration properties
+   * @param processor         Record processor
+   * @return Dropwizard managed Kafka Consumer Engine, logging and skipping failed records
+   */
+  public <K, V> KafkaConsumerEngine<K, V> build(Environment environment,
+                                                KafkaClientFactory<K, V> clientFactory,
+                                                Deserializer<K> keyDeserializer,
+                                                Deserializer<V> valueDeserializer,
+                                                Properties properties,
+                                                KafkaRecordProcessor<K, V> processor) {
+    return build(environment, clientFactory, keyDeserializer, valueDeserializer, properties, processor,
+        KafkaRecordFailureHandler.logging());
+  }
+
+  /**
+   * Creates a managed {@link KafkaConsumerEngine} passing failed records to a handler, e.g. a
+   * {@link KafkaRetryProcessor} routing them to retry topics.
+   *
+   * @param environment       Dropwizard environment
+   * @param clientFactory     Kafka Client Factory
+   * @param keyDeserializer   Kafka Key Deserializer
+   * @param valueDeserializer Kafka Value Deserializer
+   * @param properties        Consumer configuration properties
+   * @param processor         Record processor
+   * @param failureHandler    Handler of records failing to process
+   * @return Dropwizard managed Kafka Consumer Engine
+   */
+  public <K, V> KafkaConsumerEngine<K, V> build(Environment environment,
+                                                KafkaClientFactory<K, V> clientFactory,
+                                                Deserializer<K> keyDeserializer,
+                                                Deserializer<V> valueDeserializer,
+                                                Properties properties,
+                                                KafkaRecordProcessor<K, V> processor,
+                                                KafkaRecordFailureHandler<K, V> failureHandler) {
+    final Properties configs = new Properties();
+    configs.putAll(properties);
+    configs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+
+    final KafkaConsumerEngine<K, V> engine =
+        new KafkaConsumerEngine<>(
+            name,
+            clientFactory.createConsumer(environment, keyDeserializer, valueDeserializer, configs),
+            topics,
+            processor,
+            failureHandler,
+            ordering,
+            workers,
+            maxInFlightRecords,
+            pollTimeoutMs,
+            commitIntervalMs,
+            shutdownTimeoutMs,
+            environment.metrics());
+
+    environment.lifecycle().manage(engine);
+
+    return engine;
+  }
+}
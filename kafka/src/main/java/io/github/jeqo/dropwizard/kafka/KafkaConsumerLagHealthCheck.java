@@ -0,0 +1,56 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.health.HealthCheck;
+
+/**
+ * Lag based check for a consumer group, using the last values from a {@link KafkaConsumerLagMonitor}
+ * (no calls to the cluster). Unhealthy when lag or lag growth rate are over thresholds, or when lag
+ * has not been refreshed for three monitor intervals.
+ */
+public class KafkaConsumerLagHealthCheck extends HealthCheck {
+  private final KafkaConsumerLagMonitor monitor;
+  private final long maxLag;
+  private final double maxLagGrowthRate;
+
+  /**
+   * @param monitor          Lag monitor
+   * @param maxLag           Maximum total lag, disabled if 0
+   * @param maxLagGrowthRate Maximum lag growth, in records per second, disabled if 0
+   */
+  public KafkaConsumerLagHealthCheck(KafkaConsumerLagMonitor monitor, long maxLag, double maxLagGrowthRate) {
+    this.monitor = monitor;
+    this.maxLag = maxLag;
+    this.maxLagGrowthRate = maxLagGrowthRate;
+  }
+
+  @Override
+  protected Result check() throws Exception {
+    final long lastUpdateMs = monitor.lastUpdateMs();
+    if (lastUpdateMs == 0L) {
+      return Result.unhealthy("Lag of consumer group %s not available yet", monitor.getGroupId());
+    }
+    if (System.currentTimeMillis() - lastUpdateMs > 3 * monitor.getIntervalMs()) {
+      return monitor.lastError() != null
+          ? Result.unhealthy(monitor.lastError())
+          : Result.unhealthy("Lag of consumer group %s not updated since %d", monitor.getGroupId(), lastUpdateMs);
+    }
+
+    final long totalLag = monitor.totalLag();
+    final double lagGrowthRate = monitor.lagGrowthRate();
+    final ResultBuilder result;
+    if (maxLag > 0L && totalLag > maxLag) {
+      result = Result.builder().unhealthy()
+          .withMessage("Consumer group %s lag %d is over %d", monitor.getGroupId(), totalLag, maxLag);
+    } else if (maxLagGrowthRate > 0.0 && lagGrowthRate > maxLagGrowthRate) {
+      result = Result.builder().unhealthy()
+          .withMessage("Consumer group %s lag growing %.1f records/s, over %.1f",
+              monitor.getGroupId(), lagGrowthRate, maxLagGrowthRate);
+    } else {
+      result = Result.builder().healthy();
+    }
+    return result
+        .withDetail("totalLag", totalLag)
+        .withDetail("lagGrowthRate", lagGrowthRate)
+        .build();
+  }
+}
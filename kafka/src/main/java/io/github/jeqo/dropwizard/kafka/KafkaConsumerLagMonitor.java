@@ -0,0 +1,173 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Monitors the lag of a consumer group on a set of topics, from a background thread.
+ * <p>
+ * On each interval, log-end offsets are fetched in one batch and committed offsets are fetched
+ * with a single consumer that does not join the group. Lag is published per partition and in
+ * total, with the total lag growth rate, as gauges. Partitions without committed offsets are not
+ * accounted.
+ */
+public class KafkaConsumerLagMonitor implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaConsumerLagMonitor.class);
+
+  private final String groupId;
+  private final List<String> topics;
+  private final Consumer<byte[], byte[]> consumer;
+  private final long intervalMs;
+  private final MetricRegistry metrics;
+
+  private final Map<TopicPartition, Long> lags = new ConcurrentHashMap<>();
+  private volatile long totalLag = 0L;
+  private volatile double lagGrowthRate = 0.0;
+  private volatile long lastUpdateMs = 0L;
+  private volatile Exception lastError;
+
+  private ScheduledExecutorService scheduler;
+
+  KafkaConsumerLagMonitor(String groupId,
+                          List<String> topics,
+                          Consumer<byte[], byte[]> consumer,
+                          long intervalMs,
+                          MetricRegistry metrics) {
+    this.groupId = groupId;
+    this.topics = topics;
+    this.consumer = consumer;
+    this.intervalMs = intervalMs;
+    this.metrics = metrics;
+
+    metrics.register(name(KafkaConsumerLagMonitor.class, groupId, "total-lag"),
+        (Gauge<Long>) () -> totalLag);
+    metrics.register(name(KafkaConsumerLagMonitor.class, groupId, "lag-growth-rate"),
+        (Gauge<Double>) () -> lagGrowthRate);
+  }
+
+  @Override
+  public synchronized void start() {
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final Thread thread = new Thread(runnable, "kafka-consumer-lag-" + groupId);
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduler.scheduleWithFixedDelay(this::refresh, 0L, intervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public synchronized void stop() throws Exception {
+    if (scheduler != null) {
+      // consumer is closed on the monitor thread, after the running refresh
+      scheduler.execute(consumer::close);
+      scheduler.shutdown();
+      if (!scheduler.awaitTermination(intervalMs, TimeUnit.MILLISECONDS)) {
+        LOGGER.warn("Consumer lag monitor for group {} not stopped", groupId);
+      }
+      scheduler = null;
+    }
+  }
+
+  public String getGroupId() {
+    return groupId;
+  }
+
+  /**
+   * @return total lag of the group on monitored topics
+   */
+  public long totalLag() {
+    return totalLag;
+  }
+
+  /**
+   * @return records per second the total lag has grown since the previous refresh, negative when
+   * the group is catching up
+   */
+  public double lagGrowthRate() {
+    return lagGrowthRate;
+  }
+
+  /**
+   * @return lag by partition
+   */
+  public Map<TopicPartition, Long> lags() {
+    return Collections.unmodifiableMap(lags);
+  }
+
+  /**
+   * @return time of the last successful refresh, 0 if lag has not been fetched yet
+   */
+  public long lastUpdateMs() {
+    return lastUpdateMs;
+  }
+
+  /**
+   * @return error of the last refresh, or null if it succeeded
+   */
+  public Exception lastError() {
+    return lastError;
+  }
+
+  long getIntervalMs() {
+    return intervalMs;
+  }
+
+  private void refresh() {
+    try {
+      final List<TopicPartition> partitions = new ArrayList<>();
+      for (String topic : topics) {
+        final List<PartitionInfo> partitionInfos = consumer.partitionsFor(topic);
+        if (partitionInfos != null) {
+          partitionInfos.forEach(info -> partitions.add(new TopicPartition(info.topic(), info.partition())));
+        }
+      }
+      final Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+
+      long total = 0L;
+      for (TopicPartition partition : partitions) {
+        final OffsetAndMetadata committed = consumer.committed(partition);
+        final Long endOffset = endOffsets.get(partition);
+        if (committed == null || endOffset == null) {
+          continue;
+        }
+        final long lag = Math.max(0L, endOffset - committed.offset());
+        if (lags.put(partition, lag) == null) {
+          metrics.register(
+              name(KafkaConsumerLagMonitor.class, groupId, partition.topic(), String.valueOf(partition.partition()), "lag"),
+              (Gauge<Long>) () -> lags.getOrDefault(partition, 0L));
+        }
+        total += lag;
+      }
+
+      final long now = System.currentTimeMillis();
+      if (lastUpdateMs > 0L) {
+        lagGrowthRate = (total - totalLag) * 1000.0 / Math.max(1L, now - lastUpdateMs);
+      }
+      totalLag = total;
+      lastUpdateMs = now;
+      lastError = null;
+    } catch (Exception e) {
+      LOGGER.warn("Error fetching lag of consumer group {}", groupId, e);
+      lastError = e;
+    }
+  }
+}
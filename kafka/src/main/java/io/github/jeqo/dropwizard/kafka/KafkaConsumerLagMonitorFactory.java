@@ -0,0 +1,120 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.setup.Environment;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.constraints.Min;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Dropwizard Factory to create managed {@link KafkaConsumerLagMonitor} instances and their
+ * {@link KafkaConsumerLagHealthCheck}.
+ */
+public class KafkaConsumerLagMonitorFactory {
+
+  @NotEmpty
+  @JsonProperty
+  private String groupId;
+
+  @JsonProperty
+  private List<String> topics = new ArrayList<>();
+
+  @Min(1)
+  @JsonProperty
+  private long intervalMs = 30000L;
+
+  @Min(0)
+  @JsonProperty
+  private long maxLag = 0L;
+
+  @Min(0)
+  @JsonProperty
+  private double maxLagGrowthRate = 0.0;
+
+  public String getGroupId() {
+    return groupId;
+  }
+
+  public void setGroupId(String groupId) {
+    this.groupId = groupId;
+  }
+
+  public List<String> getTopics() {
+    return topics;
+  }
+
+  public void setTopics(List<String> topics) {
+    this.topics = topics;
+  }
+
+  public long getIntervalMs() {
+    return intervalMs;
+  }
+
+  public void setIntervalMs(long intervalMs) {
+    this.intervalMs = intervalMs;
+  }
+
+  public long getMaxLag() {
+    return maxLag;
+  }
+
+  public void setMaxLag(long maxLag) {
+    this.maxLag = maxLag;
+  }
+
+  public double getMaxLagGrowthRate() {
+    return maxLagGrowthRate;
+  }
+
+  public void setMaxLagGrowthRate(double maxLagGrowthRate) {
+    this.maxLagGrowthRate = maxLagGrowthRate;
+  }
+
+  /**
+   * Creates a managed lag monitor. If no topics are configured, topics configured on the client
+   * factory are monitored.
+   *
+   * @param environment   Dropwizard environment
+   * @param clientFactory Kafka client factory
+   * @return Dropwizard managed lag monitor
+   */
+  public KafkaConsumerLagMonitor build(Environment environment, KafkaClientFactory<?, ?> clientFactory) {
+    final List<String> monitoredTopics =
+        topics.isEmpty()
+            ? clientFactory.getTopics().stream().map(KafkaTopic::getName).collect(Collectors.toList())
+            : topics;
+
+    final Properties properties = new Properties();
+    properties.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+    properties.put(ConsumerConfig.CLIENT_ID_CONFIG, groupId + "-lag-monitor");
+    properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+
+    final KafkaConsumerLagMonitor monitor =
+        new KafkaConsumerLagMonitor(
+            groupId,
+            monitoredTopics,
+            clientFactory.createByteArrayConsumer(environment, properties),
+            intervalMs,
+            environment.metrics());
+
+    environment.lifecycle().manage(monitor);
+
+    return monitor;
+  }
+
+  /**
+   * Creates a health check using configured thresholds.
+   *
+   * @param monitor Lag monitor
+   * @return Lag health check
+   */
+  public KafkaConsumerLagHealthCheck buildHealthCheck(KafkaConsumerLagMonitor monitor) {
+    return new KafkaConsumerLagHealthCheck(monitor, maxLag, maxLagGrowthRate);
+  }
+}
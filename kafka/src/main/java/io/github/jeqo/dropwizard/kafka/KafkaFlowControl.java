@@ -0,0 +1,198 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Tracks records and bytes buffered per partition, from poll until released by downstream
+ * processing, and pauses partitions above a high watermark until they drain below a low
+ * watermark. The consumer keeps polling while partitions are paused, so it stays in its group
+ * and overload becomes bounded latency instead of memory growth or rebalances.
+ * <p>
+ * {@link #apply(Consumer)} must be called from the polling thread; records can be released from
+ * any thread. Buffers are kept when partitions are revoked, so records polled before a rebalance
+ * are still accounted when released afterwards, even if the partition is assigned again; they are
+ * dropped once drained.
+ */
+public class KafkaFlowControl {
+
+  private final long highWatermarkRecords;
+  private final long lowWatermarkRecords;
+  private final long highWatermarkBytes;
+  private final long lowWatermarkBytes;
+
+  private final Map<TopicPartition, PartitionBuffer> buffers = new ConcurrentHashMap<>();
+  private final Map<TopicPartition, Long> pausedSinceMs = new ConcurrentHashMap<>();
+  private final AtomicLong pausedTimeMs = new AtomicLong();
+  private final Timer pauses;
+
+  KafkaFlowControl(long highWatermarkRecords,
+                   long lowWatermarkRecords,
+                   long highWatermarkBytes,
+                   long lowWatermarkBytes,
+                   MetricRegistry metrics,
+                   String name) {
+    this.highWatermarkRecords = highWatermarkRecords;
+    this.lowWatermarkRecords = lowWatermarkRecords;
+    this.highWatermarkBytes = highWatermarkBytes;
+    this.lowWatermarkBytes = lowWatermarkBytes;
+
+    metrics.register(name(KafkaFlowControl.class, name, "buffered-records"),
+        (Gauge<Long>) this::bufferedRecords);
+    metrics.register(name(KafkaFlowControl.class, name, "buffered-bytes"),
+        (Gauge<Long>) this::bufferedBytes);
+    metrics.register(name(KafkaFlowControl.class, name, "paused-partitions"),
+        (Gauge<Integer>) pausedSinceMs::size);
+    metrics.register(name(KafkaFlowControl.class, name, "paused-time-ms"),
+        (Gauge<Long>) this::pausedTimeMs);
+    this.pauses = metrics.timer(name(KafkaFlowControl.class, name, "pauses"));
+  }
+
+  /**
+   * Accounts polled records as buffered.
+   */
+  public void buffered(ConsumerRecords<?, ?> records) {
+    for (TopicPartition topicPartition : records.partitions()) {
+      final PartitionBuffer buffer = buffers.computeIfAbsent(topicPartition, tp -> new PartitionBuffer());
+      for (ConsumerRecord<?, ?> record : records.records(topicPartition)) {
+        buffer.records.incrementAndGet();
+        buffer.bytes.addAndGet(size(record));
+      }
+    }
+  }
+
+  /**
+   * Releases a record once it has been processed downstream.
+   */
+  public void released(ConsumerRecord<?, ?> record) {
+    released(new TopicPartition(record.topic(), record.partition()), 1L, size(record));
+  }
+
+  /**
+   * Releases a number of records and bytes from a partition once processed downstream.
+   */
+  public void released(TopicPartition topicPartition, long records, long bytes) {
+    final PartitionBuffer buffer = buffers.get(topicPartition);
+    if (buffer != null) {
+      buffer.records.addAndGet(-records);
+      buffer.bytes.addAndGet(-bytes);
+    }
+  }
+
+  /**
+   * Pauses assigned partitions above a high watermark, and resumes partitions paused by this
+   * flow control once they are below both low watermarks. Partitions paused by other means are
+   * not resumed.
+   *
+   * @param consumer Consumer, called from its polling thread
+   */
+  public void apply(Consumer<?, ?> consumer) {
+    final long now = System.currentTimeMillis();
+    final Set<TopicPartition> assignment = consumer.assignment();
+    buffers.forEach((topicPartition, buffer) -> {
+      if (!assignment.contains(topicPartition)) {
+        // buffered() runs on this thread too, so a drained buffer cannot be reused concurrently
+        if (buffer.records.get() <= 0L && buffer.bytes.get() <= 0L) {
+          buffers.remove(topicPartition, buffer);
+        }
+        return;
+      }
+      final long records = buffer.records.get();
+      final long bytes = buffer.bytes.get();
+      final Long since = pausedSinceMs.get(topicPartition);
+      if (since == null) {
+        if (records >= highWatermarkRecords || bytes >= highWatermarkBytes) {
+          consumer.pause(Collections.singleton(topicPartition));
+          pausedSinceMs.put(topicPartition, now);
+        }
+      } else if (records <= lowWatermarkRecords && bytes <= lowWatermarkBytes) {
+        consumer.resume(Collections.singleton(topicPartition));
+        resumed(topicPartition, now);
+      }
+    });
+  }
+
+  /**
+   * Stops pausing revoked partitions. Their buffers are kept until records polled before the
+   * revoke are released, so late releases do not offset records polled after a reassignment.
+   */
+  public void revoked(Collection<TopicPartition> partitions) {
+    final long now = System.currentTimeMillis();
+    for (TopicPartition topicPartition : partitions) {
+      resumed(topicPartition, now);
+    }
+  }
+
+  /**
+   * @return records polled and not yet released
+   */
+  public long bufferedRecords() {
+    long records = 0L;
+    for (PartitionBuffer buffer : buffers.values()) {
+      records += buffer.records.get();
+    }
+    return records;
+  }
+
+  /**
+   * @return serialized bytes polled and not yet released
+   */
+  public long bufferedBytes() {
+    long bytes = 0L;
+    for (PartitionBuffer buffer : buffers.values()) {
+      bytes += buffer.bytes.get();
+    }
+    return bytes;
+  }
+
+  /**
+   * @return partitions currently paused by flow control
+   */
+  public Set<TopicPartition> paused() {
+    return Collections.unmodifiableSet(pausedSinceMs.keySet());
+  }
+
+  /**
+   * @return accumulated time partitions have been paused, including current pauses
+   */
+  public long pausedTimeMs() {
+    final long now = System.currentTimeMillis();
+    long total = pausedTimeMs.get();
+    for (long since : pausedSinceMs.values()) {
+      total += now - since;
+    }
+    return total;
+  }
+
+  private void resumed(TopicPartition topicPartition, long now) {
+    final Long since = pausedSinceMs.remove(topicPartition);
+    if (since != null) {
+      pausedTimeMs.addAndGet(now - since);
+      pauses.update(now - since, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private static long size(ConsumerRecord<?, ?> record) {
+    return Math.max(0, record.serializedKeySize()) + Math.max(0, record.serializedValueSize());
+  }
+
+  private static class PartitionBuffer {
+    final AtomicLong records = new AtomicLong();
+    final AtomicLong bytes = new AtomicLong();
+  }
+}
@@ -0,0 +1,82 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Dropwizard Factory to create {@link KafkaFlowControl}s: per partition watermarks on records and
+ * bytes buffered by a consumer and not yet released by downstream processing.
+ */
+public class KafkaFlowControlFactory {
+
+  @Min(1)
+  @JsonProperty
+  private long highWatermarkRecords = 10000L;
+
+  @Min(0)
+  @JsonProperty
+  private long lowWatermarkRecords = 5000L;
+
+  @Min(1)
+  @JsonProperty
+  private long highWatermarkBytes = 64L * 1024 * 1024;
+
+  @Min(0)
+  @JsonProperty
+  private long lowWatermarkBytes = 32L * 1024 * 1024;
+
+  public long getHighWatermarkRecords() {
+    return highWatermarkRecords;
+  }
+
+  public void setHighWatermarkRecords(long highWatermarkRecords) {
+    this.highWatermarkRecords = highWatermarkRecords;
+  }
+
+  public long getLowWatermarkRecords() {
+    return lowWatermarkRecords;
+  }
+
+  public void setLowWatermarkRecords(long lowWatermarkRecords) {
+    this.lowWatermarkRecords = lowWatermarkRecords;
+  }
+
+  public long getHighWatermarkBytes() {
+    return highWatermarkBytes;
+  }
+
+  public void setHighWatermarkBytes(long highWatermarkBytes) {
+    this.highWatermarkBytes = highWatermarkBytes;
+  }
+
+  public long getLowWatermarkBytes() {
+    return lowWatermarkBytes;
+  }
+
+  public void setLowWatermarkBytes(long lowWatermarkBytes) {
+    this.lowWatermarkBytes = lowWatermarkBytes;
+  }
+
+  /**
+   * Creates a flow control publishing buffered records and bytes, paused partitions and paused
+   * time metrics.
+   *
+   * @param metrics Metric registry
+   * @param name    Client name, used on metric names
+   * @return Flow control
+   */
+  public KafkaFlowControl build(MetricRegistry metrics, String name) {
+    if (lowWatermarkRecords >= highWatermarkRecords || lowWatermarkBytes >= highWatermarkBytes) {
+      throw new IllegalArgumentException("Low watermarks must be lower than high watermarks");
+    }
+    return new KafkaFlowControl(
+        highWatermarkRecords,
+        lowWatermarkRecords,
+        highWatermarkBytes,
+        lowWatermarkBytes,
+        metrics,
+        name);
+  }
+}
@@ -0,0 +1,250 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Consumer applying {@link KafkaFlowControl}: polled records are accounted as buffered until
+ * {@link #release(ConsumerRecord)} is called, and partitions with too many records or bytes
+ * buffered are paused on the next poll, and resumed once drained.
+ * <p>
+ * Callers must keep polling while partitions are paused, and release every record (or the whole
+ * partition batch with {@link #release(TopicPartition, long, long)}) once processed, including
+ * records of partitions revoked since they were polled.
+ */
+public class KafkaFlowControlledConsumer<K, V> implements Consumer<K, V> {
+
+  private final Consumer<K, V> consumer;
+  private final KafkaFlowControl flowControl;
+
+  KafkaFlowControlledConsumer(Consumer<K, V> consumer, KafkaFlowControl flowControl) {
+    this.consumer = consumer;
+    this.flowControl = flowControl;
+  }
+
+  public KafkaFlowControl getFlowControl() {
+    return flowControl;
+  }
+
+  @Override
+  public ConsumerRecords<K, V> poll(long timeout) {
+    flowControl.apply(consumer);
+    final ConsumerRecords<K, V> records = consumer.poll(timeout);
+    if (!records.isEmpty()) {
+      flowControl.buffered(records);
+    }
+    return records;
+  }
+
+  /**
+   * Releases a record once processed. Can be called from any thread.
+   */
+  public void release(ConsumerRecord<K, V> record) {
+    flowControl.released(record);
+  }
+
+  /**
+   * Releases a number of records and serialized bytes from a partition once processed. Can be
+   * called from any thread.
+   */
+  public void release(TopicPartition topicPartition, long records, long bytes) {
+    flowControl.released(topicPartition, records, bytes);
+  }
+
+  @Override
+  public Set<TopicPartition> assignment() {
+    return consumer.assignment();
+  }
+
+  @Override
+  public Set<String> subscription() {
+    return consumer.subscription();
+  }
+
+  @Override
+  public void subscribe(Collection<String> topics) {
+    consumer.subscribe(topics, new RebalanceListener(null));
+  }
+
+  @Override
+  public void subscribe(Collection<String> topics, ConsumerRebalanceListener callback) {
+    consumer.subscribe(topics, new RebalanceListener(callback));
+  }
+
+  @Override
+  public void assign(Collection<TopicPartition> partitions) {
+    final Set<TopicPartition> unassigned = new HashSet<>(consumer.assignment());
+    unassigned.removeAll(partitions);
+    flowControl.revoked(unassigned);
+    consumer.assign(partitions);
+  }
+
+  @Override
+  public void subscribe(Pattern pattern, ConsumerRebalanceListener callback) {
+    consumer.subscribe(pattern, new RebalanceListener(callback));
+  }
+
+  @Override
+  public void subscribe(Pattern pattern) {
+    consumer.subscribe(pattern, new RebalanceListener(null));
+  }
+
+  @Override
+  public void unsubscribe() {
+    flowControl.revoked(consumer.assignment());
+    consumer.unsubscribe();
+  }
+
+  @Override
+  public void commitSync() {
+    consumer.commitSync();
+  }
+
+  @Override
+  public void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+    consumer.commitSync(offsets);
+  }
+
+  @Override
+  public void commitAsync() {
+    consumer.commitAsync();
+  }
+
+  @Override
+  public void commitAsync(OffsetCommitCallback callback) {
+    consumer.commitAsync(callback);
+  }
+
+  @Override
+  public void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets, OffsetCommitCallback callback) {
+    consumer.commitAsync(offsets, callback);
+  }
+
+  @Override
+  public void seek(TopicPartition partition, long offset) {
+    consumer.seek(partition, offset);
+  }
+
+  @Override
+  public void seekToBeginning(Collection<TopicPartition> partitions) {
+    consumer.seekToBeginning(partitions);
+  }
+
+  @Override
+  public void seekToEnd(Collection<TopicPartition> partitions) {
+    consumer.seekToEnd(partitions);
+  }
+
+  @Override
+  public long position(TopicPartition partition) {
+    return consumer.position(partition);
+  }
+
+  @Override
+  public OffsetAndMetadata committed(TopicPartition partition) {
+    return consumer.committed(partition);
+  }
+
+  @Override
+  public Map<MetricName, ? extends Metric> metrics() {
+    return consumer.metrics();
+  }
+
+  @Override
+  public List<PartitionInfo> partitionsFor(String topic) {
+    return consumer.partitionsFor(topic);
+  }
+
+  @Override
+  public Map<String, List<PartitionInfo>> listTopics() {
+    return consumer.listTopics();
+  }
+
+  @Override
+  public Set<TopicPartition> paused() {
+    return consumer.paused();
+  }
+
+  @Override
+  public void pause(Collection<TopicPartition> partitions) {
+    consumer.pause(partitions);
+  }
+
+  @Override
+  public void resume(Collection<TopicPartition> partitions) {
+    consumer.resume(partitions);
+  }
+
+  @Override
+  public Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(Map<TopicPartition, Long> timestampsToSearch) {
+    return consumer.offsetsForTimes(timestampsToSearch);
+  }
+
+  @Override
+  public Map<TopicPartition, Long> beginningOffsets(Collection<TopicPartition> partitions) {
+    return consumer.beginningOffsets(partitions);
+  }
+
+  @Override
+  public Map<TopicPartition, Long> endOffsets(Collection<TopicPartition> partitions) {
+    return consumer.endOffsets(partitions);
+  }
+
+  @Override
+  public void close() {
+    consumer.close();
+  }
+
+  @Override
+  public void close(long timeout, TimeUnit unit) {
+    consumer.close(timeout, unit);
+  }
+
+  @Override
+  public void wakeup() {
+    consumer.wakeup();
+  }
+
+  /**
+   * Stops pausing revoked partitions before calling the application listener.
+   */
+  private class RebalanceListener implements ConsumerRebalanceListener {
+    private final ConsumerRebalanceListener callback;
+
+    RebalanceListener(ConsumerRebalanceListener callback) {
+      this.callback = callback;
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+      flowControl.revoked(partitions);
+      if (callback != null) {
+        callback.onPartitionsRevoked(partitions);
+      }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+      if (callback != null) {
+        callback.onPartitionsAssigned(partitions);
+      }
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import io.opentracing.propagation.TextMap;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Propagates tracing context on Kafka record headers.
+ */
+class KafkaHeadersCarrier implements TextMap {
+
+  private final Headers headers;
+
+  KafkaHeadersCarrier(Headers headers) {
+    this.headers = headers;
+  }
+
+  @Override
+  public Iterator<Map.Entry<String, String>> iterator() {
+    final Map<String, String> entries = new HashMap<>();
+    for (Header header : headers) {
+      if (header.value() != null) {
+        entries.put(header.key(), new String(header.value(), StandardCharsets.UTF_8));
+      }
+    }
+    return entries.entrySet().iterator();
+  }
+
+  @Override
+  public void put(String key, String value) {
+    headers.remove(key);
+    headers.add(key, value.getBytes(StandardCharsets.UTF_8));
+  }
+}
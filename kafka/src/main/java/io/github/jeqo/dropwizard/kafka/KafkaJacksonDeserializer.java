@@ -0,0 +1,41 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Kafka {@link Deserializer} reading values with a pre-built Jackson {@link ObjectReader}, so no
+ * type or deserializer lookup happens per record.
+ */
+public class KafkaJacksonDeserializer<T> implements Deserializer<T> {
+
+  private final ObjectReader reader;
+
+  KafkaJacksonDeserializer(ObjectReader reader) {
+    this.reader = reader;
+  }
+
+  @Override
+  public void configure(Map<String, ?> configs, boolean isKey) {
+  }
+
+  @Override
+  public T deserialize(String topic, byte[] data) {
+    if (data == null) {
+      return null;
+    }
+    try {
+      return reader.readValue(data);
+    } catch (IOException e) {
+      throw new SerializationException("Error deserializing value from topic " + topic, e);
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+}
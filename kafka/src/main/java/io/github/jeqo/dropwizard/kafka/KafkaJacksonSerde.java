@@ -0,0 +1,41 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.Map;
+
+/**
+ * Kafka {@link Serde} backed by {@link KafkaJacksonSerializer} and {@link KafkaJacksonDeserializer}.
+ * Can be used with Kafka Producers and Consumers, through {@link #serializer()} and
+ * {@link #deserializer()}, and with Kafka Streams.
+ */
+public class KafkaJacksonSerde<T> implements Serde<T> {
+
+  private final KafkaJacksonSerializer<T> serializer;
+  private final KafkaJacksonDeserializer<T> deserializer;
+
+  KafkaJacksonSerde(KafkaJacksonSerializer<T> serializer, KafkaJacksonDeserializer<T> deserializer) {
+    this.serializer = serializer;
+    this.deserializer = deserializer;
+  }
+
+  @Override
+  public void configure(Map<String, ?> configs, boolean isKey) {
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public Serializer<T> serializer() {
+    return serializer;
+  }
+
+  @Override
+  public Deserializer<T> deserializer() {
+    return deserializer;
+  }
+}
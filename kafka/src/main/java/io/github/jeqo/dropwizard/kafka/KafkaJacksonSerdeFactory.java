@@ -0,0 +1,116 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.setup.Environment;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Dropwizard Factory to create Jackson based {@link KafkaJacksonSerde}s.
+ * <p>
+ * JSON serdes use the environment {@link ObjectMapper}. Binary formats use a Dropwizard
+ * {@link ObjectMapper} with the same default modules, as format cannot be changed on an existing
+ * mapper.
+ */
+public class KafkaJacksonSerdeFactory {
+
+  /**
+   * Encoding of serialized values.
+   */
+  public enum Format {
+    JSON, SMILE, CBOR
+  }
+
+  @NotNull
+  @JsonProperty
+  private Format format = Format.JSON;
+
+  @Min(16)
+  @JsonProperty
+  private int initialBufferSize = 1024;
+
+  @Min(16)
+  @JsonProperty
+  private int maxRetainedBufferSize = 1024 * 1024;
+
+  private ObjectMapper smileObjectMapper;
+  private ObjectMapper cborObjectMapper;
+
+  public Format getFormat() {
+    return format;
+  }
+
+  public void setFormat(Format format) {
+    this.format = format;
+  }
+
+  public int getInitialBufferSize() {
+    return initialBufferSize;
+  }
+
+  public void setInitialBufferSize(int initialBufferSize) {
+    this.initialBufferSize = initialBufferSize;
+  }
+
+  public int getMaxRetainedBufferSize() {
+    return maxRetainedBufferSize;
+  }
+
+  public void setMaxRetainedBufferSize(int maxRetainedBufferSize) {
+    this.maxRetainedBufferSize = maxRetainedBufferSize;
+  }
+
+  /**
+   * Creates a serde for a type.
+   *
+   * @param environment Dropwizard environment
+   * @param type        Value type
+   * @return Serde with reader and writer built for the type
+   */
+  public <T> KafkaJacksonSerde<T> build(Environment environment, Class<T> type) {
+    final ObjectMapper objectMapper = objectMapper(environment);
+    return build(objectMapper, objectMapper.constructType(type));
+  }
+
+  /**
+   * Creates a serde for a generic type, e.g. {@code new TypeReference<List<Event>>() {}}.
+   *
+   * @param environment Dropwizard environment
+   * @param type        Value type reference
+   * @return Serde with reader and writer built for the type
+   */
+  public <T> KafkaJacksonSerde<T> build(Environment environment, TypeReference<T> type) {
+    final ObjectMapper objectMapper = objectMapper(environment);
+    return build(objectMapper, objectMapper.getTypeFactory().constructType(type));
+  }
+
+  private <T> KafkaJacksonSerde<T> build(ObjectMapper objectMapper, JavaType type) {
+    return new KafkaJacksonSerde<>(
+        new KafkaJacksonSerializer<>(objectMapper.writerFor(type), initialBufferSize, maxRetainedBufferSize),
+        new KafkaJacksonDeserializer<>(objectMapper.readerFor(type)));
+  }
+
+  private synchronized ObjectMapper objectMapper(Environment environment) {
+    switch (format) {
+      case SMILE:
+        if (smileObjectMapper == null) {
+          smileObjectMapper = Jackson.newObjectMapper(new SmileFactory());
+        }
+        return smileObjectMapper;
+      case CBOR:
+        if (cborObjectMapper == null) {
+          cborObjectMapper = Jackson.newObjectMapper(new CBORFactory());
+        }
+        return cborObjectMapper;
+      default:
+        return environment.getObjectMapper();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Kafka {@link Serializer} writing values with a pre-built Jackson {@link ObjectWriter}.
+ * <p>
+ * Values are encoded into a per-thread buffer that is reused between records, so the only
+ * allocation per record is the resulting array. Buffers grown beyond the retained size are
+ * released after use.
+ */
+public class KafkaJacksonSerializer<T> implements Serializer<T> {
+
+  private final ObjectWriter writer;
+  private final ThreadLocal<ReusableBuffer> buffers;
+
+  KafkaJacksonSerializer(ObjectWriter writer, int initialBufferSize, int maxRetainedBufferSize) {
+    this.writer = writer;
+    this.buffers = ThreadLocal.withInitial(() -> new ReusableBuffer(initialBufferSize, maxRetainedBufferSize));
+  }
+
+  @Override
+  public void configure(Map<String, ?> configs, boolean isKey) {
+  }
+
+  @Override
+  public byte[] serialize(String topic, T data) {
+    if (data == null) {
+      return null;
+    }
+    final ReusableBuffer buffer = buffers.get();
+    try {
+      writer.writeValue(buffer, data);
+      return buffer.toByteArray();
+    } catch (IOException e) {
+      throw new SerializationException("Error serializing value for topic " + topic, e);
+    } finally {
+      buffer.reset();
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+
+  /**
+   * Unsynchronized growable output buffer, owned by a single thread.
+   */
+  private static class ReusableBuffer extends OutputStream {
+    private final int initialSize;
+    private final int maxRetainedSize;
+    private byte[] bytes;
+    private int count;
+
+    ReusableBuffer(int initialSize, int maxRetainedSize) {
+      this.initialSize = initialSize;
+      this.maxRetainedSize = maxRetainedSize;
+      this.bytes = new byte[initialSize];
+    }
+
+    @Override
+    public void write(int b) {
+      ensureCapacity(count + 1);
+      bytes[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      ensureCapacity(count + len);
+      System.arraycopy(b, off, bytes, count, len);
+      count += len;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(bytes, count);
+    }
+
+    void reset() {
+      count = 0;
+      if (bytes.length > maxRetainedSize) {
+        bytes = new byte[initialSize];
+      }
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length << 1));
+      }
+    }
+  }
+}
@@ -0,0 +1,260 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Managed in-memory read model of a compacted topic. Partitions are read from the beginning by a
+ * number of parallel readers, each one owning a subset of partitions, and the latest value per
+ * key is kept on a concurrent map. Tombstones (null values) remove keys.
+ * <p>
+ * The table is ready once every partition has been read up to the end offset it had at start;
+ * afterwards readers keep tailing the topic. If a reader fails, its partitions stop updating and
+ * the table is no longer ready. Readers are not members of a consumer group, so every instance
+ * holds the whole table.
+ * <p>
+ * Values can be kept serialized, and deserialized on lookup, to reduce heap footprint for large
+ * tables.
+ */
+public class KafkaLookupTable<K, V> implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaLookupTable.class);
+
+  /**
+   * Approximate heap overhead per entry: map node, entry holder and object headers.
+   */
+  static final int ENTRY_OVERHEAD_BYTES = 64;
+
+  private final String name;
+  private final String topic;
+  private final Supplier<KafkaConsumer<byte[], byte[]>> consumers;
+  private final Deserializer<K> keyDeserializer;
+  private final Deserializer<V> valueDeserializer;
+  private final int readers;
+  private final long pollTimeoutMs;
+  private final boolean serializedValues;
+
+  private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final AtomicLong estimatedBytes = new AtomicLong();
+  private final CompletableFuture<Void> ready = new CompletableFuture<>();
+  private final List<Thread> readerThreads = new ArrayList<>();
+  private final List<KafkaConsumer<byte[], byte[]>> readerConsumers = new ArrayList<>();
+
+  private volatile boolean running = false;
+  private volatile Exception failure;
+
+  KafkaLookupTable(String name,
+                   String topic,
+                   Supplier<KafkaConsumer<byte[], byte[]>> consumers,
+                   Deserializer<K> keyDeserializer,
+                   Deserializer<V> valueDeserializer,
+                   int readers,
+                   long pollTimeoutMs,
+                   boolean serializedValues,
+                   MetricRegistry metrics) {
+    this.name = name;
+    this.topic = topic;
+    this.consumers = consumers;
+    this.keyDeserializer = keyDeserializer;
+    this.valueDeserializer = valueDeserializer;
+    this.readers = readers;
+    this.pollTimeoutMs = pollTimeoutMs;
+    this.serializedValues = serializedValues;
+
+    metrics.register(name(KafkaLookupTable.class, name, "size"), (Gauge<Integer>) entries::size);
+    metrics.register(name(KafkaLookupTable.class, name, "estimated-bytes"), (Gauge<Long>) estimatedBytes::get);
+    metrics.register(name(KafkaLookupTable.class, name, "ready"), (Gauge<Boolean>) this::isReady);
+  }
+
+  @Override
+  public void start() {
+    final Map<TopicPartition, Long> endOffsets;
+    try (KafkaConsumer<byte[], byte[]> consumer = consumers.get()) {
+      final List<TopicPartition> partitions = new ArrayList<>();
+      final List<PartitionInfo> partitionInfos = consumer.partitionsFor(topic);
+      if (partitionInfos == null) {
+        throw new IllegalStateException("Lookup table " + name + " topic " + topic + " does not exist");
+      }
+      for (PartitionInfo partitionInfo : partitionInfos) {
+        partitions.add(new TopicPartition(topic, partitionInfo.partition()));
+      }
+      endOffsets = consumer.endOffsets(partitions);
+    }
+
+    final int readerCount = Math.max(1, Math.min(readers, endOffsets.size()));
+    final List<Map<TopicPartition, Long>> assignments = new ArrayList<>();
+    for (int i = 0; i < readerCount; i++) {
+      assignments.add(new HashMap<>());
+    }
+    endOffsets.forEach((topicPartition, endOffset) ->
+        assignments.get(topicPartition.partition() % readerCount).put(topicPartition, endOffset));
+
+    final AtomicInteger pendingReaders = new AtomicInteger(readerCount);
+    final long startMs = System.currentTimeMillis();
+    running = true;
+    for (int i = 0; i < readerCount; i++) {
+      final Map<TopicPartition, Long> assignment = assignments.get(i);
+      final KafkaConsumer<byte[], byte[]> consumer = consumers.get();
+      readerConsumers.add(consumer);
+      final Thread thread = new Thread(() -> read(consumer, assignment, () -> {
+        if (pendingReaders.decrementAndGet() == 0) {
+          LOGGER.info("Lookup table {} ready: {} entries loaded in {} ms",
+              name, entries.size(), System.currentTimeMillis() - startMs);
+          ready.complete(null);
+        }
+      }), "kafka-lookup-table-" + name + "-" + i);
+      thread.setDaemon(true);
+      readerThreads.add(thread);
+      thread.start();
+    }
+  }
+
+  @Override
+  public void stop() throws Exception {
+    running = false;
+    readerConsumers.forEach(KafkaConsumer::wakeup);
+    for (Thread thread : readerThreads) {
+      thread.join();
+    }
+    if (!ready.isDone()) {
+      ready.completeExceptionally(new IllegalStateException("Lookup table " + name + " stopped"));
+    }
+  }
+
+  /**
+   * @return future completed once the table has caught up with the topic end offsets at start
+   */
+  public CompletableFuture<Void> ready() {
+    return ready;
+  }
+
+  /**
+   * @return true once the table has caught up, while all readers are running
+   */
+  public boolean isReady() {
+    return ready.isDone() && !ready.isCompletedExceptionally() && failure == null;
+  }
+
+  /**
+   * @param key Key
+   * @return latest value for the key, or null if not found
+   */
+  public V get(K key) {
+    final Entry<V> entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    return serializedValues ? valueDeserializer.deserialize(topic, entry.serialized) : entry.value;
+  }
+
+  public boolean containsKey(K key) {
+    return entries.containsKey(key);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return estimated heap used by entries: serialized key and value sizes plus a fixed overhead
+   * per entry
+   */
+  public long estimatedBytes() {
+    return estimatedBytes.get();
+  }
+
+  private void read(KafkaConsumer<byte[], byte[]> consumer,
+                    Map<TopicPartition, Long> endOffsets,
+                    Runnable onCaughtUp) {
+    final Map<TopicPartition, Long> pending = new HashMap<>(endOffsets);
+    try {
+      consumer.assign(endOffsets.keySet());
+      consumer.seekToBeginning(endOffsets.keySet());
+      while (running) {
+        if (!pending.isEmpty()) {
+          pending.entrySet().removeIf(entry -> consumer.position(entry.getKey()) >= entry.getValue());
+          if (pending.isEmpty()) {
+            onCaughtUp.run();
+          }
+        }
+        final ConsumerRecords<byte[], byte[]> records = consumer.poll(pollTimeoutMs);
+        for (ConsumerRecord<byte[], byte[]> record : records) {
+          apply(record);
+        }
+      }
+    } catch (WakeupException e) {
+      if (running) {
+        LOGGER.error("Lookup table {} reader woken up unexpectedly", name, e);
+        failed(e);
+      }
+    } catch (Exception e) {
+      LOGGER.error("Lookup table {} reader failed, partitions {} not updated anymore",
+          name, endOffsets.keySet(), e);
+      failed(e);
+    } finally {
+      consumer.close();
+    }
+  }
+
+  /**
+   * Marks the table as not ready, as it may be ready already and its future cannot fail anymore.
+   */
+  private void failed(Exception exception) {
+    failure = exception;
+    ready.completeExceptionally(exception);
+  }
+
+  private void apply(ConsumerRecord<byte[], byte[]> record) {
+    final K key = keyDeserializer.deserialize(record.topic(), record.key());
+    final Entry<V> previous;
+    if (record.value() == null) {
+      previous = entries.remove(key);
+    } else {
+      final int size = ENTRY_OVERHEAD_BYTES
+          + (record.key() == null ? 0 : record.key().length)
+          + record.value().length;
+      final Entry<V> entry = serializedValues
+          ? new Entry<>(null, record.value(), size)
+          : new Entry<>(valueDeserializer.deserialize(record.topic(), record.value()), null, size);
+      previous = entries.put(key, entry);
+      estimatedBytes.addAndGet(size);
+    }
+    if (previous != null) {
+      estimatedBytes.addAndGet(-previous.size);
+    }
+  }
+
+  private static class Entry<V> {
+    final V value;
+    final byte[] serialized;
+    final int size;
+
+    Entry(V value, byte[] serialized, int size) {
+      this.value = value;
+      this.serialized = serialized;
+      this.size = size;
+    }
+  }
+}
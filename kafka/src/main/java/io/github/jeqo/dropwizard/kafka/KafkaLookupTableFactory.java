@@ -0,0 +1,114 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.setup.Environment;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.constraints.Min;
+import java.util.Properties;
+
+/**
+ * Dropwizard Factory to create managed {@link KafkaLookupTable} instances.
+ */
+public class KafkaLookupTableFactory {
+
+  @NotEmpty
+  @JsonProperty
+  private String name;
+
+  @NotEmpty
+  @JsonProperty
+  private String topic;
+
+  @Min(1)
+  @JsonProperty
+  private int readers = Runtime.getRuntime().availableProcessors();
+
+  @Min(0)
+  @JsonProperty
+  private long pollTimeoutMs = 100L;
+
+  @JsonProperty
+  private boolean serializedValues = false;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getTopic() {
+    return topic;
+  }
+
+  public void setTopic(String topic) {
+    this.topic = topic;
+  }
+
+  public int getReaders() {
+    return readers;
+  }
+
+  public void setReaders(int readers) {
+    this.readers = readers;
+  }
+
+  public long getPollTimeoutMs() {
+    return pollTimeoutMs;
+  }
+
+  public void setPollTimeoutMs(long pollTimeoutMs) {
+    this.pollTimeoutMs = pollTimeoutMs;
+  }
+
+  public boolean isSerializedValues() {
+    return serializedValues;
+  }
+
+  public void setSerializedValues(boolean serializedValues) {
+    this.serializedValues = serializedValues;
+  }
+
+  /**
+   * Creates a managed {@link KafkaLookupTable} reading the topic with consumers created by
+   * {@link KafkaClientFactory}. Readers are assigned partitions directly, without consumer group,
+   * and do not commit offsets.
+   *
+   * @param environment       Dropwizard environment
+   * @param clientFactory     Kafka Client Factory
+   * @param keyDeserializer   Kafka Key Deserializer
+   * @param valueDeserializer Kafka Value Deserializer
+   * @param properties        Consumer configuration properties
+   * @return Dropwizard managed Kafka Lookup Table
+   */
+  public <K, V> KafkaLookupTable<K, V> build(Environment environment,
+                                             KafkaClientFactory<?, ?> clientFactory,
+                                             Deserializer<K> keyDeserializer,
+                                             Deserializer<V> valueDeserializer,
+                                             Properties properties) {
+    final Properties configs = new Properties();
+    configs.putAll(properties);
+    configs.remove(ConsumerConfig.GROUP_ID_CONFIG);
+    configs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+
+    final KafkaLookupTable<K, V> table =
+        new KafkaLookupTable<>(
+            name,
+            topic,
+            () -> clientFactory.createByteArrayConsumer(environment, configs),
+            keyDeserializer,
+            valueDeserializer,
+            readers,
+            pollTimeoutMs,
+            serializedValues,
+            environment.metrics());
+
+    environment.lifecycle().manage(table);
+
+    return table;
+  }
+}
@@ -0,0 +1,123 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.apache.kafka.common.metrics.MetricsReporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kafka {@link MetricsReporter} that publishes Kafka client metrics as Dropwizard gauges.
+ * <p>
+ * Metrics are named {@code kafka.<group>.<tag values>.<name>}, e.g.
+ * {@code kafka.producer-topic-metrics.my-client.my-topic.record-send-rate}. Gauges read the
+ * Kafka metric directly, so nothing is copied when metrics are updated.
+ */
+public class KafkaMetricsReporter implements MetricsReporter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaMetricsReporter.class);
+
+  /**
+   * Name of the {@link SharedMetricRegistries} registry where metrics are published.
+   */
+  public static final String REGISTRY_CONFIG = "dropwizard.metrics.registry";
+
+  private final Map<MetricName, String> names = new ConcurrentHashMap<>();
+  private MetricRegistry registry;
+
+  /**
+   * Adds this reporter and the metric registry reference to Kafka client configuration.
+   *
+   * @param configs  Kafka client configuration
+   * @param registry Dropwizard metric registry
+   */
+  public static void register(Properties configs, MetricRegistry registry) {
+    register(configs, registry, "");
+  }
+
+  /**
+   * Adds this reporter and the metric registry reference to Kafka client configuration, using a
+   * prefix as needed by Kafka Streams to pass configurations to its internal clients.
+   *
+   * @param configs  Kafka client configuration
+   * @param registry Dropwizard metric registry
+   * @param prefix   Configuration prefix
+   */
+  static void register(Properties configs, MetricRegistry registry, String prefix) {
+    final String reportersConfig = prefix + CommonClientConfigs.METRIC_REPORTER_CLASSES_CONFIG;
+    final Object reporters = configs.get(reportersConfig);
+    if (reporters == null || String.valueOf(reporters).trim().isEmpty()) {
+      configs.put(reportersConfig, KafkaMetricsReporter.class.getName());
+    } else if (!String.valueOf(reporters).contains(KafkaMetricsReporter.class.getName())) {
+      configs.put(reportersConfig, reporters + "," + KafkaMetricsReporter.class.getName());
+    }
+    configs.put(prefix + REGISTRY_CONFIG, registryName(registry));
+  }
+
+  private static String registryName(MetricRegistry registry) {
+    final String name = "dropwizard-kafka-" + System.identityHashCode(registry);
+    SharedMetricRegistries.add(name, registry);
+    return name;
+  }
+
+  @Override
+  public void configure(Map<String, ?> configs) {
+    final Object name = configs.get(REGISTRY_CONFIG);
+    if (name == null) {
+      LOGGER.warn("{} not configured. Kafka metrics will not be reported", REGISTRY_CONFIG);
+    } else {
+      registry = SharedMetricRegistries.getOrCreate(String.valueOf(name));
+    }
+  }
+
+  @Override
+  public void init(List<KafkaMetric> metrics) {
+    metrics.forEach(this::metricChange);
+  }
+
+  @Override
+  public void metricChange(KafkaMetric metric) {
+    if (registry == null) {
+      return;
+    }
+    final String name = name(metric.metricName());
+    registry.remove(name);
+    registry.register(name, (Gauge<Object>) metric::metricValue);
+    names.put(metric.metricName(), name);
+  }
+
+  @Override
+  public void metricRemoval(KafkaMetric metric) {
+    final String name = names.remove(metric.metricName());
+    if (name != null) {
+      registry.remove(name);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (registry != null) {
+      names.values().forEach(registry::remove);
+    }
+    names.clear();
+  }
+
+  static String name(MetricName metricName) {
+    final List<String> parts = new ArrayList<>();
+    parts.add(metricName.group());
+    new TreeMap<>(metricName.tags()).values().forEach(parts::add);
+    parts.add(metricName.name());
+    return MetricRegistry.name("kafka", parts.toArray(new String[0]));
+  }
+}
@@ -0,0 +1,49 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import java.util.TreeSet;
+
+/**
+ * Tracks dispatched and completed offsets of a partition, so offsets are only committed once all
+ * the records up to that offset have been processed. Offsets of failed records are never
+ * committed.
+ */
+class KafkaPartitionOffsets {
+
+  private final TreeSet<Long> pending = new TreeSet<>();
+  private long nextOffset = -1L;
+  private long committedOffset = -1L;
+  private long failedOffset = Long.MAX_VALUE;
+
+  synchronized void dispatched(long offset) {
+    pending.add(offset);
+    nextOffset = offset + 1;
+  }
+
+  synchronized void completed(long offset) {
+    pending.remove(offset);
+  }
+
+  /**
+   * Marks a record as failed: it is no longer pending, but offsets from it are not committable.
+   */
+  synchronized void failed(long offset) {
+    pending.remove(offset);
+    failedOffset = Math.min(failedOffset, offset);
+  }
+
+  synchronized int pending() {
+    return pending.size();
+  }
+
+  /**
+   * @return next offset to commit, or -1 if there is nothing new to commit.
+   */
+  synchronized long committable() {
+    final long offset = Math.min(pending.isEmpty() ? nextOffset : pending.first(), failedOffset);
+    return offset > committedOffset ? offset : -1L;
+  }
+
+  synchronized void committed(long offset) {
+    committedOffset = Math.max(committedOffset, offset);
+  }
+}
@@ -0,0 +1,112 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import io.dropwizard.lifecycle.Managed;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of Kafka Producers shared by configuration. Callers with the same effective
+ * configuration get a typed view over the same {@link KafkaProducer}, so they share its I/O
+ * thread, buffer memory, broker connections and batches.
+ * <p>
+ * Producers are reference-counted: they are closed when the last view is closed, or when the
+ * registry is stopped.
+ */
+public class KafkaProducerRegistry implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaProducerRegistry.class);
+
+  private final Map<Map<String, String>, SharedProducer> producers = new HashMap<>();
+
+  /**
+   * Gets a typed view over a shared producer, creating the producer if no producer with the same
+   * configuration exists. Closing the view releases the shared producer.
+   *
+   * @param configs         Producer configuration
+   * @param keySerializer   Kafka Key Serializer
+   * @param valueSerializer Kafka Value Serializer
+   * @return Producer view
+   */
+  public synchronized <K, V> Producer<K, V> acquire(Properties configs,
+                                                   Serializer<K> keySerializer,
+                                                   Serializer<V> valueSerializer) {
+    final Map<String, String> key = effectiveConfigs(configs);
+    final SharedProducer shared =
+        producers.computeIfAbsent(key, k -> {
+          LOGGER.info("Creating shared Kafka Producer");
+          return new SharedProducer(k);
+        });
+    shared.references++;
+    return new KafkaSharedProducer<>(this, shared.producer, keySerializer, valueSerializer);
+  }
+
+  synchronized void release(Producer<byte[], byte[]> producer, long timeout, TimeUnit timeUnit) {
+    for (SharedProducer shared : producers.values()) {
+      if (shared.producer == producer) {
+        shared.references--;
+        if (shared.references == 0) {
+          producers.remove(shared.configs);
+          shared.producer.close(timeout, timeUnit);
+          LOGGER.info("Shared Kafka Producer closed");
+        }
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return number of shared producers currently open.
+   */
+  public synchronized int size() {
+    return producers.size();
+  }
+
+  @Override
+  public void start() {
+  }
+
+  @Override
+  public void stop() {
+    final List<SharedProducer> toClose;
+    synchronized (this) {
+      toClose = new ArrayList<>(producers.values());
+      producers.clear();
+    }
+    toClose.forEach(shared -> shared.producer.close());
+  }
+
+  private static Map<String, String> effectiveConfigs(Properties configs) {
+    final Map<String, String> effective = new TreeMap<>();
+    configs.forEach((key, value) -> effective.put(String.valueOf(key), String.valueOf(value)));
+    effective.remove(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG);
+    effective.remove(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG);
+    return effective;
+  }
+
+  private static class SharedProducer {
+    final Map<String, String> configs;
+    final KafkaProducer<byte[], byte[]> producer;
+    int references = 0;
+
+    SharedProducer(Map<String, String> configs) {
+      this.configs = configs;
+      final Properties properties = new Properties();
+      properties.putAll(configs);
+      this.producer =
+          new KafkaProducer<>(properties, new ByteArraySerializer(), new ByteArraySerializer());
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handles records failing to process on a {@link KafkaConsumerEngine}, e.g. routing them to retry
+ * topics with {@link KafkaRetryProcessor#route(ConsumerRecord, Exception)}.
+ */
+@FunctionalInterface
+public interface KafkaRecordFailureHandler<K, V> {
+
+  /**
+   * Handles a failed record. Its offset is committed once this method returns. If it throws, the
+   * engine stops and the offset is not committed, so the record is consumed again on restart.
+   *
+   * @param record    Kafka record that failed to process
+   * @param exception Processing error
+   * @throws Exception if the failure cannot be handled
+   */
+  void handle(ConsumerRecord<K, V> record, Exception exception) throws Exception;
+
+  /**
+   * @return handler logging failures and skipping failed records
+   */
+  static <K, V> KafkaRecordFailureHandler<K, V> logging() {
+    final Logger logger = LoggerFactory.getLogger(KafkaRecordFailureHandler.class);
+    return (record, exception) ->
+        logger.error("Error processing record {}-{}@{}, skipping it",
+            record.topic(), record.partition(), record.offset(), exception);
+  }
+
+  /**
+   * @return handler failing on every error, stopping the engine without committing the record
+   */
+  static <K, V> KafkaRecordFailureHandler<K, V> failing() {
+    return (record, exception) -> {
+      throw exception;
+    };
+  }
+}
@@ -0,0 +1,19 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+/**
+ * Processing logic applied to each record consumed by a {@link KafkaConsumerEngine}.
+ */
+@FunctionalInterface
+public interface KafkaRecordProcessor<K, V> {
+
+  /**
+   * Process a single record. Implementations are called from worker threads and should be
+   * thread-safe when the engine has more than one worker.
+   *
+   * @param record Kafka record
+   * @throws Exception if processing fails
+   */
+  void process(ConsumerRecord<K, V> record) throws Exception;
+}
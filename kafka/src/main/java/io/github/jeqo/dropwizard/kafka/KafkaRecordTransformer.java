@@ -0,0 +1,23 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.util.Collection;
+
+/**
+ * Transformation applied to each record consumed by a {@link KafkaTransactionalPipeline}.
+ */
+@FunctionalInterface
+public interface KafkaRecordTransformer<K, V, KO, VO> {
+
+  /**
+   * Transforms a single record into the records to produce. Output records are sent in the same
+   * transaction that commits the input record offset.
+   *
+   * @param record Kafka record
+   * @return records to produce, empty if there is nothing to produce
+   * @throws Exception if transformation fails
+   */
+  Collection<ProducerRecord<KO, VO>> transform(ConsumerRecord<K, V> record) throws Exception;
+}
@@ -0,0 +1,202 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Managed consumer of the retry topics for one delay tier. Records are processed once their delay
+ * has passed since they were routed. Partitions with records not yet due are paused, with the
+ * position rewound to the first pending record, and resumed when it is due; the consumer keeps
+ * polling meanwhile, so it stays alive in its group without sleeping.
+ * <p>
+ * Records failing again are routed by {@link KafkaRetryProcessor} to the next tier.
+ */
+public class KafkaRetryConsumer<K, V> implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaRetryConsumer.class);
+
+  private final String name;
+  private final KafkaConsumer<K, V> consumer;
+  private final List<String> topics;
+  private final KafkaRetryProcessor<K, V> processor;
+  private final long delayMs;
+  private final long pollTimeoutMs;
+
+  private final Map<TopicPartition, Long> pausedUntil = new HashMap<>();
+  private final Map<TopicPartition, OffsetAndMetadata> processed = new HashMap<>();
+
+  private volatile boolean running = false;
+  private volatile int pausedPartitions = 0;
+  private Thread pollThread;
+
+  KafkaRetryConsumer(String name,
+                     KafkaConsumer<K, V> consumer,
+                     List<String> topics,
+                     KafkaRetryProcessor<K, V> processor,
+                     long delayMs,
+                     long pollTimeoutMs,
+                     MetricRegistry metrics) {
+    this.name = name;
+    this.consumer = consumer;
+    this.topics = topics;
+    this.processor = processor;
+    this.delayMs = delayMs;
+    this.pollTimeoutMs = pollTimeoutMs;
+
+    metrics.register(name(KafkaRetryConsumer.class, name, "paused-partitions"),
+        (Gauge<Integer>) () -> pausedPartitions);
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    pollThread = new Thread(this::pollLoop, "kafka-retry-consumer-" + name);
+    pollThread.start();
+  }
+
+  @Override
+  public void stop() throws Exception {
+    running = false;
+    consumer.wakeup();
+    if (pollThread != null) {
+      pollThread.join();
+    }
+  }
+
+  private void pollLoop() {
+    try {
+      consumer.subscribe(topics, new RebalanceListener());
+      while (running) {
+        final ConsumerRecords<K, V> records = consumer.poll(nextPollTimeoutMs());
+        for (TopicPartition topicPartition : records.partitions()) {
+          processPartition(topicPartition, records.records(topicPartition));
+        }
+        resumeDue();
+        commit();
+      }
+    } catch (WakeupException e) {
+      if (running) {
+        LOGGER.error("Kafka retry consumer {} woken up unexpectedly", name, e);
+      }
+    } catch (Exception e) {
+      LOGGER.error("Kafka retry consumer {} failed", name, e);
+    } finally {
+      try {
+        commitSync();
+      } finally {
+        consumer.close();
+        LOGGER.info("Kafka retry consumer {} stopped", name);
+      }
+    }
+  }
+
+  /**
+   * Processes records due, in offset order. On the first record not yet due, the partition is
+   * paused and rewound to it. If a record cannot be routed to the next tier, it is tried again
+   * after another delay.
+   */
+  private void processPartition(TopicPartition topicPartition, List<ConsumerRecord<K, V>> records) {
+    for (ConsumerRecord<K, V> record : records) {
+      final long dueMs = record.timestamp() + delayMs;
+      if (dueMs > System.currentTimeMillis()) {
+        pause(topicPartition, record.offset(), dueMs);
+        return;
+      }
+      try {
+        processor.process(record);
+      } catch (Exception e) {
+        LOGGER.error("Error routing record {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+        pause(topicPartition, record.offset(), System.currentTimeMillis() + delayMs);
+        return;
+      }
+      processed.put(topicPartition, new OffsetAndMetadata(record.offset() + 1));
+    }
+  }
+
+  private void pause(TopicPartition topicPartition, long offset, long untilMs) {
+    consumer.seek(topicPartition, offset);
+    consumer.pause(Collections.singleton(topicPartition));
+    pausedUntil.put(topicPartition, untilMs);
+  }
+
+  private void resumeDue() {
+    final long now = System.currentTimeMillis();
+    final Iterator<Map.Entry<TopicPartition, Long>> iterator = pausedUntil.entrySet().iterator();
+    while (iterator.hasNext()) {
+      final Map.Entry<TopicPartition, Long> entry = iterator.next();
+      if (entry.getValue() <= now) {
+        consumer.resume(Collections.singleton(entry.getKey()));
+        iterator.remove();
+      }
+    }
+    pausedPartitions = pausedUntil.size();
+  }
+
+  /**
+   * Polls no longer than until the next paused partition is due.
+   */
+  private long nextPollTimeoutMs() {
+    long timeoutMs = pollTimeoutMs;
+    final long now = System.currentTimeMillis();
+    for (long dueMs : pausedUntil.values()) {
+      timeoutMs = Math.min(timeoutMs, Math.max(0L, dueMs - now));
+    }
+    return timeoutMs;
+  }
+
+  private void commit() {
+    if (!processed.isEmpty()) {
+      final Map<TopicPartition, OffsetAndMetadata> toCommit = new HashMap<>(processed);
+      processed.clear();
+      consumer.commitAsync(toCommit, (committed, exception) -> {
+        if (exception != null) {
+          LOGGER.warn("Error committing offsets {}", committed, exception);
+        }
+      });
+    }
+  }
+
+  private void commitSync() {
+    if (!processed.isEmpty()) {
+      try {
+        consumer.commitSync(processed);
+        processed.clear();
+      } catch (Exception e) {
+        LOGGER.warn("Error committing offsets {}", processed, e);
+      }
+    }
+  }
+
+  private class RebalanceListener implements ConsumerRebalanceListener {
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+      commitSync();
+      partitions.forEach(pausedUntil::remove);
+      pausedPartitions = pausedUntil.size();
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * {@link KafkaRecordProcessor} that routes records failing to process to tiered retry topics, and
+ * to a dead-letter topic once retries are exhausted, instead of blocking the partition.
+ * <p>
+ * Routed records keep key, value and headers, plus headers recording the attempt number, the
+ * original topic, partition and offset, and the last error. Retry topics are consumed by
+ * {@link KafkaRetryConsumer}s, that process records again once their delay has passed.
+ */
+public class KafkaRetryProcessor<K, V> implements KafkaRecordProcessor<K, V>, KafkaRecordFailureHandler<K, V> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaRetryProcessor.class);
+
+  public static final String ATTEMPT_HEADER = "kafka.retry.attempt";
+  public static final String TOPIC_HEADER = "kafka.retry.topic";
+  public static final String PARTITION_HEADER = "kafka.retry.partition";
+  public static final String OFFSET_HEADER = "kafka.retry.offset";
+  public static final String EXCEPTION_HEADER = "kafka.retry.exception";
+  public static final String EXCEPTION_MESSAGE_HEADER = "kafka.retry.exception-message";
+
+  private final KafkaRecordProcessor<K, V> processor;
+  private final Producer<K, V> producer;
+  private final List<Long> delaysMs;
+
+  private final Meter[] retried;
+  private final Meter deadLettered;
+
+  KafkaRetryProcessor(String name,
+                      KafkaRecordProcessor<K, V> processor,
+                      Producer<K, V> producer,
+                      List<Long> delaysMs,
+                      MetricRegistry metrics) {
+    this.processor = processor;
+    this.producer = producer;
+    this.delaysMs = delaysMs;
+
+    this.retried = new Meter[delaysMs.size()];
+    for (int i = 0; i < delaysMs.size(); i++) {
+      this.retried[i] = metrics.meter(name(KafkaRetryProcessor.class, name, "retried", delaysMs.get(i) + "ms"));
+    }
+    this.deadLettered = metrics.meter(name(KafkaRetryProcessor.class, name, "dead-lettered"));
+  }
+
+  /**
+   * Processes a record, routing it to the next retry topic (or the dead-letter topic) if
+   * processing fails.
+   *
+   * @param record Kafka record
+   * @throws Exception if the record cannot be routed
+   */
+  @Override
+  public void process(ConsumerRecord<K, V> record) throws Exception {
+    try {
+      processor.process(record);
+    } catch (Exception e) {
+      route(record, e);
+    }
+  }
+
+  /**
+   * Routes a record failing on a {@link KafkaConsumerEngine}, when used as its failure handler.
+   */
+  @Override
+  public void handle(ConsumerRecord<K, V> record, Exception exception) throws Exception {
+    route(record, exception);
+  }
+
+  /**
+   * Sends a record to the next retry topic, or to the dead-letter topic if retries are exhausted.
+   * Blocks until the record is acknowledged, so callers do not commit its offset before.
+   *
+   * @param record Kafka record that failed to process
+   * @param error  Processing error
+   * @throws Exception if the record cannot be sent
+   */
+  public void route(ConsumerRecord<K, V> record, Exception error) throws Exception {
+    final int attempt = intHeader(record.headers(), ATTEMPT_HEADER, 0) + 1;
+    final String sourceTopic = stringHeader(record.headers(), TOPIC_HEADER, record.topic());
+
+    final Headers headers = new RecordHeaders();
+    for (Header header : record.headers()) {
+      if (!header.key().startsWith("kafka.retry.")) {
+        headers.add(header);
+      }
+    }
+    headers.add(ATTEMPT_HEADER, bytes(String.valueOf(attempt)));
+    headers.add(TOPIC_HEADER, bytes(sourceTopic));
+    headers.add(PARTITION_HEADER,
+        bytes(stringHeader(record.headers(), PARTITION_HEADER, String.valueOf(record.partition()))));
+    headers.add(OFFSET_HEADER,
+        bytes(stringHeader(record.headers(), OFFSET_HEADER, String.valueOf(record.offset()))));
+    headers.add(EXCEPTION_HEADER, bytes(error.getClass().getName()));
+    headers.add(EXCEPTION_MESSAGE_HEADER, bytes(String.valueOf(error.getMessage())));
+
+    final String topic;
+    if (attempt <= delaysMs.size()) {
+      topic = retryTopic(sourceTopic, delaysMs.get(attempt - 1));
+      retried[attempt - 1].mark();
+    } else {
+      topic = deadLetterTopic(sourceTopic);
+      deadLettered.mark();
+      LOGGER.warn("Record {}-{}@{} failed after {} attempts, sending to {}",
+          sourceTopic, record.partition(), record.offset(), attempt, topic, error);
+    }
+
+    try {
+      producer.send(new ProducerRecord<>(topic, null, null, record.key(), record.value(), headers)).get();
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  /**
+   * @return retry topic name for a source topic and delay
+   */
+  public static String retryTopic(String sourceTopic, long delayMs) {
+    return sourceTopic + "-retry-" + delayMs;
+  }
+
+  /**
+   * @return dead-letter topic name for a source topic
+   */
+  public static String deadLetterTopic(String sourceTopic) {
+    return sourceTopic + "-dlq";
+  }
+
+  private static int intHeader(Headers headers, String key, int defaultValue) {
+    final String value = stringHeader(headers, key, null);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  private static String stringHeader(Headers headers, String key, String defaultValue) {
+    final Header header = headers.lastHeader(key);
+    if (header == null || header.value() == null) {
+      return defaultValue;
+    }
+    return new String(header.value(), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
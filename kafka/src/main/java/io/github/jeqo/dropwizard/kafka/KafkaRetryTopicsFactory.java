@@ -0,0 +1,205 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.setup.Environment;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.constraints.Min;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Dropwizard Factory to create a retry subsystem: a {@link KafkaRetryProcessor} routing failed
+ * records to tiered retry topics and a dead-letter topic, and one managed
+ * {@link KafkaRetryConsumer} per retry tier.
+ */
+public class KafkaRetryTopicsFactory {
+
+  @NotEmpty
+  @JsonProperty
+  private String name;
+
+  @NotEmpty
+  @JsonProperty
+  private String groupId;
+
+  @NotEmpty
+  @JsonProperty
+  private List<String> topics = new ArrayList<>();
+
+  @NotEmpty
+  @JsonProperty
+  private List<Long> delaysMs = new ArrayList<>(Arrays.asList(1000L, 30000L, 300000L));
+
+  @JsonProperty
+  private boolean prepareTopics = true;
+
+  @Min(0)
+  @JsonProperty
+  private long pollTimeoutMs = 1000L;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getGroupId() {
+    return groupId;
+  }
+
+  public void setGroupId(String groupId) {
+    this.groupId = groupId;
+  }
+
+  public List<String> getTopics() {
+    return topics;
+  }
+
+  public void setTopics(List<String> topics) {
+    this.topics = topics;
+  }
+
+  public List<Long> getDelaysMs() {
+    return delaysMs;
+  }
+
+  public void setDelaysMs(List<Long> delaysMs) {
+    this.delaysMs = delaysMs;
+  }
+
+  public boolean isPrepareTopics() {
+    return prepareTopics;
+  }
+
+  public void setPrepareTopics(boolean prepareTopics) {
+    this.prepareTopics = prepareTopics;
+  }
+
+  public long getPollTimeoutMs() {
+    return pollTimeoutMs;
+  }
+
+  public void setPollTimeoutMs(long pollTimeoutMs) {
+    this.pollTimeoutMs = pollTimeoutMs;
+  }
+
+  /**
+   * Creates the retry subsystem for the configured source topics. Retry and dead-letter topics
+   * are created (when {@code prepareTopics} is enabled) with the settings of the source topic
+   * declared on {@link KafkaClientFactory}, or {@link KafkaTopic} defaults if it is not declared.
+   * <p>
+   * The returned processor wraps the given one: use it to process source topics, e.g. with a
+   * {@link KafkaConsumerEngine}, so failures are routed out of band instead of blocking.
+   *
+   * @param environment        Dropwizard environment
+   * @param clientFactory      Kafka Client Factory
+   * @param keySerializer      Kafka Key Serializer
+   * @param valueSerializer    Kafka Value Serializer
+   * @param keyDeserializer    Kafka Key Deserializer
+   * @param valueDeserializer  Kafka Value Deserializer
+   * @param consumerProperties Retry consumers configuration properties
+   * @param producerProperties Retry producer configuration properties
+   * @param processor          Record processor
+   * @return Record processor routing failures to retry topics
+   */
+  public <K, V> KafkaRetryProcessor<K, V> build(Environment environment,
+                                                KafkaClientFactory<K, V> clientFactory,
+                                                Serializer<K> keySerializer,
+                                                Serializer<V> valueSerializer,
+                                                Deserializer<K> keyDeserializer,
+                                                Deserializer<V> valueDeserializer,
+                                                Properties consumerProperties,
+                                                Properties producerProperties,
+                                                KafkaRecordProcessor<K, V> processor) {
+    if (prepareTopics) {
+      final KafkaTopicsReconciler.Result result = clientFactory.prepareTopics(retryTopics(clientFactory));
+      if (!result.isSuccessful()) {
+        throw new IllegalStateException("Retry topics for " + name + " not prepared: " + result);
+      }
+    }
+
+    final Properties producerConfigs = new Properties();
+    producerConfigs.putAll(producerProperties);
+    producerConfigs.put(ProducerConfig.ACKS_CONFIG, "all");
+    final KafkaProducer<K, V> producer =
+        clientFactory.createProducer(environment, keySerializer, valueSerializer, producerConfigs);
+    // registered before retry consumers, so it is closed after them
+    environment.lifecycle().manage(new Managed() {
+      @Override
+      public void start() {
+      }
+
+      @Override
+      public void stop() {
+        producer.close();
+      }
+    });
+
+    final KafkaRetryProcessor<K, V> retryProcessor =
+        new KafkaRetryProcessor<>(name, processor, producer, delaysMs, environment.metrics());
+
+    for (long delayMs : delaysMs) {
+      final List<String> tierTopics = new ArrayList<>();
+      topics.forEach(topic -> tierTopics.add(KafkaRetryProcessor.retryTopic(topic, delayMs)));
+
+      final Properties consumerConfigs = new Properties();
+      consumerConfigs.putAll(consumerProperties);
+      consumerConfigs.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+      consumerConfigs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+      consumerConfigs.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+
+      environment.lifecycle().manage(
+          new KafkaRetryConsumer<>(
+              name + "-" + delayMs + "ms",
+              clientFactory.createConsumer(environment, keyDeserializer, valueDeserializer, consumerConfigs),
+              tierTopics,
+              retryProcessor,
+              delayMs,
+              pollTimeoutMs,
+              environment.metrics()));
+    }
+
+    return retryProcessor;
+  }
+
+  private List<KafkaTopic> retryTopics(KafkaClientFactory<?, ?> clientFactory) {
+    final List<KafkaTopic> retryTopics = new ArrayList<>();
+    for (String topic : topics) {
+      final KafkaTopic source = clientFactory.getTopics().stream()
+          .filter(kafkaTopic -> topic.equals(kafkaTopic.getName()))
+          .findFirst()
+          .orElseGet(KafkaTopic::new);
+      for (long delayMs : delaysMs) {
+        retryTopics.add(copy(source, KafkaRetryProcessor.retryTopic(topic, delayMs)));
+      }
+      retryTopics.add(copy(source, KafkaRetryProcessor.deadLetterTopic(topic)));
+    }
+    return retryTopics;
+  }
+
+  /**
+   * Copies partitions, replication and retention from the source topic. Retry and dead-letter
+   * topics are never compacted, as compaction would drop pending records of a key failing again.
+   */
+  private static KafkaTopic copy(KafkaTopic source, String name) {
+    final KafkaTopic topic = new KafkaTopic();
+    topic.setName(name);
+    topic.setPartitions(source.getPartitions());
+    topic.setReplicationFactor(source.getReplicationFactor());
+    topic.setCleanupPolicy("delete");
+    topic.setRetentionMs(source.getRetentionMs());
+    topic.setRetentionBytes(source.getRetentionBytes());
+    return topic;
+  }
+}
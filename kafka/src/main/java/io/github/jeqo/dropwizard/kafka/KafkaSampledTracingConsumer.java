@@ -0,0 +1,223 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import io.opentracing.References;
+import io.opentracing.SpanContext;
+import io.opentracing.Tracer;
+import io.opentracing.propagation.Format;
+import io.opentracing.tag.Tags;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.consumer.OffsetCommitCallback;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Consumer tracing only records selected by a {@link KafkaTracingSampler}. Sampled records get a
+ * {@code receive} span that follows from the context found on record headers. Other records are
+ * returned as they are.
+ */
+public class KafkaSampledTracingConsumer<K, V> implements Consumer<K, V> {
+
+  private final Consumer<K, V> consumer;
+  private final Tracer tracer;
+  private final KafkaTracingSampler sampler;
+
+  KafkaSampledTracingConsumer(Consumer<K, V> consumer, Tracer tracer, KafkaTracingSampler sampler) {
+    this.consumer = consumer;
+    this.tracer = tracer;
+    this.sampler = sampler;
+  }
+
+  @Override
+  public ConsumerRecords<K, V> poll(long timeout) {
+    final ConsumerRecords<K, V> records = consumer.poll(timeout);
+    if (!records.isEmpty()) {
+      for (ConsumerRecord<K, V> record : records) {
+        if (sampler.sample(record.topic(), record.headers(), null)) {
+          trace(record);
+        }
+      }
+    }
+    return records;
+  }
+
+  private void trace(ConsumerRecord<K, V> record) {
+    final Tracer.SpanBuilder spanBuilder =
+        tracer.buildSpan("receive")
+            .ignoreActiveSpan()
+            .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CONSUMER)
+            .withTag(Tags.COMPONENT.getKey(), KafkaSampledTracingProducer.COMPONENT)
+            .withTag(Tags.MESSAGE_BUS_DESTINATION.getKey(), record.topic())
+            .withTag("partition", record.partition())
+            .withTag("offset", record.offset());
+    final SpanContext parent =
+        tracer.extract(Format.Builtin.TEXT_MAP, new KafkaHeadersCarrier(record.headers()));
+    if (parent != null) {
+      spanBuilder.addReference(References.FOLLOWS_FROM, parent);
+    }
+    spanBuilder.startManual().finish();
+  }
+
+  @Override
+  public Set<TopicPartition> assignment() {
+    return consumer.assignment();
+  }
+
+  @Override
+  public Set<String> subscription() {
+    return consumer.subscription();
+  }
+
+  @Override
+  public void subscribe(Collection<String> topics) {
+    consumer.subscribe(topics);
+  }
+
+  @Override
+  public void subscribe(Collection<String> topics, ConsumerRebalanceListener callback) {
+    consumer.subscribe(topics, callback);
+  }
+
+  @Override
+  public void assign(Collection<TopicPartition> partitions) {
+    consumer.assign(partitions);
+  }
+
+  @Override
+  public void subscribe(Pattern pattern, ConsumerRebalanceListener callback) {
+    consumer.subscribe(pattern, callback);
+  }
+
+  @Override
+  public void subscribe(Pattern pattern) {
+    consumer.subscribe(pattern);
+  }
+
+  @Override
+  public void unsubscribe() {
+    consumer.unsubscribe();
+  }
+
+  @Override
+  public void commitSync() {
+    consumer.commitSync();
+  }
+
+  @Override
+  public void commitSync(Map<TopicPartition, OffsetAndMetadata> offsets) {
+    consumer.commitSync(offsets);
+  }
+
+  @Override
+  public void commitAsync() {
+    consumer.commitAsync();
+  }
+
+  @Override
+  public void commitAsync(OffsetCommitCallback callback) {
+    consumer.commitAsync(callback);
+  }
+
+  @Override
+  public void commitAsync(Map<TopicPartition, OffsetAndMetadata> offsets, OffsetCommitCallback callback) {
+    consumer.commitAsync(offsets, callback);
+  }
+
+  @Override
+  public void seek(TopicPartition partition, long offset) {
+    consumer.seek(partition, offset);
+  }
+
+  @Override
+  public void seekToBeginning(Collection<TopicPartition> partitions) {
+    consumer.seekToBeginning(partitions);
+  }
+
+  @Override
+  public void seekToEnd(Collection<TopicPartition> partitions) {
+    consumer.seekToEnd(partitions);
+  }
+
+  @Override
+  public long position(TopicPartition partition) {
+    return consumer.position(partition);
+  }
+
+  @Override
+  public OffsetAndMetadata committed(TopicPartition partition) {
+    return consumer.committed(partition);
+  }
+
+  @Override
+  public Map<MetricName, ? extends Metric> metrics() {
+    return consumer.metrics();
+  }
+
+  @Override
+  public List<PartitionInfo> partitionsFor(String topic) {
+    return consumer.partitionsFor(topic);
+  }
+
+  @Override
+  public Map<String, List<PartitionInfo>> listTopics() {
+    return consumer.listTopics();
+  }
+
+  @Override
+  public Set<TopicPartition> paused() {
+    return consumer.paused();
+  }
+
+  @Override
+  public void pause(Collection<TopicPartition> partitions) {
+    consumer.pause(partitions);
+  }
+
+  @Override
+  public void resume(Collection<TopicPartition> partitions) {
+    consumer.resume(partitions);
+  }
+
+  @Override
+  public Map<TopicPartition, OffsetAndTimestamp> offsetsForTimes(Map<TopicPartition, Long> timestampsToSearch) {
+    return consumer.offsetsForTimes(timestampsToSearch);
+  }
+
+  @Override
+  public Map<TopicPartition, Long> beginningOffsets(Collection<TopicPartition> partitions) {
+    return consumer.beginningOffsets(partitions);
+  }
+
+  @Override
+  public Map<TopicPartition, Long> endOffsets(Collection<TopicPartition> partitions) {
+    return consumer.endOffsets(partitions);
+  }
+
+  @Override
+  public void close() {
+    consumer.close();
+  }
+
+  @Override
+  public void close(long timeout, TimeUnit unit) {
+    consumer.close(timeout, unit);
+  }
+
+  @Override
+  public void wakeup() {
+    consumer.wakeup();
+  }
+}
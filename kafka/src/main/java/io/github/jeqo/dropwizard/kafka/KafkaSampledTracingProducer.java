@@ -0,0 +1,129 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import io.opentracing.Span;
+import io.opentracing.Tracer;
+import io.opentracing.propagation.Format;
+import io.opentracing.tag.Tags;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producer tracing only records selected by a {@link KafkaTracingSampler}. Sampled records get a
+ * {@code send} span, finished when the record is acknowledged, with its context injected on
+ * record headers. Other records are sent as they are.
+ */
+public class KafkaSampledTracingProducer<K, V> implements Producer<K, V> {
+
+  static final String COMPONENT = "java-kafka";
+
+  private final Producer<K, V> producer;
+  private final Tracer tracer;
+  private final KafkaTracingSampler sampler;
+
+  KafkaSampledTracingProducer(Producer<K, V> producer, Tracer tracer, KafkaTracingSampler sampler) {
+    this.producer = producer;
+    this.tracer = tracer;
+    this.sampler = sampler;
+  }
+
+  @Override
+  public Future<RecordMetadata> send(ProducerRecord<K, V> record) {
+    return send(record, null);
+  }
+
+  @Override
+  public Future<RecordMetadata> send(ProducerRecord<K, V> record, Callback callback) {
+    if (!sampler.sample(record.topic(), record.headers(), tracer)) {
+      return producer.send(record, callback);
+    }
+
+    final Span span =
+        tracer.buildSpan("send")
+            .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_PRODUCER)
+            .withTag(Tags.COMPONENT.getKey(), COMPONENT)
+            .withTag(Tags.MESSAGE_BUS_DESTINATION.getKey(), record.topic())
+            .startManual();
+    try {
+      tracer.inject(span.context(), Format.Builtin.TEXT_MAP, new KafkaHeadersCarrier(record.headers()));
+      return producer.send(record, (metadata, exception) -> {
+        if (exception != null) {
+          Tags.ERROR.set(span, true);
+        } else {
+          span.setTag("partition", metadata.partition());
+          span.setTag("offset", metadata.offset());
+        }
+        span.finish();
+        if (callback != null) {
+          callback.onCompletion(metadata, exception);
+        }
+      });
+    } catch (RuntimeException e) {
+      Tags.ERROR.set(span, true);
+      span.finish();
+      throw e;
+    }
+  }
+
+  @Override
+  public void flush() {
+    producer.flush();
+  }
+
+  @Override
+  public List<PartitionInfo> partitionsFor(String topic) {
+    return producer.partitionsFor(topic);
+  }
+
+  @Override
+  public Map<MetricName, ? extends Metric> metrics() {
+    return producer.metrics();
+  }
+
+  @Override
+  public void close() {
+    producer.close();
+  }
+
+  @Override
+  public void close(long timeout, TimeUnit unit) {
+    producer.close(timeout, unit);
+  }
+
+  @Override
+  public void initTransactions() {
+    producer.initTransactions();
+  }
+
+  @Override
+  public void beginTransaction() {
+    producer.beginTransaction();
+  }
+
+  @Override
+  public void sendOffsetsToTransaction(Map<TopicPartition, OffsetAndMetadata> offsets,
+                                       String consumerGroupId) {
+    producer.sendOffsetsToTransaction(offsets, consumerGroupId);
+  }
+
+  @Override
+  public void commitTransaction() {
+    producer.commitTransaction();
+  }
+
+  @Override
+  public void abortTransaction() {
+    producer.abortTransaction();
+  }
+}
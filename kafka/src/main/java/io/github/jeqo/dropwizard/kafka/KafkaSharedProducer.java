@@ -0,0 +1,122 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ExtendedSerializer;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Typed view over a producer shared through {@link KafkaProducerRegistry}. Records are serialized
+ * with the view's serializers and sent by the shared producer.
+ * <p>
+ * Transactions are not supported, as the underlying producer is shared.
+ */
+class KafkaSharedProducer<K, V> implements Producer<K, V> {
+
+  private final KafkaProducerRegistry registry;
+  private final Producer<byte[], byte[]> producer;
+  private final ExtendedSerializer<K> keySerializer;
+  private final ExtendedSerializer<V> valueSerializer;
+  private final AtomicBoolean closed = new AtomicBoolean(false);
+
+  KafkaSharedProducer(KafkaProducerRegistry registry,
+                      Producer<byte[], byte[]> producer,
+                      Serializer<K> keySerializer,
+                      Serializer<V> valueSerializer) {
+    this.registry = registry;
+    this.producer = producer;
+    this.keySerializer = ExtendedSerializer.Wrapper.ensureExtended(keySerializer);
+    this.valueSerializer = ExtendedSerializer.Wrapper.ensureExtended(valueSerializer);
+  }
+
+  @Override
+  public Future<RecordMetadata> send(ProducerRecord<K, V> record) {
+    return send(record, null);
+  }
+
+  @Override
+  public Future<RecordMetadata> send(ProducerRecord<K, V> record, Callback callback) {
+    final byte[] key = keySerializer.serialize(record.topic(), record.headers(), record.key());
+    final byte[] value = valueSerializer.serialize(record.topic(), record.headers(), record.value());
+    return producer.send(
+        new ProducerRecord<>(
+            record.topic(),
+            record.partition(),
+            record.timestamp(),
+            key,
+            value,
+            record.headers()),
+        callback);
+  }
+
+  /**
+   * Flushes the shared producer, including records sent by other views.
+   */
+  @Override
+  public void flush() {
+    producer.flush();
+  }
+
+  @Override
+  public List<PartitionInfo> partitionsFor(String topic) {
+    return producer.partitionsFor(topic);
+  }
+
+  @Override
+  public Map<MetricName, ? extends Metric> metrics() {
+    return producer.metrics();
+  }
+
+  @Override
+  public void close() {
+    close(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void close(long timeout, TimeUnit unit) {
+    if (closed.compareAndSet(false, true)) {
+      keySerializer.close();
+      valueSerializer.close();
+      registry.release(producer, timeout, unit);
+    }
+  }
+
+  @Override
+  public void initTransactions() {
+    throw new UnsupportedOperationException("Transactions are not supported on shared producers");
+  }
+
+  @Override
+  public void beginTransaction() {
+    throw new UnsupportedOperationException("Transactions are not supported on shared producers");
+  }
+
+  @Override
+  public void sendOffsetsToTransaction(Map<TopicPartition, OffsetAndMetadata> offsets,
+                                       String consumerGroupId) {
+    throw new UnsupportedOperationException("Transactions are not supported on shared producers");
+  }
+
+  @Override
+  public void commitTransaction() {
+    throw new UnsupportedOperationException("Transactions are not supported on shared producers");
+  }
+
+  @Override
+  public void abortTransaction() {
+    throw new UnsupportedOperationException("Transactions are not supported on shared producers");
+  }
+}
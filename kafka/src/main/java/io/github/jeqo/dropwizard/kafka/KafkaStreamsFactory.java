@@ -1,5 +1,7 @@
 package io.github.jeqo.dropwizard.kafka;
 
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Environment;
 import org.apache.kafka.streams.KafkaStreams;
@@ -9,7 +11,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -26,6 +32,24 @@ public class KafkaStreamsFactory {
   @Valid
   private String stateDir;
 
+  @Pattern(regexp = ".+:\\d{1,5}", message = "must be host:port")
+  @JsonProperty
+  private String applicationServer;
+
+  @Valid
+  @JsonProperty
+  private KafkaStreamsRocksDBFactory rocksDB;
+
+  @Min(0)
+  @JsonProperty
+  private Integer numStandbyReplicas;
+
+  @JsonProperty
+  private Map<String, String> consumerOverrides = new HashMap<>();
+
+  @JsonProperty
+  private boolean metricsEnabled = false;
+
   public String getBootstrapServers() {
     return bootstrapServers;
   }
@@ -42,13 +66,77 @@ public class KafkaStreamsFactory {
     this.stateDir = stateDir;
   }
 
+  /**
+   * @return host:port where this instance serves interactive queries
+   */
+  public String getApplicationServer() {
+    return applicationServer;
+  }
+
+  public void setApplicationServer(String applicationServer) {
+    this.applicationServer = applicationServer;
+  }
+
+  public KafkaStreamsRocksDBFactory getRocksDB() {
+    return rocksDB;
+  }
+
+  public void setRocksDB(KafkaStreamsRocksDBFactory rocksDB) {
+    this.rocksDB = rocksDB;
+  }
+
+  public Integer getNumStandbyReplicas() {
+    return numStandbyReplicas;
+  }
+
+  public void setNumStandbyReplicas(Integer numStandbyReplicas) {
+    this.numStandbyReplicas = numStandbyReplicas;
+  }
+
+  /**
+   * @return consumer properties applied to all Kafka Streams consumers (main, restore and global),
+   * as Kafka Streams 1.0 cannot configure the restore consumer alone
+   */
+  public Map<String, String> getConsumerOverrides() {
+    return consumerOverrides;
+  }
+
+  public void setConsumerOverrides(Map<String, String> consumerOverrides) {
+    this.consumerOverrides = consumerOverrides;
+  }
+
+  public boolean isMetricsEnabled() {
+    return metricsEnabled;
+  }
+
+  public void setMetricsEnabled(boolean metricsEnabled) {
+    this.metricsEnabled = metricsEnabled;
+  }
+
   public KafkaStreams buildStreams(Environment environment,
                                    KStreamBuilder builder,
                                    Properties properties) {
     final Properties configs = new Properties();
     configs.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
     configs.put(StreamsConfig.STATE_DIR_CONFIG, stateDir);
+    if (applicationServer != null) {
+      configs.put(StreamsConfig.APPLICATION_SERVER_CONFIG, applicationServer);
+    }
+    if (numStandbyReplicas != null) {
+      configs.put(StreamsConfig.NUM_STANDBY_REPLICAS_CONFIG, numStandbyReplicas);
+    }
+    consumerOverrides.forEach((key, value) -> configs.put(StreamsConfig.consumerPrefix(key), value));
+    if (rocksDB != null) {
+      rocksDB.configure(configs);
+      rocksDB.registerMetrics(environment.metrics());
+    }
     configs.putAll(properties);
+    if (metricsEnabled) {
+      final MetricRegistry metrics = environment.metrics();
+      KafkaMetricsReporter.register(configs, metrics);
+      KafkaMetricsReporter.register(configs, metrics, StreamsConfig.PRODUCER_PREFIX);
+      KafkaMetricsReporter.register(configs, metrics, StreamsConfig.CONSUMER_PREFIX);
+    }
 
     final KafkaStreams kafkaStreams = new KafkaStreams(builder, configs);
 
@@ -67,4 +155,20 @@ public class KafkaStreamsFactory {
 
     return kafkaStreams;
   }
+
+  /**
+   * Creates a {@link KafkaStreamsRestoreListener} and registers it as global state restore
+   * listener. It must be called before streams are started.
+   *
+   * @param environment  Dropwizard Environment
+   * @param kafkaStreams Kafka Streams instance
+   * @return restore listener, to be used by {@link KafkaStreamsReadinessHealthCheck}
+   */
+  public KafkaStreamsRestoreListener buildRestoreListener(Environment environment,
+                                                          KafkaStreams kafkaStreams) {
+    final KafkaStreamsRestoreListener restoreListener =
+        new KafkaStreamsRestoreListener(kafkaStreams, environment.metrics());
+    kafkaStreams.setGlobalStateRestoreListener(restoreListener);
+    return restoreListener;
+  }
 }
@@ -0,0 +1,36 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.health.HealthCheck;
+import org.apache.kafka.streams.KafkaStreams;
+
+/**
+ * Readiness check for Kafka Streams: healthy only when the instance is running and no state store
+ * is being restored. While restoring, it reports restore progress and estimated time to complete,
+ * so it can be told apart from a failed instance.
+ */
+public class KafkaStreamsReadinessHealthCheck extends HealthCheck {
+  private final KafkaStreams kafkaStreams;
+  private final KafkaStreamsRestoreListener restoreListener;
+
+  public KafkaStreamsReadinessHealthCheck(KafkaStreams kafkaStreams,
+                                          KafkaStreamsRestoreListener restoreListener) {
+    this.kafkaStreams = kafkaStreams;
+    this.restoreListener = restoreListener;
+  }
+
+  @Override
+  protected Result check() throws Exception {
+    final KafkaStreams.State state = kafkaStreams.state();
+    if (!state.isRunning()) {
+      return Result.unhealthy("KafkaStreams failed or stopped: %s", state);
+    }
+    if (restoreListener.isRestoring()) {
+      return Result.unhealthy("KafkaStreams restoring: %.1f%% done, ETA %d ms",
+          restoreListener.progress() * 100, restoreListener.etaMs());
+    }
+    if (state == KafkaStreams.State.REBALANCING) {
+      return Result.unhealthy("KafkaStreams rebalancing");
+    }
+    return Result.healthy();
+  }
+}
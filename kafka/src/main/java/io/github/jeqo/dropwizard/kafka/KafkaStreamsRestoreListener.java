@@ -0,0 +1,223 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.processor.StateRestoreListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * {@link StateRestoreListener} tracking restoration of state stores from changelogs: restored
+ * offsets per store partition, restore rate, progress and estimated time to complete.
+ * <p>
+ * Progress, remaining records, ETA and restored records are published per store.
+ * <p>
+ * A restore interrupted by a rebalance never ends, so partitions still restoring are dropped once
+ * Kafka Streams is {@code RUNNING} (all active tasks are restored by then) or stopped. A restore
+ * started again for a partition replaces the previous one.
+ */
+public class KafkaStreamsRestoreListener implements StateRestoreListener {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaStreamsRestoreListener.class);
+
+  private final KafkaStreams streams;
+  private final MetricRegistry metrics;
+  private final Map<String, StoreRestore> stores = new ConcurrentHashMap<>();
+
+  KafkaStreamsRestoreListener(KafkaStreams streams, MetricRegistry metrics) {
+    this.streams = streams;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void onRestoreStart(TopicPartition topicPartition,
+                             String storeName,
+                             long startingOffset,
+                             long endingOffset) {
+    LOGGER.info("Restoring store {} partition {} from offset {} to {}",
+        storeName, topicPartition, startingOffset, endingOffset);
+    stores.computeIfAbsent(storeName, StoreRestore::new)
+        .partitions.put(topicPartition, new PartitionRestore(startingOffset, endingOffset));
+  }
+
+  @Override
+  public void onBatchRestored(TopicPartition topicPartition,
+                             String storeName,
+                             long batchEndOffset,
+                             long numRestored) {
+    final StoreRestore store = stores.get(storeName);
+    if (store != null) {
+      final PartitionRestore partition = store.partitions.get(topicPartition);
+      if (partition != null) {
+        partition.restoredOffset = batchEndOffset;
+      }
+      store.restored.mark(numRestored);
+    }
+  }
+
+  @Override
+  public void onRestoreEnd(TopicPartition topicPartition, String storeName, long totalRestored) {
+    final StoreRestore store = stores.get(storeName);
+    if (store != null) {
+      final PartitionRestore partition = store.partitions.get(topicPartition);
+      if (partition != null) {
+        partition.restoredOffset = partition.endingOffset;
+        partition.done = true;
+        LOGGER.info("Store {} partition {} restored: {} records in {} ms",
+            storeName, topicPartition, totalRestored, System.currentTimeMillis() - partition.startMs);
+      }
+    }
+  }
+
+  /**
+   * @return true if any store partition is being restored
+   */
+  public boolean isRestoring() {
+    dropInterrupted();
+    for (StoreRestore store : stores.values()) {
+      if (store.isRestoring()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return fraction of records restored among store partitions being restored, from 0 to 1
+   */
+  public double progress() {
+    dropInterrupted();
+    long total = 0L;
+    long restored = 0L;
+    for (StoreRestore store : stores.values()) {
+      for (PartitionRestore partition : store.partitions.values()) {
+        if (!partition.done) {
+          total += partition.total();
+          restored += partition.restored();
+        }
+      }
+    }
+    return total == 0L ? 1.0 : (double) restored / total;
+  }
+
+  /**
+   * @return estimated milliseconds until stores being restored are complete
+   */
+  public long etaMs() {
+    dropInterrupted();
+    long eta = 0L;
+    for (StoreRestore store : stores.values()) {
+      eta = Math.max(eta, store.etaMs());
+    }
+    return eta;
+  }
+
+  /**
+   * Drops partitions still restoring when no restore can be in progress, e.g. restores interrupted
+   * by a rebalance moving the task to another instance.
+   */
+  private void dropInterrupted() {
+    switch (streams.state()) {
+      case RUNNING:
+      case PENDING_SHUTDOWN:
+      case NOT_RUNNING:
+      case ERROR:
+        stores.values().forEach(store -> store.partitions.values().removeIf(partition -> !partition.done));
+        break;
+      default:
+        break;
+    }
+  }
+
+  private class StoreRestore {
+    final Map<TopicPartition, PartitionRestore> partitions = new ConcurrentHashMap<>();
+    final Meter restored;
+
+    StoreRestore(String storeName) {
+      this.restored = metrics.meter(name(KafkaStreamsRestoreListener.class, storeName, "restored-records"));
+      metrics.register(name(KafkaStreamsRestoreListener.class, storeName, "progress"),
+          (Gauge<Double>) this::progress);
+      metrics.register(name(KafkaStreamsRestoreListener.class, storeName, "remaining-records"),
+          (Gauge<Long>) this::remaining);
+      metrics.register(name(KafkaStreamsRestoreListener.class, storeName, "eta-ms"),
+          (Gauge<Long>) this::etaMs);
+    }
+
+    boolean isRestoring() {
+      for (PartitionRestore partition : partitions.values()) {
+        if (!partition.done) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    double progress() {
+      dropInterrupted();
+      long total = 0L;
+      long restored = 0L;
+      for (PartitionRestore partition : partitions.values()) {
+        total += partition.total();
+        restored += partition.restored();
+      }
+      return total == 0L ? 1.0 : (double) restored / total;
+    }
+
+    long remaining() {
+      dropInterrupted();
+      long remaining = 0L;
+      for (PartitionRestore partition : partitions.values()) {
+        remaining += partition.total() - partition.restored();
+      }
+      return remaining;
+    }
+
+    long etaMs() {
+      dropInterrupted();
+      long eta = 0L;
+      for (PartitionRestore partition : partitions.values()) {
+        eta = Math.max(eta, partition.etaMs());
+      }
+      return eta;
+    }
+  }
+
+  private static class PartitionRestore {
+    final long startingOffset;
+    final long endingOffset;
+    final long startMs = System.currentTimeMillis();
+    volatile long restoredOffset;
+    volatile boolean done = false;
+
+    PartitionRestore(long startingOffset, long endingOffset) {
+      this.startingOffset = startingOffset;
+      this.endingOffset = endingOffset;
+      this.restoredOffset = startingOffset;
+    }
+
+    long total() {
+      return Math.max(0L, endingOffset - startingOffset);
+    }
+
+    long restored() {
+      return Math.min(total(), Math.max(0L, restoredOffset - startingOffset));
+    }
+
+    long etaMs() {
+      final long restored = restored();
+      if (done || restored == 0L) {
+        return 0L;
+      }
+      final long elapsedMs = System.currentTimeMillis() - startMs;
+      return (total() - restored) * elapsedMs / restored;
+    }
+  }
+}
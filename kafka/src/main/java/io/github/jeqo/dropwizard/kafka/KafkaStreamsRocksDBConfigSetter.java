@@ -0,0 +1,106 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import org.apache.kafka.streams.state.RocksDBConfigSetter;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.CompactionStyle;
+import org.rocksdb.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link RocksDBConfigSetter} bounding the memory used by RocksDB stores of this process. A total
+ * memory budget is split between an expected maximum number of store instances (stores x
+ * partitions, including window store segments): each instance gets an equal share of block cache
+ * and memtables.
+ * <p>
+ * Open instances are tracked by their {@link Options}, which Kafka Streams closes when a store is
+ * closed (e.g. when its task migrates on rebalance), so only open instances count against the
+ * budget.
+ * <p>
+ * Configured by {@link KafkaStreamsRocksDBFactory} through Kafka Streams properties.
+ */
+public class KafkaStreamsRocksDBConfigSetter implements RocksDBConfigSetter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaStreamsRocksDBConfigSetter.class);
+
+  static final String TOTAL_MEMORY_BYTES_CONFIG = "rocksdb.memory.total.bytes";
+  static final String MAX_STORE_INSTANCES_CONFIG = "rocksdb.memory.max.store.instances";
+  static final String WRITE_BUFFER_RATIO_CONFIG = "rocksdb.memory.write.buffer.ratio";
+  static final String MAX_WRITE_BUFFER_NUMBER_CONFIG = "rocksdb.max.write.buffer.number";
+  static final String BLOCK_SIZE_BYTES_CONFIG = "rocksdb.block.size.bytes";
+  static final String BLOOM_FILTER_BITS_PER_KEY_CONFIG = "rocksdb.bloom.filter.bits.per.key";
+  static final String COMPACTION_STYLE_CONFIG = "rocksdb.compaction.style";
+  static final String MAX_OPEN_FILES_CONFIG = "rocksdb.max.open.files";
+
+  private static final Set<Options> STORE_INSTANCES = Collections.newSetFromMap(new ConcurrentHashMap<>());
+  private static volatile long blockCacheBytesPerStore = 0L;
+  private static volatile long writeBufferBytesPerStore = 0L;
+
+  @Override
+  public void setConfig(String storeName, Options options, Map<String, Object> configs) {
+    final long totalMemoryBytes = Long.parseLong(String.valueOf(configs.get(TOTAL_MEMORY_BYTES_CONFIG)));
+    final int maxStoreInstances = Integer.parseInt(String.valueOf(configs.get(MAX_STORE_INSTANCES_CONFIG)));
+    final double writeBufferRatio = Double.parseDouble(String.valueOf(configs.get(WRITE_BUFFER_RATIO_CONFIG)));
+    final int maxWriteBufferNumber = Integer.parseInt(String.valueOf(configs.get(MAX_WRITE_BUFFER_NUMBER_CONFIG)));
+    final long blockSizeBytes = Long.parseLong(String.valueOf(configs.get(BLOCK_SIZE_BYTES_CONFIG)));
+    final int bloomFilterBitsPerKey = Integer.parseInt(String.valueOf(configs.get(BLOOM_FILTER_BITS_PER_KEY_CONFIG)));
+    final CompactionStyle compactionStyle = CompactionStyle.valueOf(String.valueOf(configs.get(COMPACTION_STYLE_CONFIG)));
+    final int maxOpenFiles = Integer.parseInt(String.valueOf(configs.get(MAX_OPEN_FILES_CONFIG)));
+
+    final long storeMemoryBytes = totalMemoryBytes / maxStoreInstances;
+    final long writeBufferBytes = (long) (storeMemoryBytes * writeBufferRatio);
+    final long blockCacheBytes = storeMemoryBytes - writeBufferBytes;
+
+    final BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+    tableConfig.setBlockCacheSize(blockCacheBytes);
+    tableConfig.setBlockSize(blockSizeBytes);
+    // index and filter blocks are accounted in block cache instead of growing unbounded
+    tableConfig.setCacheIndexAndFilterBlocks(true);
+    tableConfig.setPinL0FilterAndIndexBlocksInCache(true);
+    if (bloomFilterBitsPerKey > 0) {
+      tableConfig.setFilter(new BloomFilter(bloomFilterBitsPerKey, false));
+    }
+    options.setTableFormatConfig(tableConfig);
+    options.setWriteBufferSize(writeBufferBytes / maxWriteBufferNumber);
+    options.setMaxWriteBufferNumber(maxWriteBufferNumber);
+    options.setCompactionStyle(compactionStyle);
+    options.setMaxOpenFiles(maxOpenFiles);
+
+    blockCacheBytesPerStore = blockCacheBytes;
+    writeBufferBytesPerStore = writeBufferBytes;
+    STORE_INSTANCES.add(options);
+    final int instances = storeInstances();
+    if (instances > maxStoreInstances) {
+      LOGGER.warn("RocksDB store instances ({}) exceed configured maximum ({}). Memory budget of {} bytes will be exceeded",
+          instances, maxStoreInstances, totalMemoryBytes);
+    }
+  }
+
+  /**
+   * @return number of RocksDB instances open in this process
+   */
+  static int storeInstances() {
+    STORE_INSTANCES.removeIf(options -> !options.isOwningHandle());
+    return STORE_INSTANCES.size();
+  }
+
+  /**
+   * @return upper bound of block cache memory allocated to RocksDB instances
+   */
+  static long blockCacheBytes() {
+    return storeInstances() * blockCacheBytesPerStore;
+  }
+
+  /**
+   * @return upper bound of memtable memory allocated to RocksDB instances
+   */
+  static long writeBufferBytes() {
+    return storeInstances() * writeBufferBytesPerStore;
+  }
+}
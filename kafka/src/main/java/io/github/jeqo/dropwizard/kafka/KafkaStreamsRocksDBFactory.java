@@ -0,0 +1,151 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.kafka.streams.StreamsConfig;
+import org.rocksdb.CompactionStyle;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.util.Properties;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Dropwizard Factory for RocksDB memory configuration of Kafka Streams state stores.
+ *
+ * @see KafkaStreamsRocksDBConfigSetter
+ */
+public class KafkaStreamsRocksDBFactory {
+
+  @Min(1)
+  @JsonProperty
+  private long totalMemoryBytes = 512L * 1024 * 1024;
+
+  @Min(1)
+  @JsonProperty
+  private int maxStoreInstances = 64;
+
+  @DecimalMin("0.0")
+  @DecimalMax("1.0")
+  @JsonProperty
+  private double writeBufferRatio = 0.5;
+
+  @Min(1)
+  @JsonProperty
+  private int maxWriteBufferNumber = 2;
+
+  @Min(1)
+  @JsonProperty
+  private long blockSizeBytes = 16 * 1024L;
+
+  @Min(0)
+  @JsonProperty
+  private int bloomFilterBitsPerKey = 10;
+
+  @NotNull
+  @JsonProperty
+  private CompactionStyle compactionStyle = CompactionStyle.LEVEL;
+
+  @JsonProperty
+  private int maxOpenFiles = -1;
+
+  public long getTotalMemoryBytes() {
+    return totalMemoryBytes;
+  }
+
+  public void setTotalMemoryBytes(long totalMemoryBytes) {
+    this.totalMemoryBytes = totalMemoryBytes;
+  }
+
+  public int getMaxStoreInstances() {
+    return maxStoreInstances;
+  }
+
+  public void setMaxStoreInstances(int maxStoreInstances) {
+    this.maxStoreInstances = maxStoreInstances;
+  }
+
+  public double getWriteBufferRatio() {
+    return writeBufferRatio;
+  }
+
+  public void setWriteBufferRatio(double writeBufferRatio) {
+    this.writeBufferRatio = writeBufferRatio;
+  }
+
+  public int getMaxWriteBufferNumber() {
+    return maxWriteBufferNumber;
+  }
+
+  public void setMaxWriteBufferNumber(int maxWriteBufferNumber) {
+    this.maxWriteBufferNumber = maxWriteBufferNumber;
+  }
+
+  public long getBlockSizeBytes() {
+    return blockSizeBytes;
+  }
+
+  public void setBlockSizeBytes(long blockSizeBytes) {
+    this.blockSizeBytes = blockSizeBytes;
+  }
+
+  public int getBloomFilterBitsPerKey() {
+    return bloomFilterBitsPerKey;
+  }
+
+  public void setBloomFilterBitsPerKey(int bloomFilterBitsPerKey) {
+    this.bloomFilterBitsPerKey = bloomFilterBitsPerKey;
+  }
+
+  public CompactionStyle getCompactionStyle() {
+    return compactionStyle;
+  }
+
+  public void setCompactionStyle(CompactionStyle compactionStyle) {
+    this.compactionStyle = compactionStyle;
+  }
+
+  public int getMaxOpenFiles() {
+    return maxOpenFiles;
+  }
+
+  public void setMaxOpenFiles(int maxOpenFiles) {
+    this.maxOpenFiles = maxOpenFiles;
+  }
+
+  /**
+   * Adds RocksDB config setter and its configuration to Kafka Streams properties.
+   */
+  void configure(Properties configs) {
+    configs.put(StreamsConfig.ROCKSDB_CONFIG_SETTER_CLASS_CONFIG, KafkaStreamsRocksDBConfigSetter.class.getName());
+    configs.put(KafkaStreamsRocksDBConfigSetter.TOTAL_MEMORY_BYTES_CONFIG, String.valueOf(totalMemoryBytes));
+    configs.put(KafkaStreamsRocksDBConfigSetter.MAX_STORE_INSTANCES_CONFIG, String.valueOf(maxStoreInstances));
+    configs.put(KafkaStreamsRocksDBConfigSetter.WRITE_BUFFER_RATIO_CONFIG, String.valueOf(writeBufferRatio));
+    configs.put(KafkaStreamsRocksDBConfigSetter.MAX_WRITE_BUFFER_NUMBER_CONFIG, String.valueOf(maxWriteBufferNumber));
+    configs.put(KafkaStreamsRocksDBConfigSetter.BLOCK_SIZE_BYTES_CONFIG, String.valueOf(blockSizeBytes));
+    configs.put(KafkaStreamsRocksDBConfigSetter.BLOOM_FILTER_BITS_PER_KEY_CONFIG, String.valueOf(bloomFilterBitsPerKey));
+    configs.put(KafkaStreamsRocksDBConfigSetter.COMPACTION_STYLE_CONFIG, compactionStyle.name());
+    configs.put(KafkaStreamsRocksDBConfigSetter.MAX_OPEN_FILES_CONFIG, String.valueOf(maxOpenFiles));
+  }
+
+  /**
+   * Registers gauges with RocksDB instances and memory allocated to them.
+   */
+  void registerMetrics(MetricRegistry metrics) {
+    final String storeInstances = name(KafkaStreamsRocksDBConfigSetter.class, "store-instances");
+    if (!metrics.getGauges().containsKey(storeInstances)) {
+      metrics.register(storeInstances,
+          (Gauge<Integer>) KafkaStreamsRocksDBConfigSetter::storeInstances);
+      metrics.register(name(KafkaStreamsRocksDBConfigSetter.class, "block-cache-bytes"),
+          (Gauge<Long>) KafkaStreamsRocksDBConfigSetter::blockCacheBytes);
+      metrics.register(name(KafkaStreamsRocksDBConfigSetter.class, "write-buffer-bytes"),
+          (Gauge<Long>) KafkaStreamsRocksDBConfigSetter::writeBufferBytes);
+      metrics.register(name(KafkaStreamsRocksDBConfigSetter.class, "memory-budget-bytes"),
+          (Gauge<Long>) () -> totalMemoryBytes);
+    }
+  }
+}
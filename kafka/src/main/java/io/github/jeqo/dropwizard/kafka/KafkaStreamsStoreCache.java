@@ -0,0 +1,110 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Read-through cache in front of a queryable {@link ReadOnlyKeyValueStore}. Entries are bounded by
+ * size and expire after a TTL; optionally, entries older than a staleness window are served while
+ * being refreshed in background.
+ * <p>
+ * The cache is invalidated when the instance rebalances, as store assignment may change.
+ */
+public class KafkaStreamsStoreCache<K, V> implements KafkaStreams.StateListener {
+
+  private final String storeName;
+  private final CompletableFuture<ReadOnlyKeyValueStore<K, V>> store;
+  private final LoadingCache<K, Optional<V>> cache;
+  private final Meter hits;
+  private final Meter misses;
+
+  KafkaStreamsStoreCache(String storeName,
+                         KafkaStreamsStoreReadiness readiness,
+                         long maximumSize,
+                         long expireAfterWriteMs,
+                         long refreshAfterWriteMs,
+                         ExecutorService refreshExecutor,
+                         MetricRegistry metrics) {
+    this.storeName = storeName;
+    this.store = readiness.store(storeName, QueryableStoreTypes.<K, V>keyValueStore());
+
+    final CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(expireAfterWriteMs, TimeUnit.MILLISECONDS);
+    if (refreshAfterWriteMs > 0) {
+      builder.refreshAfterWrite(refreshAfterWriteMs, TimeUnit.MILLISECONDS);
+    }
+    this.cache =
+        builder.build(CacheLoader.asyncReloading(CacheLoader.from(this::load), refreshExecutor));
+
+    this.hits = metrics.meter(name(KafkaStreamsStoreCache.class, storeName, "hits"));
+    this.misses = metrics.meter(name(KafkaStreamsStoreCache.class, storeName, "misses"));
+    metrics.register(name(KafkaStreamsStoreCache.class, storeName, "size"),
+        (Gauge<Long>) cache::size);
+
+    readiness.addListener(this);
+  }
+
+  /**
+   * Gets a value from cache, or from the store if not cached.
+   *
+   * @param key Key
+   * @return value, or null if key is not in the store
+   * @throws InvalidStateStoreException if the store is not queryable
+   */
+  public V get(K key) {
+    final Optional<V> cached = cache.getIfPresent(key);
+    if (cached != null) {
+      hits.mark();
+      return cached.orElse(null);
+    }
+    misses.mark();
+    try {
+      return cache.getUnchecked(key).orElse(null);
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Removes all cached entries.
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  @Override
+  public void onChange(KafkaStreams.State newState, KafkaStreams.State oldState) {
+    if (newState == KafkaStreams.State.REBALANCING || newState == KafkaStreams.State.RUNNING) {
+      cache.invalidateAll();
+    }
+  }
+
+  private Optional<V> load(K key) {
+    final ReadOnlyKeyValueStore<K, V> keyValueStore = store.getNow(null);
+    if (keyValueStore == null) {
+      throw new InvalidStateStoreException("Store " + storeName + " is not queryable yet");
+    }
+    return Optional.ofNullable(keyValueStore.get(key));
+  }
+}
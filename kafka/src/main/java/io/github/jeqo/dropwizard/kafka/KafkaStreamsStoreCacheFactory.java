@@ -0,0 +1,77 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.setup.Environment;
+
+import javax.validation.constraints.Min;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Dropwizard Factory to create {@link KafkaStreamsStoreCache} instances.
+ */
+public class KafkaStreamsStoreCacheFactory {
+
+  @Min(1)
+  @JsonProperty
+  private long maximumSize = 10000L;
+
+  @Min(1)
+  @JsonProperty
+  private long expireAfterWriteMs = 60000L;
+
+  @Min(0)
+  @JsonProperty
+  private long refreshAfterWriteMs = 0L;
+
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  public void setMaximumSize(long maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  public long getExpireAfterWriteMs() {
+    return expireAfterWriteMs;
+  }
+
+  public void setExpireAfterWriteMs(long expireAfterWriteMs) {
+    this.expireAfterWriteMs = expireAfterWriteMs;
+  }
+
+  public long getRefreshAfterWriteMs() {
+    return refreshAfterWriteMs;
+  }
+
+  public void setRefreshAfterWriteMs(long refreshAfterWriteMs) {
+    this.refreshAfterWriteMs = refreshAfterWriteMs;
+  }
+
+  /**
+   * Creates a cache in front of a key-value store, invalidated on rebalances.
+   *
+   * @param environment Dropwizard environment
+   * @param readiness   Store readiness of the Kafka Streams instance
+   * @param storeName   Key-value store name
+   * @return Store cache
+   */
+  public <K, V> KafkaStreamsStoreCache<K, V> build(Environment environment,
+                                                   KafkaStreamsStoreReadiness readiness,
+                                                   String storeName) {
+    final ExecutorService refreshExecutor =
+        environment.lifecycle()
+            .executorService("kafka-streams-store-cache-" + storeName + "-%d")
+            .minThreads(1)
+            .maxThreads(1)
+            .build();
+
+    return new KafkaStreamsStoreCache<>(
+        storeName,
+        readiness,
+        maximumSize,
+        expireAfterWriteMs,
+        refreshAfterWriteMs,
+        refreshExecutor,
+        environment.metrics());
+  }
+}
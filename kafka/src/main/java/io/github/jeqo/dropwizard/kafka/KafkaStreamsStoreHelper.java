@@ -13,6 +13,13 @@ import java.util.logging.Logger;
 public class KafkaStreamsStoreHelper {
   private static final Logger LOGGER = Logger.getLogger(KafkaStreamsStoreHelper.class.getName());
 
+  /**
+   * Blocks until a store is queryable, polling every 100 ms.
+   *
+   * @deprecated use {@link KafkaStreamsStoreReadiness#store(String, QueryableStoreType)}, which
+   * completes as soon as Kafka Streams is running, without polling.
+   */
+  @Deprecated
   public static <T> T waitUntilStoreIsQueryable(
       final String storeName,
       final QueryableStoreType<T> queryableStoreType,
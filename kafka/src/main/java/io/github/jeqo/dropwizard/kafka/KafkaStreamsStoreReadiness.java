@@ -0,0 +1,188 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.QueryableStoreType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tracks when Kafka Streams state stores are queryable, driven by {@link KafkaStreams} state
+ * changes instead of polling.
+ * <p>
+ * Store futures complete as soon as the instance reaches {@code RUNNING}. While the instance is
+ * {@code REBALANCING}, new requests wait until it is {@code RUNNING} again. Requests fail when the
+ * instance stops or fails, and fail right away once it is stopping, stopped or failed.
+ * <p>
+ * This component registers itself as {@link KafkaStreams.StateListener}, so it must be created
+ * before streams are started. Other state listeners can be added with
+ * {@link #addListener(KafkaStreams.StateListener)}.
+ */
+public class KafkaStreamsStoreReadiness implements KafkaStreams.StateListener {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaStreamsStoreReadiness.class);
+
+  private static final ScheduledExecutorService SCHEDULER =
+      Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "kafka-streams-store-readiness");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final KafkaStreams streams;
+  private final List<Waiter<?>> waiters = new ArrayList<>();
+  private final List<KafkaStreams.StateListener> listeners = new CopyOnWriteArrayList<>();
+
+  private KafkaStreams.State state;
+
+  public KafkaStreamsStoreReadiness(KafkaStreams streams) {
+    this.streams = streams;
+    this.state = streams.state();
+    streams.setStateListener(this);
+  }
+
+  /**
+   * Adds a listener to be notified on {@link KafkaStreams} state changes.
+   *
+   * @param listener State listener
+   */
+  public void addListener(KafkaStreams.StateListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * @return true if stores can be queried
+   */
+  public synchronized boolean isReady() {
+    return state == KafkaStreams.State.RUNNING;
+  }
+
+  /**
+   * Gets a store once it is queryable.
+   *
+   * @param storeName          Store name
+   * @param queryableStoreType Store type
+   * @return future completed with the store when it is queryable
+   */
+  public <T> CompletableFuture<T> store(String storeName, QueryableStoreType<T> queryableStoreType) {
+    return store(storeName, queryableStoreType, 0L, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Gets a store once it is queryable, failing with {@link TimeoutException} if it is not
+   * queryable before the timeout.
+   *
+   * @param storeName          Store name
+   * @param queryableStoreType Store type
+   * @param timeout            Timeout, no timeout if 0
+   * @param unit               Timeout unit
+   * @return future completed with the store when it is queryable, or failed with
+   * {@link IllegalStateException} if Kafka Streams is stopping, stopped or failed
+   */
+  public <T> CompletableFuture<T> store(String storeName,
+                                        QueryableStoreType<T> queryableStoreType,
+                                        long timeout,
+                                        TimeUnit unit) {
+    final Waiter<T> waiter = new Waiter<>(storeName, queryableStoreType);
+    synchronized (this) {
+      if (isTerminal(state)) {
+        waiter.future.completeExceptionally(notRunning(state));
+        return waiter.future;
+      }
+      if (state == KafkaStreams.State.RUNNING && waiter.tryComplete()) {
+        return waiter.future;
+      }
+      waiters.add(waiter);
+    }
+
+    if (timeout > 0) {
+      final ScheduledFuture<?> timeoutTask = SCHEDULER.schedule(() -> {
+        if (waiter.future.completeExceptionally(
+            new TimeoutException("Store " + storeName + " not queryable after " + timeout + " " + unit))) {
+          remove(waiter);
+        }
+      }, timeout, unit);
+      waiter.future.whenComplete((store, throwable) -> timeoutTask.cancel(false));
+    }
+    return waiter.future;
+  }
+
+  @Override
+  public void onChange(KafkaStreams.State newState, KafkaStreams.State oldState) {
+    synchronized (this) {
+      state = newState;
+      switch (newState) {
+        case RUNNING:
+          final Iterator<Waiter<?>> iterator = waiters.iterator();
+          while (iterator.hasNext()) {
+            final Waiter<?> waiter = iterator.next();
+            if (waiter.future.isDone() || waiter.tryComplete()) {
+              iterator.remove();
+            }
+          }
+          break;
+        case PENDING_SHUTDOWN:
+        case NOT_RUNNING:
+        case ERROR:
+          final IllegalStateException exception = notRunning(newState);
+          waiters.forEach(waiter -> SCHEDULER.execute(() -> waiter.future.completeExceptionally(exception)));
+          waiters.clear();
+          break;
+        default:
+          LOGGER.debug("Kafka Streams state {}. Stores not queryable", newState);
+      }
+    }
+    listeners.forEach(listener -> listener.onChange(newState, oldState));
+  }
+
+  private static boolean isTerminal(KafkaStreams.State state) {
+    return state == KafkaStreams.State.PENDING_SHUTDOWN
+        || state == KafkaStreams.State.NOT_RUNNING
+        || state == KafkaStreams.State.ERROR;
+  }
+
+  private static IllegalStateException notRunning(KafkaStreams.State state) {
+    return new IllegalStateException("Kafka Streams is not running: " + state);
+  }
+
+  private synchronized void remove(Waiter<?> waiter) {
+    waiters.remove(waiter);
+  }
+
+  private class Waiter<T> {
+    final String storeName;
+    final QueryableStoreType<T> queryableStoreType;
+    final CompletableFuture<T> future = new CompletableFuture<>();
+
+    Waiter(String storeName, QueryableStoreType<T> queryableStoreType) {
+      this.storeName = storeName;
+      this.queryableStoreType = queryableStoreType;
+    }
+
+    /**
+     * Completes the future if the store is queryable. Dependent actions run on the readiness
+     * thread instead of stream threads.
+     */
+    boolean tryComplete() {
+      try {
+        final T store = streams.store(storeName, queryableStoreType);
+        SCHEDULER.execute(() -> future.complete(store));
+        return true;
+      } catch (InvalidStateStoreException e) {
+        LOGGER.debug("Store {} not queryable yet", storeName);
+        return false;
+      }
+    }
+  }
+}
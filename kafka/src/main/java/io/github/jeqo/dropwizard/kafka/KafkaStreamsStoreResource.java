@@ -0,0 +1,45 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.core.MediaType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves lookups on local Kafka Streams stores to other instances, for
+ * {@link KafkaStreamsStoreRouter}. Keys and values are exchanged serialized with the store serdes.
+ */
+@Path("/kafka-streams/stores")
+@Consumes(MediaType.APPLICATION_JSON)
+@Produces(MediaType.APPLICATION_JSON)
+public class KafkaStreamsStoreResource {
+
+  private final Map<String, KafkaStreamsStoreRouter<?, ?>> routers = new ConcurrentHashMap<>();
+
+  void add(KafkaStreamsStoreRouter<?, ?> router) {
+    routers.put(router.getStoreName(), router);
+  }
+
+  @POST
+  @Path("{store}/keys")
+  public List<byte[]> getAll(@PathParam("store") String store, List<byte[]> keys) {
+    final KafkaStreamsStoreRouter<?, ?> router = routers.get(store);
+    if (router == null) {
+      throw new NotFoundException("Store " + store + " not found");
+    }
+    try {
+      return router.getLocalSerialized(keys);
+    } catch (InvalidStateStoreException e) {
+      throw new ServiceUnavailableException(e.getMessage());
+    }
+  }
+}
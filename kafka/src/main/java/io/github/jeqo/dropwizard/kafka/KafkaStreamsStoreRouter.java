@@ -0,0 +1,199 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.apache.kafka.streams.state.StreamsMetadata;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Routes interactive queries on a key-value store to the Kafka Streams instance owning each key.
+ * Local keys are served in-process; remote keys are grouped by owner and fetched in one request
+ * per instance, over a pooled HTTP client, from the owner's {@link KafkaStreamsStoreResource}.
+ * <p>
+ * Requires {@code application.server} to be configured on every instance.
+ */
+public class KafkaStreamsStoreRouter<K, V> {
+
+  private static final TypeReference<List<byte[]>> BYTES_LIST = new TypeReference<List<byte[]>>() {
+  };
+
+  private final String storeName;
+  private final KafkaStreams streams;
+  private final String scheme;
+  private final HostInfo localHost;
+  private final Serde<K> keySerde;
+  private final Serde<V> valueSerde;
+  private final HttpClient httpClient;
+  private final ObjectMapper objectMapper;
+  private final String rootPath;
+  private final ExecutorService executor;
+
+  private volatile ReadOnlyKeyValueStore<K, V> localStore;
+
+  KafkaStreamsStoreRouter(String storeName,
+                          KafkaStreams streams,
+                          String scheme,
+                          HostInfo localHost,
+                          Serde<K> keySerde,
+                          Serde<V> valueSerde,
+                          HttpClient httpClient,
+                          ObjectMapper objectMapper,
+                          String rootPath,
+                          ExecutorService executor) {
+    this.storeName = storeName;
+    this.streams = streams;
+    this.scheme = scheme;
+    this.localHost = localHost;
+    this.keySerde = keySerde;
+    this.valueSerde = valueSerde;
+    this.httpClient = httpClient;
+    this.objectMapper = objectMapper;
+    this.rootPath = rootPath;
+    this.executor = executor;
+  }
+
+  public String getStoreName() {
+    return storeName;
+  }
+
+  /**
+   * Gets a value from the instance owning the key.
+   *
+   * @param key Key
+   * @return value, or null if key is not found
+   */
+  public V get(K key) {
+    return getAll(Collections.singletonList(key)).get(key);
+  }
+
+  /**
+   * Gets values from the instances owning the keys, with one request per remote instance. Remote
+   * requests are executed in parallel.
+   *
+   * @param keys Keys
+   * @return values found by key
+   */
+  public Map<K, V> getAll(Collection<K> keys) {
+    final Map<HostInfo, List<K>> keysByHost = new HashMap<>();
+    for (K key : keys) {
+      final StreamsMetadata metadata = streams.metadataForKey(storeName, key, keySerde.serializer());
+      if (metadata == null || StreamsMetadata.NOT_AVAILABLE.equals(metadata)) {
+        throw new InvalidStateStoreException("Metadata for store " + storeName + " not available");
+      }
+      keysByHost.computeIfAbsent(metadata.hostInfo(), host -> new ArrayList<>()).add(key);
+    }
+
+    final Map<K, V> values = new LinkedHashMap<>();
+    final List<CompletableFuture<Map<K, V>>> remoteValues = new ArrayList<>();
+    keysByHost.forEach((host, hostKeys) -> {
+      if (host.equals(localHost)) {
+        values.putAll(getLocal(hostKeys));
+      } else {
+        remoteValues.add(CompletableFuture.supplyAsync(() -> getRemote(host, hostKeys), executor));
+      }
+    });
+    try {
+      remoteValues.forEach(future -> values.putAll(future.join()));
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+    return values;
+  }
+
+  /**
+   * Gets serialized values from the local store, in the same order as keys. Used to serve
+   * requests from other instances.
+   */
+  List<byte[]> getLocalSerialized(List<byte[]> keys) {
+    final ReadOnlyKeyValueStore<K, V> store = localStore();
+    final List<byte[]> values = new ArrayList<>(keys.size());
+    for (byte[] key : keys) {
+      final V value = store.get(keySerde.deserializer().deserialize(null, key));
+      values.add(value == null ? null : valueSerde.serializer().serialize(null, value));
+    }
+    return values;
+  }
+
+  private Map<K, V> getLocal(List<K> keys) {
+    final ReadOnlyKeyValueStore<K, V> store = localStore();
+    final Map<K, V> values = new HashMap<>();
+    for (K key : keys) {
+      final V value = store.get(key);
+      if (value != null) {
+        values.put(key, value);
+      }
+    }
+    return values;
+  }
+
+  private Map<K, V> getRemote(HostInfo host, List<K> keys) {
+    final List<byte[]> serializedKeys = new ArrayList<>(keys.size());
+    keys.forEach(key -> serializedKeys.add(keySerde.serializer().serialize(null, key)));
+
+    final HttpPost request =
+        new HttpPost(scheme + "://" + host.host() + ":" + host.port() + rootPath
+            + "/kafka-streams/stores/" + storeName + "/keys");
+    try {
+      request.setEntity(
+          new ByteArrayEntity(objectMapper.writeValueAsBytes(serializedKeys), ContentType.APPLICATION_JSON));
+      final List<byte[]> serializedValues = httpClient.execute(request, response -> {
+        final int status = response.getStatusLine().getStatusCode();
+        if (status == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+          throw new InvalidStateStoreException("Store " + storeName + " not available on " + host);
+        }
+        if (status != HttpStatus.SC_OK) {
+          throw new IOException("Error querying store " + storeName + " on " + host + ": " + status);
+        }
+        return objectMapper.readValue(response.getEntity().getContent(), BYTES_LIST);
+      });
+      if (serializedValues == null || serializedValues.size() != keys.size()) {
+        throw new IOException("Error querying store " + storeName + " on " + host + ": "
+            + (serializedValues == null ? 0 : serializedValues.size()) + " values for " + keys.size() + " keys");
+      }
+
+      final Map<K, V> values = new HashMap<>();
+      for (int i = 0; i < keys.size(); i++) {
+        final byte[] value = serializedValues.get(i);
+        if (value != null) {
+          values.put(keys.get(i), valueSerde.deserializer().deserialize(null, value));
+        }
+      }
+      return values;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private ReadOnlyKeyValueStore<K, V> localStore() {
+    if (localStore == null) {
+      localStore = streams.store(storeName, QueryableStoreTypes.<K, V>keyValueStore());
+    }
+    return localStore;
+  }
+}
@@ -0,0 +1,160 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.client.HttpClientBuilder;
+import io.dropwizard.client.HttpClientConfiguration;
+import io.dropwizard.setup.Environment;
+import org.apache.http.client.HttpClient;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.state.HostInfo;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Dropwizard Factory to create {@link KafkaStreamsStoreRouter} instances. Routers created by the
+ * same factory share the HTTP client, the executor and the {@link KafkaStreamsStoreResource}
+ * serving other instances, so a single factory should be used per application.
+ */
+public class KafkaStreamsStoreRouterFactory {
+
+  @NotNull
+  @Pattern(regexp = "https?")
+  @JsonProperty
+  private String scheme = "http";
+
+  @NotNull
+  @JsonProperty
+  private String rootPath = "";
+
+  @Min(1)
+  @JsonProperty
+  private int maxConcurrentRequests = 8;
+
+  @Valid
+  @NotNull
+  @JsonProperty
+  private HttpClientConfiguration httpClient = new HttpClientConfiguration();
+
+  private HttpClient client;
+  private ExecutorService executor;
+  private KafkaStreamsStoreResource resource;
+
+  /**
+   * @return scheme used to query other instances, "http" or "https"
+   */
+  public String getScheme() {
+    return scheme;
+  }
+
+  public void setScheme(String scheme) {
+    this.scheme = scheme;
+  }
+
+  /**
+   * @return path where Jersey resources are served, e.g. "/api"
+   */
+  public String getRootPath() {
+    return rootPath;
+  }
+
+  public void setRootPath(String rootPath) {
+    this.rootPath = rootPath;
+  }
+
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  public HttpClientConfiguration getHttpClient() {
+    return httpClient;
+  }
+
+  public void setHttpClient(HttpClientConfiguration httpClient) {
+    this.httpClient = httpClient;
+  }
+
+  /**
+   * Creates a router for a key-value store, and registers the store on the resource serving
+   * other instances.
+   *
+   * @param environment    Dropwizard environment
+   * @param streamsFactory Kafka Streams Factory, with {@code applicationServer} configured
+   * @param streams        Kafka Streams instance
+   * @param storeName      Key-value store name
+   * @param keySerde       Store key serde
+   * @param valueSerde     Store value serde
+   * @return Store router
+   */
+  public <K, V> KafkaStreamsStoreRouter<K, V> build(Environment environment,
+                                                    KafkaStreamsFactory streamsFactory,
+                                                    KafkaStreams streams,
+                                                    String storeName,
+                                                    Serde<K> keySerde,
+                                                    Serde<V> valueSerde) {
+    final HostInfo localHost = hostInfo(streamsFactory.getApplicationServer());
+
+    final KafkaStreamsStoreRouter<K, V> router;
+    synchronized (this) {
+      if (client == null) {
+        client = new HttpClientBuilder(environment).using(httpClient).build("kafka-streams-store-router");
+        executor =
+            environment.lifecycle()
+                .executorService("kafka-streams-store-router-%d")
+                .minThreads(maxConcurrentRequests)
+                .maxThreads(maxConcurrentRequests)
+                .build();
+        resource = new KafkaStreamsStoreResource();
+        environment.jersey().register(resource);
+      }
+      router =
+          new KafkaStreamsStoreRouter<>(
+              storeName,
+              streams,
+              scheme,
+              localHost,
+              keySerde,
+              valueSerde,
+              client,
+              environment.getObjectMapper(),
+              rootPath,
+              executor);
+      resource.add(router);
+    }
+    return router;
+  }
+
+  /**
+   * Parses {@code applicationServer} as {@code host:port}.
+   */
+  static HostInfo hostInfo(String applicationServer) {
+    if (applicationServer == null) {
+      throw new IllegalStateException("applicationServer is required to route store queries");
+    }
+    final int separator = applicationServer.lastIndexOf(':');
+    if (separator <= 0 || separator == applicationServer.length() - 1) {
+      throw new IllegalArgumentException(
+          "applicationServer must be host:port, but was: " + applicationServer);
+    }
+    final int port;
+    try {
+      port = Integer.parseInt(applicationServer.substring(separator + 1));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(
+          "applicationServer port must be a number, but was: " + applicationServer, e);
+    }
+    if (port < 0 || port > 65535) {
+      throw new IllegalArgumentException(
+          "applicationServer port must be between 0 and 65535, but was: " + applicationServer);
+    }
+    return new HostInfo(applicationServer.substring(0, separator), port);
+  }
+}
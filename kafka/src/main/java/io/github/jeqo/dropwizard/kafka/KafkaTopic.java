@@ -1,30 +1,17 @@
 package io.github.jeqo.dropwizard.kafka;
 
-import org.apache.kafka.clients.admin.AdminClient;
-import org.apache.kafka.clients.admin.Config;
-import org.apache.kafka.clients.admin.ConfigEntry;
 import org.apache.kafka.clients.admin.NewTopic;
-import org.apache.kafka.common.config.ConfigResource;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeoutException;
 
 /**
  *
  */
 public class KafkaTopic {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaTopic.class);
-
   @Valid
   @NotNull
   private String name;
@@ -86,40 +73,17 @@ public class KafkaTopic {
     this.retentionBytes = retentionBytes;
   }
 
-  void create(AdminClient adminClient) {
-    try {
-      final Collection<String> topics = adminClient.listTopics().names().get();
-      boolean alreadyExist = topics.contains(name);
-      if (alreadyExist) {
-        LOGGER.warn("Topic {} already exists", name);
-        Map<ConfigResource, Config> configs = new HashMap<>();
-        ConfigResource configResource = new ConfigResource(ConfigResource.Type.TOPIC, name);
-        Collection<ConfigEntry> entries = new ArrayList<>();
-        //entries.add(new ConfigEntry("partitions", partitions.toString()));
-        //entries.add(new ConfigEntry("replication.factor", replicationFactor.toString()));
-        entries.add(new ConfigEntry("cleanup.policy", cleanupPolicy));
-        entries.add(new ConfigEntry("retention.ms", retentionMs.toString()));
-        entries.add(new ConfigEntry("retention.bytes", retentionBytes.toString()));
-        Config config = new Config(entries);
-        configs.put(configResource, config);
-        adminClient.alterConfigs(configs);
-      } else {
-        createTopic(adminClient);
-      }
-    } catch (InterruptedException | ExecutionException | TimeoutException e) {
-      LOGGER.error("Error creating topic {}", name, e);
-    }
+  NewTopic newTopic() {
+    final NewTopic topic = new NewTopic(name, partitions, replicationFactor);
+    topic.configs(configs());
+    return topic;
   }
 
-  private void createTopic(AdminClient adminClient) throws ExecutionException, InterruptedException, TimeoutException {
-    final NewTopic topic = new NewTopic(name, partitions, replicationFactor);
+  Map<String, String> configs() {
     final Map<String, String> topicConfigs = new HashMap<>();
     topicConfigs.put("cleanup.policy", cleanupPolicy);
     topicConfigs.put("retention.ms", retentionMs.toString());
     topicConfigs.put("retention.bytes", retentionBytes.toString());
-    topic.configs(topicConfigs);
-    adminClient.createTopics(Collections.singletonList(topic));
-    LOGGER.info("Topic {} created", name);
-
+    return topicConfigs;
   }
 }
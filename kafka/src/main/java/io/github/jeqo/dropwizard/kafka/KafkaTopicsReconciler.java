@@ -0,0 +1,253 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AlterConfigsOptions;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.CreatePartitionsOptions;
+import org.apache.kafka.clients.admin.CreateTopicsOptions;
+import org.apache.kafka.clients.admin.DescribeConfigsOptions;
+import org.apache.kafka.clients.admin.DescribeTopicsOptions;
+import org.apache.kafka.clients.admin.ListTopicsOptions;
+import org.apache.kafka.clients.admin.NewPartitions;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.config.ConfigResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Reconciles configured {@link KafkaTopic}s with the cluster: topics are listed and described once,
+ * and missing topics, configuration drift and partition increases are applied in batched admin
+ * calls, bounded by a timeout.
+ */
+public class KafkaTopicsReconciler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaTopicsReconciler.class);
+
+  private final AdminClient adminClient;
+  private final long timeoutMs;
+
+  KafkaTopicsReconciler(AdminClient adminClient, long timeoutMs) {
+    this.adminClient = adminClient;
+    this.timeoutMs = timeoutMs;
+  }
+
+  Result reconcile(List<KafkaTopic> topics) {
+    final long start = System.currentTimeMillis();
+    final long deadline = start + timeoutMs;
+    final Result result = new Result();
+
+    if (!topics.isEmpty()) {
+      try {
+        apply(topics, deadline, result);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        fail(topics, e, result);
+      } catch (ExecutionException | TimeoutException e) {
+        fail(topics, e, result);
+      }
+    }
+
+    result.durationMs = System.currentTimeMillis() - start;
+    if (result.isSuccessful()) {
+      LOGGER.info("Topics reconciled: {}", result);
+    } else {
+      LOGGER.error("Topics reconciled with errors: {}", result);
+    }
+    return result;
+  }
+
+  private void apply(List<KafkaTopic> topics, long deadline, Result result)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    final Set<String> existing =
+        adminClient.listTopics(new ListTopicsOptions().timeoutMs(remaining(deadline)))
+            .names()
+            .get(remaining(deadline), TimeUnit.MILLISECONDS);
+
+    final List<NewTopic> newTopics = new ArrayList<>();
+    final Map<String, KafkaTopic> present = new LinkedHashMap<>();
+    for (KafkaTopic topic : topics) {
+      if (existing.contains(topic.getName())) {
+        present.put(topic.getName(), topic);
+      } else {
+        newTopics.add(topic.newTopic());
+      }
+    }
+
+    final Map<ConfigResource, Config> alterConfigs = new HashMap<>();
+    final Map<String, NewPartitions> newPartitions = new HashMap<>();
+    if (!present.isEmpty()) {
+      final Map<String, TopicDescription> descriptions =
+          adminClient.describeTopics(present.keySet(), new DescribeTopicsOptions().timeoutMs(remaining(deadline)))
+              .all()
+              .get(remaining(deadline), TimeUnit.MILLISECONDS);
+      final List<ConfigResource> resources =
+          present.keySet().stream()
+              .map(name -> new ConfigResource(ConfigResource.Type.TOPIC, name))
+              .collect(Collectors.toList());
+      final Map<ConfigResource, Config> configs =
+          adminClient.describeConfigs(resources, new DescribeConfigsOptions().timeoutMs(remaining(deadline)))
+              .all()
+              .get(remaining(deadline), TimeUnit.MILLISECONDS);
+
+      for (ConfigResource resource : resources) {
+        final KafkaTopic topic = present.get(resource.name());
+        boolean changed = false;
+
+        final int partitions = descriptions.get(resource.name()).partitions().size();
+        if (topic.getPartitions() > partitions) {
+          newPartitions.put(topic.getName(), NewPartitions.increaseTo(topic.getPartitions()));
+          changed = true;
+        } else if (topic.getPartitions() < partitions) {
+          LOGGER.warn("Topic {} has {} partitions, more than the {} configured. Partitions cannot be decreased",
+              topic.getName(), partitions, topic.getPartitions());
+        }
+
+        if (drifted(topic.configs(), configs.get(resource))) {
+          final List<ConfigEntry> entries =
+              topic.configs().entrySet().stream()
+                  .map(entry -> new ConfigEntry(entry.getKey(), entry.getValue()))
+                  .collect(Collectors.toList());
+          alterConfigs.put(resource, new Config(entries));
+          changed = true;
+        }
+
+        if (!changed) {
+          result.unchanged.add(topic.getName());
+        }
+      }
+    }
+
+    if (!newTopics.isEmpty()) {
+      await(adminClient.createTopics(newTopics, new CreateTopicsOptions().timeoutMs(remaining(deadline))).values(),
+          deadline, result.created, result);
+    }
+    if (!alterConfigs.isEmpty()) {
+      final Map<String, KafkaFuture<Void>> futures = new HashMap<>();
+      adminClient.alterConfigs(alterConfigs, new AlterConfigsOptions().timeoutMs(remaining(deadline)))
+          .values()
+          .forEach((resource, future) -> futures.put(resource.name(), future));
+      await(futures, deadline, result.configsUpdated, result);
+    }
+    if (!newPartitions.isEmpty()) {
+      await(adminClient.createPartitions(newPartitions, new CreatePartitionsOptions().timeoutMs(remaining(deadline))).values(),
+          deadline, result.partitionsIncreased, result);
+    }
+  }
+
+  private static boolean drifted(Map<String, String> expected, Config actual) {
+    if (actual == null) {
+      return true;
+    }
+    for (Map.Entry<String, String> entry : expected.entrySet()) {
+      final ConfigEntry current = actual.get(entry.getKey());
+      if (current == null || !entry.getValue().equals(current.value())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void await(Map<String, KafkaFuture<Void>> futures,
+                            long deadline,
+                            List<String> succeeded,
+                            Result result) throws InterruptedException {
+    for (Map.Entry<String, KafkaFuture<Void>> entry : futures.entrySet()) {
+      try {
+        entry.getValue().get(remaining(deadline), TimeUnit.MILLISECONDS);
+        succeeded.add(entry.getKey());
+      } catch (ExecutionException e) {
+        result.failed.put(entry.getKey(), String.valueOf(e.getCause()));
+      } catch (TimeoutException e) {
+        result.failed.put(entry.getKey(), "Timed out");
+      }
+    }
+  }
+
+  private static void fail(List<KafkaTopic> topics, Exception e, Result result) {
+    LOGGER.error("Error reconciling topics", e);
+    topics.forEach(topic -> result.failed.putIfAbsent(topic.getName(), String.valueOf(e)));
+  }
+
+  private static int remaining(long deadline) {
+    return (int) Math.max(0L, deadline - System.currentTimeMillis());
+  }
+
+  /**
+   * Outcome of a topics reconciliation.
+   */
+  public static class Result {
+    private final List<String> created = new ArrayList<>();
+    private final List<String> configsUpdated = new ArrayList<>();
+    private final List<String> partitionsIncreased = new ArrayList<>();
+    private final List<String> unchanged = new ArrayList<>();
+    private final Map<String, String> failed = new LinkedHashMap<>();
+    private long durationMs;
+
+    public List<String> getCreated() {
+      return Collections.unmodifiableList(created);
+    }
+
+    public List<String> getConfigsUpdated() {
+      return Collections.unmodifiableList(configsUpdated);
+    }
+
+    public List<String> getPartitionsIncreased() {
+      return Collections.unmodifiableList(partitionsIncreased);
+    }
+
+    public List<String> getUnchanged() {
+      return Collections.unmodifiableList(unchanged);
+    }
+
+    /**
+     * @return failed topics, with error description.
+     */
+    public Map<String, String> getFailed() {
+      return Collections.unmodifiableMap(failed);
+    }
+
+    public long getDurationMs() {
+      return durationMs;
+    }
+
+    public boolean isSuccessful() {
+      return failed.isEmpty();
+    }
+
+    /**
+     * @return this result, if all topics were prepared
+     * @throws IllegalStateException if any topic failed, e.g. to fail a bootstrap task
+     */
+    public Result requireSuccessful() {
+      if (!isSuccessful()) {
+        throw new IllegalStateException("Kafka topics not prepared: " + this);
+      }
+      return this;
+    }
+
+    @Override
+    public String toString() {
+      return "created=" + created
+          + ", configsUpdated=" + configsUpdated
+          + ", partitionsIncreased=" + partitionsIncreased
+          + ", unchanged=" + unchanged.size()
+          + ", failed=" + failed
+          + ", durationMs=" + durationMs;
+    }
+  }
+}
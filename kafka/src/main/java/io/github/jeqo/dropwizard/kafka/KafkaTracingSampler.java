@@ -0,0 +1,109 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.opentracing.Tracer;
+import org.apache.kafka.common.header.Headers;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Decides which records are traced, applying the rule of the record topic. Decisions do not
+ * allocate, so records that are not sampled add no garbage.
+ */
+public class KafkaTracingSampler {
+
+  private static final String DEFAULT = "default";
+
+  private final TopicSampler defaultSampler;
+  private final Map<String, TopicSampler> topicSamplers = new HashMap<>();
+  private final String[] upstreamHeaders;
+
+  KafkaTracingSampler(KafkaTracingSamplerFactory.Rule defaultRule,
+                      Map<String, KafkaTracingSamplerFactory.Rule> topicRules,
+                      List<String> upstreamHeaders,
+                      MetricRegistry metrics,
+                      String name) {
+    this.defaultSampler = new TopicSampler(defaultRule, metrics, name, DEFAULT);
+    topicRules.forEach((topic, rule) -> topicSamplers.put(topic, new TopicSampler(rule, metrics, name, topic)));
+    this.upstreamHeaders = upstreamHeaders.toArray(new String[0]);
+  }
+
+  /**
+   * Decides if a record is traced, and counts the decision.
+   *
+   * @param topic   Record topic
+   * @param headers Record headers, used to find an upstream context
+   * @param tracer  Tracer, used to find an active span, or null if it does not apply
+   * @return true if the record has to be traced
+   */
+  public boolean sample(String topic, Headers headers, Tracer tracer) {
+    final TopicSampler sampler = topicSamplers.getOrDefault(topic, defaultSampler);
+    final boolean sampled = sampler.sample(headers, tracer);
+    if (sampled) {
+      sampler.traced.mark();
+    } else {
+      sampler.skipped.mark();
+    }
+    return sampled;
+  }
+
+  private boolean hasUpstream(Headers headers, Tracer tracer) {
+    if (tracer != null && tracer.activeSpan() != null) {
+      return true;
+    }
+    if (headers != null) {
+      for (String header : upstreamHeaders) {
+        if (headers.lastHeader(header) != null) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private class TopicSampler {
+    final KafkaTracingSamplerFactory.Mode mode;
+    final double probability;
+    final long intervalNanos;
+    final AtomicLong nextPermitNanos = new AtomicLong(System.nanoTime());
+    final Meter traced;
+    final Meter skipped;
+
+    TopicSampler(KafkaTracingSamplerFactory.Rule rule, MetricRegistry metrics, String name, String topic) {
+      this.mode = rule.getMode();
+      this.probability = rule.getProbability();
+      this.intervalNanos =
+          rule.getMaxPerSecond() > 0.0
+              ? (long) (TimeUnit.SECONDS.toNanos(1) / rule.getMaxPerSecond())
+              : Long.MAX_VALUE;
+      this.traced = metrics.meter(name(KafkaTracingSampler.class, name, topic, "traced"));
+      this.skipped = metrics.meter(name(KafkaTracingSampler.class, name, topic, "skipped"));
+    }
+
+    boolean sample(Headers headers, Tracer tracer) {
+      switch (mode) {
+        case ALWAYS:
+          return true;
+        case PROBABILITY:
+          return ThreadLocalRandom.current().nextDouble() < probability;
+        case RATE:
+          final long now = System.nanoTime();
+          final long next = nextPermitNanos.get();
+          return now - next >= 0 && intervalNanos != Long.MAX_VALUE
+              && nextPermitNanos.compareAndSet(next, now + intervalNanos);
+        case UPSTREAM:
+          return hasUpstream(headers, tracer);
+        default:
+          return false;
+      }
+    }
+  }
+}
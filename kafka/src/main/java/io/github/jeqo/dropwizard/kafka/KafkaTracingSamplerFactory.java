@@ -0,0 +1,139 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dropwizard Factory to create {@link KafkaTracingSampler}s: which records are traced by sampled
+ * tracing producers and consumers, with a default rule and rules per topic.
+ */
+public class KafkaTracingSamplerFactory {
+
+  /**
+   * How records on a topic are sampled.
+   */
+  public enum Mode {
+    /**
+     * Trace every record.
+     */
+    ALWAYS,
+    /**
+     * Do not trace records.
+     */
+    NEVER,
+    /**
+     * Trace records with a probability.
+     */
+    PROBABILITY,
+    /**
+     * Trace up to a number of records per second.
+     */
+    RATE,
+    /**
+     * Trace records only when an upstream context is present: an active span when producing, or
+     * tracing headers when consuming.
+     */
+    UPSTREAM
+  }
+
+  @Valid
+  @NotNull
+  @JsonProperty
+  private Rule defaultRule = new Rule();
+
+  @Valid
+  @JsonProperty
+  private Map<String, Rule> topics = new HashMap<>();
+
+  @JsonProperty
+  private List<String> upstreamHeaders = new ArrayList<>(Arrays.asList("uber-trace-id", "traceid", "X-B3-TraceId"));
+
+  public Rule getDefaultRule() {
+    return defaultRule;
+  }
+
+  public void setDefaultRule(Rule defaultRule) {
+    this.defaultRule = defaultRule;
+  }
+
+  public Map<String, Rule> getTopics() {
+    return topics;
+  }
+
+  public void setTopics(Map<String, Rule> topics) {
+    this.topics = topics;
+  }
+
+  public List<String> getUpstreamHeaders() {
+    return upstreamHeaders;
+  }
+
+  public void setUpstreamHeaders(List<String> upstreamHeaders) {
+    this.upstreamHeaders = upstreamHeaders;
+  }
+
+  /**
+   * Creates a sampler publishing traced and skipped records meters, per topic with a rule and for
+   * the default rule.
+   *
+   * @param metrics Metric registry
+   * @param name    Client name, used on metric names
+   * @return Sampler
+   */
+  public KafkaTracingSampler build(MetricRegistry metrics, String name) {
+    return new KafkaTracingSampler(defaultRule, topics, upstreamHeaders, metrics, name);
+  }
+
+  /**
+   * Sampling rule.
+   */
+  public static class Rule {
+
+    @NotNull
+    @JsonProperty
+    private Mode mode = Mode.ALWAYS;
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    @JsonProperty
+    private double probability = 1.0;
+
+    @DecimalMin("0.0")
+    @JsonProperty
+    private double maxPerSecond = 10.0;
+
+    public Mode getMode() {
+      return mode;
+    }
+
+    public void setMode(Mode mode) {
+      this.mode = mode;
+    }
+
+    public double getProbability() {
+      return probability;
+    }
+
+    public void setProbability(double probability) {
+      this.probability = probability;
+    }
+
+    public double getMaxPerSecond() {
+      return maxPerSecond;
+    }
+
+    public void setMaxPerSecond(double maxPerSecond) {
+      this.maxPerSecond = maxPerSecond;
+    }
+  }
+}
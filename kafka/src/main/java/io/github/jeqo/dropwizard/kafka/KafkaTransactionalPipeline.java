@@ -0,0 +1,341 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.lifecycle.Managed;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.AuthorizationException;
+import org.apache.kafka.common.errors.OutOfOrderSequenceException;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Managed consume-transform-produce loop with exactly-once output. Records are transformed on a
+ * dedicated thread, and output records are sent in a Kafka transaction together with the input
+ * offsets, so outputs and offsets are committed (or aborted) atomically.
+ * <p>
+ * As Kafka Streams does, each assigned input partition has its own transactional producer, with a
+ * transactional id derived from the partition. The producer is created when the partition is
+ * assigned, fencing any previous owner still running (e.g. after a long GC pause), and closed when
+ * it is revoked. If a producer is fenced, the partition is owned by another instance and the
+ * pipeline stops.
+ * <p>
+ * Many records are grouped per transaction: open transactions are committed when they reach
+ * {@code maxTransactionRecords} or are open for {@code maxTransactionMs}, and before partitions are
+ * revoked. When a transaction is aborted, consumer positions are rewound to the first record not
+ * committed, so those records are transformed again.
+ * <p>
+ * Records failing to transform are logged and skipped, as in {@link KafkaConsumerEngine}.
+ */
+public class KafkaTransactionalPipeline<K, V, KO, VO> implements Managed {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(KafkaTransactionalPipeline.class);
+
+  private final String name;
+  private final String groupId;
+  private final KafkaConsumer<K, V> consumer;
+  private final Function<TopicPartition, KafkaProducer<KO, VO>> producers;
+  private final List<String> topics;
+  private final KafkaRecordTransformer<K, V, KO, VO> transformer;
+  private final int maxTransactionRecords;
+  private final long maxTransactionMs;
+  private final long pollTimeoutMs;
+  private final long shutdownTimeoutMs;
+
+  private final Map<TopicPartition, PartitionTransaction> transactions = new HashMap<>();
+  private final Timer commitLatency;
+  private final Histogram batchSize;
+  private final Meter commits;
+  private final Meter aborts;
+  private final Meter failures;
+
+  private volatile boolean running = false;
+  private boolean inTransaction = false;
+  private int transactionRecords = 0;
+  private long transactionStartMs = 0L;
+  private Thread pollThread;
+
+  KafkaTransactionalPipeline(String name,
+                             String groupId,
+                             KafkaConsumer<K, V> consumer,
+                             Function<TopicPartition, KafkaProducer<KO, VO>> producers,
+                             List<String> topics,
+                             KafkaRecordTransformer<K, V, KO, VO> transformer,
+                             int maxTransactionRecords,
+                             long maxTransactionMs,
+                             long pollTimeoutMs,
+                             long shutdownTimeoutMs,
+                             MetricRegistry metrics) {
+    this.name = name;
+    this.groupId = groupId;
+    this.consumer = consumer;
+    this.producers = producers;
+    this.topics = topics;
+    this.transformer = transformer;
+    this.maxTransactionRecords = maxTransactionRecords;
+    this.maxTransactionMs = maxTransactionMs;
+    this.pollTimeoutMs = pollTimeoutMs;
+    this.shutdownTimeoutMs = shutdownTimeoutMs;
+
+    this.commitLatency = metrics.timer(name(KafkaTransactionalPipeline.class, name, "commit-latency"));
+    this.batchSize = metrics.histogram(name(KafkaTransactionalPipeline.class, name, "batch-size"));
+    this.commits = metrics.meter(name(KafkaTransactionalPipeline.class, name, "commits"));
+    this.aborts = metrics.meter(name(KafkaTransactionalPipeline.class, name, "aborts"));
+    this.failures = metrics.meter(name(KafkaTransactionalPipeline.class, name, "failures"));
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    pollThread = new Thread(this::pollLoop, "kafka-transactional-pipeline-" + name);
+    pollThread.start();
+  }
+
+  @Override
+  public void stop() throws Exception {
+    running = false;
+    consumer.wakeup();
+    if (pollThread != null) {
+      // wakeup does not interrupt blocked sends and commits, so waiting is bounded
+      pollThread.join(shutdownTimeoutMs + pollTimeoutMs);
+      if (pollThread.isAlive()) {
+        LOGGER.warn("Kafka transactional pipeline {} did not stop in time", name);
+      }
+    }
+  }
+
+  /**
+   * @return true while the pipeline is consuming. False once stopped, or after a fatal error
+   * (e.g. a producer has been fenced).
+   */
+  public boolean isRunning() {
+    return running && pollThread != null && pollThread.isAlive();
+  }
+
+  private void pollLoop() {
+    try {
+      consumer.subscribe(topics, new RebalanceListener());
+      while (running) {
+        final ConsumerRecords<K, V> records = consumer.poll(pollTimeoutMs);
+        for (TopicPartition topicPartition : records.partitions()) {
+          transaction(topicPartition).polled(records.records(topicPartition).get(0).offset());
+        }
+        for (ConsumerRecord<K, V> record : records) {
+          process(record);
+          if (transactionRecords >= maxTransactionRecords && !commitTransactions()) {
+            // positions have been rewound, remaining records will be polled again
+            break;
+          }
+        }
+        if (inTransaction && System.currentTimeMillis() - transactionStartMs >= maxTransactionMs) {
+          commitTransactions();
+        }
+      }
+    } catch (WakeupException e) {
+      if (running) {
+        LOGGER.error("Kafka transactional pipeline {} woken up unexpectedly", name, e);
+      }
+    } catch (ProducerFencedException | OutOfOrderSequenceException | AuthorizationException e) {
+      LOGGER.error("Kafka transactional pipeline {} cannot continue, producer failed", name, e);
+      inTransaction = false;
+    } catch (Exception e) {
+      LOGGER.error("Kafka transactional pipeline {} failed", name, e);
+    } finally {
+      shutdown();
+    }
+  }
+
+  private void process(ConsumerRecord<K, V> record) {
+    final PartitionTransaction transaction =
+        transaction(new TopicPartition(record.topic(), record.partition()));
+    if (!inTransaction) {
+      inTransaction = true;
+      transactionStartMs = System.currentTimeMillis();
+    }
+    transaction.begin();
+    transaction.offset = new OffsetAndMetadata(record.offset() + 1);
+    transactionRecords++;
+
+    try {
+      final Collection<ProducerRecord<KO, VO>> outputs = transformer.transform(record);
+      if (outputs != null) {
+        for (ProducerRecord<KO, VO> output : outputs) {
+          transaction.producer.send(output);
+        }
+      }
+    } catch (ProducerFencedException | OutOfOrderSequenceException | AuthorizationException e) {
+      throw e;
+    } catch (Exception e) {
+      failures.mark();
+      LOGGER.error("Error transforming record {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+    }
+  }
+
+  private PartitionTransaction transaction(TopicPartition topicPartition) {
+    final PartitionTransaction transaction = transactions.get(topicPartition);
+    if (transaction == null) {
+      throw new IllegalStateException("No transactional producer for partition " + topicPartition);
+    }
+    return transaction;
+  }
+
+  /**
+   * Sends consumed offsets to open transactions and commits them. If a commit fails with a
+   * recoverable error, its transaction is aborted and positions are rewound, so records not
+   * committed will be consumed again.
+   *
+   * @return false if a transaction has been aborted
+   */
+  private boolean commitTransactions() {
+    if (!inTransaction) {
+      return true;
+    }
+    boolean aborted = false;
+    final Timer.Context context = commitLatency.time();
+    try {
+      for (Map.Entry<TopicPartition, PartitionTransaction> entry : transactions.entrySet()) {
+        if (!entry.getValue().commit()) {
+          LOGGER.warn("Transaction on partition {} of pipeline {} aborted", entry.getKey(), name);
+          aborted = true;
+        }
+      }
+    } finally {
+      context.stop();
+    }
+    batchSize.update(transactionRecords);
+    inTransaction = false;
+    transactionRecords = 0;
+    if (aborted) {
+      transactions.forEach((topicPartition, transaction) -> {
+        if (transaction.uncommitted >= 0) {
+          consumer.seek(topicPartition, transaction.uncommitted);
+        }
+      });
+    }
+    return !aborted;
+  }
+
+  private void close(PartitionTransaction transaction) {
+    try {
+      transaction.producer.close(shutdownTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (Exception e) {
+      LOGGER.warn("Error closing transactional producer on pipeline {}", name, e);
+    }
+  }
+
+  private void shutdown() {
+    try {
+      commitTransactions();
+    } catch (Exception e) {
+      LOGGER.warn("Error committing last transactions on pipeline {}", name, e);
+    } finally {
+      running = false;
+      transactions.values().forEach(this::close);
+      transactions.clear();
+      consumer.close();
+      LOGGER.info("Kafka transactional pipeline {} stopped", name);
+    }
+  }
+
+  private class RebalanceListener implements ConsumerRebalanceListener {
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+      commitTransactions();
+      for (TopicPartition topicPartition : partitions) {
+        final PartitionTransaction transaction = transactions.remove(topicPartition);
+        if (transaction != null) {
+          close(transaction);
+        }
+      }
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+      for (TopicPartition topicPartition : partitions) {
+        final KafkaProducer<KO, VO> producer = producers.apply(topicPartition);
+        // fences producers of previous owners, aborting their open transactions
+        producer.initTransactions();
+        transactions.put(topicPartition, new PartitionTransaction(topicPartition, producer));
+      }
+    }
+  }
+
+  /**
+   * Transaction state of an assigned input partition.
+   */
+  private class PartitionTransaction {
+    final TopicPartition topicPartition;
+    final KafkaProducer<KO, VO> producer;
+    long uncommitted = -1L;
+    OffsetAndMetadata offset;
+    boolean open = false;
+
+    PartitionTransaction(TopicPartition topicPartition, KafkaProducer<KO, VO> producer) {
+      this.topicPartition = topicPartition;
+      this.producer = producer;
+    }
+
+    /**
+     * Records the first offset polled since the last commit.
+     */
+    void polled(long offset) {
+      if (uncommitted < 0) {
+        uncommitted = offset;
+      }
+    }
+
+    void begin() {
+      if (!open) {
+        producer.beginTransaction();
+        open = true;
+      }
+    }
+
+    /**
+     * @return false if the transaction has been aborted
+     */
+    boolean commit() {
+      if (!open) {
+        return true;
+      }
+      open = false;
+      try {
+        producer.sendOffsetsToTransaction(Collections.singletonMap(topicPartition, offset), groupId);
+        producer.commitTransaction();
+        commits.mark();
+        uncommitted = offset.offset();
+        return true;
+      } catch (ProducerFencedException | OutOfOrderSequenceException | AuthorizationException e) {
+        throw e;
+      } catch (KafkaException e) {
+        LOGGER.warn("Error committing transaction on pipeline {}, aborting", name, e);
+        producer.abortTransaction();
+        aborts.mark();
+        return false;
+      }
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.setup.Environment;
+import org.apache.kafka.clients.CommonClientConfigs;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.hibernate.validator.constraints.NotEmpty;
+
+import javax.validation.constraints.Min;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+
+/**
+ * Dropwizard Factory to create managed {@link KafkaTransactionalPipeline} instances.
+ */
+public class KafkaTransactionalPipelineFactory {
+
+  @NotEmpty
+  @JsonProperty
+  private String name;
+
+  @NotEmpty
+  @JsonProperty
+  private String groupId;
+
+  @NotEmpty
+  @JsonProperty
+  private String transactionalId;
+
+  @NotEmpty
+  @JsonProperty
+  private List<String> topics = new ArrayList<>();
+
+  @Min(1)
+  @JsonProperty
+  private int maxTransactionRecords = 1000;
+
+  @Min(1)
+  @JsonProperty
+  private long maxTransactionMs = 100L;
+
+  @Min(0)
+  @JsonProperty
+  private long pollTimeoutMs = 100L;
+
+  @Min(0)
+  @JsonProperty
+  private long shutdownTimeoutMs = 30000L;
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getGroupId() {
+    return groupId;
+  }
+
+  public void setGroupId(String groupId) {
+    this.groupId = groupId;
+  }
+
+  public String getTransactionalId() {
+    return transactionalId;
+  }
+
+  public void setTransactionalId(String transactionalId) {
+    this.transactionalId = transactionalId;
+  }
+
+  public List<String> getTopics() {
+    return topics;
+  }
+
+  public void setTopics(List<String> topics) {
+    this.topics = topics;
+  }
+
+  public int getMaxTransactionRecords() {
+    return maxTransactionRecords;
+  }
+
+  public void setMaxTransactionRecords(int maxTransactionRecords) {
+    this.maxTransactionRecords = maxTransactionRecords;
+  }
+
+  public long getMaxTransactionMs() {
+    return maxTransactionMs;
+  }
+
+  public void setMaxTransactionMs(long maxTransactionMs) {
+    this.maxTransactionMs = maxTransactionMs;
+  }
+
+  public long getPollTimeoutMs() {
+    return pollTimeoutMs;
+  }
+
+  public void setPollTimeoutMs(long pollTimeoutMs) {
+    this.pollTimeoutMs = pollTimeoutMs;
+  }
+
+  public long getShutdownTimeoutMs() {
+    return shutdownTimeoutMs;
+  }
+
+  public void setShutdownTimeoutMs(long shutdownTimeoutMs) {
+    this.shutdownTimeoutMs = shutdownTimeoutMs;
+  }
+
+  /**
+   * Creates a managed {@link KafkaTransactionalPipeline} using clients created by
+   * {@link KafkaClientFactory}. The consumer reads committed records only, with auto-commit
+   * disabled. An idempotent and transactional producer is created per assigned input partition,
+   * with {@code transactional.id} set to {@code <transactionalId>-<topic>-<partition>}.
+   * <p>
+   * {@code transactionalId} must be the same on every instance of the pipeline, and stable across
+   * restarts, so the new owner of a partition fences its previous owner.
+   *
+   * @param environment        Dropwizard environment
+   * @param clientFactory      Kafka Client Factory
+   * @param keyDeserializer    Kafka Key Deserializer
+   * @param valueDeserializer  Kafka Value Deserializer
+   * @param keySerializer      Kafka output Key Serializer
+   * @param valueSerializer    Kafka output Value Serializer
+   * @param consumerProperties Consumer configuration properties
+   * @param producerProperties Producer configuration properties
+   * @param transformer        Record transformer
+   * @return Dropwizard managed Kafka Transactional Pipeline
+   */
+  public <K, V, KO, VO> KafkaTransactionalPipeline<K, V, KO, VO> build(Environment environment,
+                                                                       KafkaClientFactory<K, V> clientFactory,
+                                                                       Deserializer<K> keyDeserializer,
+                                                                       Deserializer<V> valueDeserializer,
+                                                                       Serializer<KO> keySerializer,
+                                                                       Serializer<VO> valueSerializer,
+                                                                       Properties consumerProperties,
+                                                                       Properties producerProperties,
+                                                                       KafkaRecordTransformer<K, V, KO, VO> transformer) {
+    final Properties consumerConfigs = new Properties();
+    consumerConfigs.putAll(consumerProperties);
+    consumerConfigs.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+    consumerConfigs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+    consumerConfigs.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+
+    final Function<TopicPartition, KafkaProducer<KO, VO>> producers = topicPartition -> {
+      final String suffix = "-" + topicPartition.topic() + "-" + topicPartition.partition();
+      final Properties producerConfigs = new Properties();
+      producerConfigs.putAll(producerProperties);
+      producerConfigs.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, transactionalId + suffix);
+      producerConfigs.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "true");
+      final String clientId = producerProperties.getProperty(CommonClientConfigs.CLIENT_ID_CONFIG);
+      if (clientId != null) {
+        producerConfigs.put(CommonClientConfigs.CLIENT_ID_CONFIG, clientId + suffix);
+      }
+      return clientFactory.createProducer(environment, keySerializer, valueSerializer, producerConfigs);
+    };
+
+    final KafkaTransactionalPipeline<K, V, KO, VO> pipeline =
+        new KafkaTransactionalPipeline<>(
+            name,
+            groupId,
+            clientFactory.createConsumer(environment, keyDeserializer, valueDeserializer, consumerConfigs),
+            producers,
+            topics,
+            transformer,
+            maxTransactionRecords,
+            maxTransactionMs,
+            pollTimeoutMs,
+            shutdownTimeoutMs,
+            environment.metrics());
+
+    environment.lifecycle().manage(pipeline);
+
+    return pipeline;
+  }
+}
@@ -0,0 +1,126 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KafkaFlowControlTest {
+
+  private static final TopicPartition PARTITION = new TopicPartition("flow-control", 0);
+
+  private MockConsumer<String, String> consumer;
+  private KafkaFlowControl flowControl;
+
+  @Before
+  public void setUp() {
+    consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    consumer.assign(Collections.singleton(PARTITION));
+    flowControl = new KafkaFlowControl(10L, 5L, 1000L, 500L, new MetricRegistry(), "test");
+  }
+
+  @Test
+  public void shouldPauseAtHighWatermarkAndResumeAtLowWatermark() {
+    final List<ConsumerRecord<String, String>> records = records(0, 10, 10);
+    flowControl.buffered(batch(records.subList(0, 9)));
+    flowControl.apply(consumer);
+    assertTrue(consumer.paused().isEmpty());
+
+    flowControl.buffered(batch(records.subList(9, 10)));
+    flowControl.apply(consumer);
+    assertEquals(Collections.singleton(PARTITION), consumer.paused());
+    assertEquals(Collections.singleton(PARTITION), flowControl.paused());
+
+    records.subList(0, 4).forEach(flowControl::released);
+    flowControl.apply(consumer);
+    assertFalse(consumer.paused().isEmpty());
+
+    flowControl.released(records.get(4));
+    flowControl.apply(consumer);
+    assertTrue(consumer.paused().isEmpty());
+    assertTrue(flowControl.paused().isEmpty());
+    assertEquals(5L, flowControl.bufferedRecords());
+  }
+
+  @Test
+  public void shouldPauseAtBytesHighWatermark() {
+    flowControl.buffered(batch(records(0, 2, 500)));
+    flowControl.apply(consumer);
+
+    assertEquals(Collections.singleton(PARTITION), consumer.paused());
+    assertEquals(1000L, flowControl.bufferedBytes());
+  }
+
+  @Test
+  public void shouldNotResumePartitionsPausedByOthers() {
+    consumer.pause(Collections.singleton(PARTITION));
+
+    flowControl.buffered(batch(records(0, 1, 1)));
+    flowControl.apply(consumer);
+
+    assertEquals(Collections.singleton(PARTITION), consumer.paused());
+    assertTrue(flowControl.paused().isEmpty());
+  }
+
+  @Test
+  public void shouldAccountLateReleasesAfterRevoke() {
+    final List<ConsumerRecord<String, String>> beforeRevoke = records(0, 10, 10);
+    flowControl.buffered(batch(beforeRevoke));
+    flowControl.apply(consumer);
+    assertFalse(flowControl.paused().isEmpty());
+
+    flowControl.revoked(Collections.singleton(PARTITION));
+    consumer.assign(Collections.emptySet());
+    flowControl.apply(consumer);
+    assertTrue(flowControl.paused().isEmpty());
+    assertEquals(10L, flowControl.bufferedRecords());
+
+    consumer.assign(Collections.singleton(PARTITION));
+    flowControl.buffered(batch(records(10, 2, 10)));
+    beforeRevoke.forEach(flowControl::released);
+    assertEquals(2L, flowControl.bufferedRecords());
+    assertEquals(20L, flowControl.bufferedBytes());
+  }
+
+  @Test
+  public void shouldDropDrainedBuffersOfUnassignedPartitions() {
+    final List<ConsumerRecord<String, String>> records = records(0, 3, 10);
+    flowControl.buffered(batch(records));
+    consumer.assign(Collections.emptySet());
+    flowControl.revoked(Collections.singleton(PARTITION));
+
+    records.forEach(flowControl::released);
+    flowControl.apply(consumer);
+    consumer.assign(Collections.singleton(PARTITION));
+    flowControl.released(records.get(0));
+
+    assertEquals(0L, flowControl.bufferedRecords());
+    assertEquals(0L, flowControl.bufferedBytes());
+  }
+
+  private static List<ConsumerRecord<String, String>> records(long offset, int count, int valueSize) {
+    final List<ConsumerRecord<String, String>> records = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      records.add(new ConsumerRecord<>(PARTITION.topic(), PARTITION.partition(), offset + i, 0L,
+          TimestampType.CREATE_TIME, 0L, -1, valueSize, null, "value"));
+    }
+    return records;
+  }
+
+  private static ConsumerRecords<String, String> batch(List<ConsumerRecord<String, String>> records) {
+    return new ConsumerRecords<>(Collections.singletonMap(PARTITION, records));
+  }
+}
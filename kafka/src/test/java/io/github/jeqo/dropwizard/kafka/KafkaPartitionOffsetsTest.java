@@ -0,0 +1,72 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class KafkaPartitionOffsetsTest {
+
+  @Test
+  public void shouldHaveNothingToCommitBeforeDispatching() {
+    final KafkaPartitionOffsets offsets = new KafkaPartitionOffsets();
+
+    assertEquals(-1L, offsets.committable());
+  }
+
+  @Test
+  public void shouldCommitUpToFirstPendingOffset() {
+    final KafkaPartitionOffsets offsets = new KafkaPartitionOffsets();
+    offsets.dispatched(10L);
+    offsets.dispatched(11L);
+    offsets.dispatched(12L);
+
+    assertEquals(10L, offsets.committable());
+
+    offsets.completed(12L);
+    assertEquals(10L, offsets.committable());
+
+    offsets.completed(10L);
+    assertEquals(11L, offsets.committable());
+
+    offsets.completed(11L);
+    assertEquals(13L, offsets.committable());
+    assertEquals(0, offsets.pending());
+  }
+
+  @Test
+  public void shouldNotCommitSameOffsetTwice() {
+    final KafkaPartitionOffsets offsets = new KafkaPartitionOffsets();
+    offsets.dispatched(0L);
+    offsets.completed(0L);
+
+    offsets.committed(offsets.committable());
+
+    assertEquals(-1L, offsets.committable());
+
+    offsets.dispatched(1L);
+    assertEquals(-1L, offsets.committable());
+
+    offsets.completed(1L);
+    assertEquals(2L, offsets.committable());
+  }
+
+  @Test
+  public void shouldNotCommitPastFailedOffset() {
+    final KafkaPartitionOffsets offsets = new KafkaPartitionOffsets();
+    offsets.dispatched(0L);
+    offsets.dispatched(1L);
+    offsets.dispatched(2L);
+
+    offsets.completed(0L);
+    offsets.failed(1L);
+    offsets.completed(2L);
+
+    assertEquals(0, offsets.pending());
+    assertEquals(1L, offsets.committable());
+
+    offsets.committed(1L);
+    offsets.dispatched(3L);
+    offsets.completed(3L);
+    assertEquals(-1L, offsets.committable());
+  }
+}
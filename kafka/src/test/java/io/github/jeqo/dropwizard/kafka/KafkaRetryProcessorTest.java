@@ -0,0 +1,153 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class KafkaRetryProcessorTest {
+
+  private static final String TOPIC = "orders";
+
+  private MockProducer<String, String> producer;
+  private MetricRegistry metrics;
+  private KafkaRetryProcessor<String, String> retryProcessor;
+
+  @Before
+  public void setUp() {
+    producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+    metrics = new MetricRegistry();
+    retryProcessor =
+        new KafkaRetryProcessor<>(
+            "test",
+            record -> {
+              throw new IllegalStateException("failed " + record.value());
+            },
+            producer,
+            Arrays.asList(1000L, 60000L),
+            metrics);
+  }
+
+  @Test
+  public void shouldRouteFirstFailureToFirstTier() throws Exception {
+    final Headers headers = new RecordHeaders();
+    headers.add("trace-id", bytes("abc"));
+
+    retryProcessor.process(record(TOPIC, 3, 42L, headers));
+
+    assertEquals(1, producer.history().size());
+    final ProducerRecord<String, String> sent = producer.history().get(0);
+    assertEquals(KafkaRetryProcessor.retryTopic(TOPIC, 1000L), sent.topic());
+    assertNull(sent.partition());
+    assertEquals("key", sent.key());
+    assertEquals("value", sent.value());
+    assertEquals("abc", header(sent.headers(), "trace-id"));
+    assertEquals("1", header(sent.headers(), KafkaRetryProcessor.ATTEMPT_HEADER));
+    assertEquals(TOPIC, header(sent.headers(), KafkaRetryProcessor.TOPIC_HEADER));
+    assertEquals("3", header(sent.headers(), KafkaRetryProcessor.PARTITION_HEADER));
+    assertEquals("42", header(sent.headers(), KafkaRetryProcessor.OFFSET_HEADER));
+    assertEquals(IllegalStateException.class.getName(),
+        header(sent.headers(), KafkaRetryProcessor.EXCEPTION_HEADER));
+    assertEquals("failed value", header(sent.headers(), KafkaRetryProcessor.EXCEPTION_MESSAGE_HEADER));
+    assertEquals(1L, metrics.meter(name(KafkaRetryProcessor.class, "test", "retried", "1000ms")).getCount());
+  }
+
+  @Test
+  public void shouldRouteRetriedRecordsToNextTierKeepingOrigin() throws Exception {
+    retryProcessor.process(record(TOPIC, 3, 42L, new RecordHeaders()));
+    final ProducerRecord<String, String> firstRetry = producer.history().get(0);
+
+    retryProcessor.process(record(firstRetry.topic(), 0, 7L, firstRetry.headers()));
+
+    final ProducerRecord<String, String> sent = producer.history().get(1);
+    assertEquals(KafkaRetryProcessor.retryTopic(TOPIC, 60000L), sent.topic());
+    assertEquals("2", header(sent.headers(), KafkaRetryProcessor.ATTEMPT_HEADER));
+    assertEquals(TOPIC, header(sent.headers(), KafkaRetryProcessor.TOPIC_HEADER));
+    assertEquals("3", header(sent.headers(), KafkaRetryProcessor.PARTITION_HEADER));
+    assertEquals("42", header(sent.headers(), KafkaRetryProcessor.OFFSET_HEADER));
+    assertEquals(1, count(sent.headers(), KafkaRetryProcessor.ATTEMPT_HEADER));
+  }
+
+  @Test
+  public void shouldRouteToDeadLetterTopicAfterLastTier() throws Exception {
+    final Headers headers = new RecordHeaders();
+    headers.add(KafkaRetryProcessor.ATTEMPT_HEADER, bytes("2"));
+    headers.add(KafkaRetryProcessor.TOPIC_HEADER, bytes(TOPIC));
+
+    retryProcessor.process(record(KafkaRetryProcessor.retryTopic(TOPIC, 60000L), 0, 1L, headers));
+
+    final ProducerRecord<String, String> sent = producer.history().get(0);
+    assertEquals(KafkaRetryProcessor.deadLetterTopic(TOPIC), sent.topic());
+    assertEquals("3", header(sent.headers(), KafkaRetryProcessor.ATTEMPT_HEADER));
+    assertEquals(1L, metrics.meter(name(KafkaRetryProcessor.class, "test", "dead-lettered")).getCount());
+  }
+
+  @Test
+  public void shouldNotRouteProcessedRecords() throws Exception {
+    final KafkaRetryProcessor<String, String> processor =
+        new KafkaRetryProcessor<>("ok", record -> {
+        }, producer, Arrays.asList(1000L), metrics);
+
+    processor.process(record(TOPIC, 0, 0L, new RecordHeaders()));
+
+    assertEquals(0, producer.history().size());
+  }
+
+  @Test
+  public void shouldFailWhenRecordCannotBeRouted() {
+    final MockProducer<String, String> failingProducer =
+        new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+    final KafkaRetryProcessor<String, String> processor =
+        new KafkaRetryProcessor<>("failing", record -> {
+        }, failingProducer, Arrays.asList(1000L), metrics);
+    final RuntimeException error = new RuntimeException("broker unavailable");
+    new Thread(() -> {
+      while (!failingProducer.errorNext(error)) {
+        Thread.yield();
+      }
+    }).start();
+
+    try {
+      processor.handle(record(TOPIC, 0, 0L, new RecordHeaders()), new IllegalStateException("failed"));
+      fail("Expected routing to fail");
+    } catch (Exception e) {
+      assertEquals(error, e);
+    }
+  }
+
+  private static ConsumerRecord<String, String> record(String topic, int partition, long offset, Headers headers) {
+    return new ConsumerRecord<>(topic, partition, offset, 0L, TimestampType.CREATE_TIME, 0L, 3, 5,
+        "key", "value", headers);
+  }
+
+  private static String header(Headers headers, String key) {
+    return new String(headers.lastHeader(key).value(), StandardCharsets.UTF_8);
+  }
+
+  private static int count(Headers headers, String key) {
+    int count = 0;
+    for (Header ignored : headers.headers(key)) {
+      count++;
+    }
+    return count;
+  }
+
+  private static byte[] bytes(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,276 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import info.batey.kafka.unit.KafkaUnit;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.kafka.common.utils.Bytes;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.kstream.Materialized;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Routes store queries between two Kafka Streams instances running against an embedded broker.
+ */
+public class KafkaStreamsStoreRouterTest {
+
+  private static final String TOPIC = "store-router-input";
+  private static final String STORE = "store-router-store";
+  private static final int KEYS = 20;
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final Serde<String> SERDE = Serdes.String();
+
+  private static KafkaUnit kafka;
+  private static ExecutorService executor;
+  private static CloseableHttpClient httpClient;
+  private static Instance first;
+  private static Instance second;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    kafka = new KafkaUnit(freePort(), freePort());
+    kafka.setKafkaBrokerConfig("offsets.topic.replication.factor", "1");
+    kafka.setKafkaBrokerConfig("group.initial.rebalance.delay.ms", "0");
+    kafka.startup();
+    kafka.createTopic(TOPIC, 4);
+
+    final Properties producerConfigs = new Properties();
+    producerConfigs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getKafkaConnect());
+    try (KafkaProducer<String, String> producer =
+             new KafkaProducer<>(producerConfigs, new StringSerializer(), new StringSerializer())) {
+      for (int i = 0; i < KEYS; i++) {
+        producer.send(new ProducerRecord<>(TOPIC, key(i), "value-" + i));
+      }
+    }
+
+    executor = Executors.newFixedThreadPool(2);
+    httpClient = HttpClients.createDefault();
+    first = new Instance();
+    second = new Instance();
+
+    final long deadline = System.currentTimeMillis() + 60000L;
+    while (!first.loaded() || !second.loaded()) {
+      if (System.currentTimeMillis() > deadline) {
+        fail("Stores not loaded on both instances");
+      }
+      Thread.sleep(200L);
+    }
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    if (first != null) {
+      first.close();
+    }
+    if (second != null) {
+      second.close();
+    }
+    if (httpClient != null) {
+      httpClient.close();
+    }
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    if (kafka != null) {
+      kafka.shutdown();
+    }
+  }
+
+  @Before
+  public void resetRequests() {
+    first.requests.set(0);
+    second.requests.set(0);
+    second.truncate.set(false);
+  }
+
+  @Test
+  public void shouldReadLocalKeysWithoutRemoteRequests() {
+    final List<String> localKeys = first.ownedKeys();
+    assertFalse(localKeys.isEmpty());
+
+    final Map<String, String> values = first.router.getAll(localKeys);
+
+    assertEquals(localKeys.size(), values.size());
+    localKeys.forEach(key -> assertEquals(value(key), values.get(key)));
+    assertEquals(0, second.requests.get());
+  }
+
+  @Test
+  public void shouldForwardRemoteKeysToOwner() {
+    final String remoteKey = second.ownedKeys().get(0);
+
+    assertEquals(value(remoteKey), first.router.get(remoteKey));
+    assertEquals(1, second.requests.get());
+    assertEquals(0, first.requests.get());
+  }
+
+  @Test
+  public void shouldBatchRemoteKeysInOneRequestPerInstance() {
+    final List<String> keys = new ArrayList<>();
+    for (int i = 0; i < KEYS; i++) {
+      keys.add(key(i));
+    }
+    assertTrue(second.ownedKeys().size() > 1);
+
+    final Map<String, String> values = first.router.getAll(keys);
+
+    assertEquals(KEYS, values.size());
+    keys.forEach(key -> assertEquals(value(key), values.get(key)));
+    assertEquals(1, second.requests.get());
+  }
+
+  @Test
+  public void shouldFailBatchWhenRemoteValuesDoNotMatchKeys() {
+    second.truncate.set(true);
+    try {
+      first.router.getAll(second.ownedKeys());
+      fail("Expected batch to fail");
+    } catch (UncheckedIOException e) {
+      assertEquals(1, second.requests.get());
+    }
+  }
+
+  private static String key(int i) {
+    return "key-" + i;
+  }
+
+  private static String value(String key) {
+    return "value-" + key.substring("key-".length());
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  /**
+   * Kafka Streams instance with its router, serving other instances over HTTP.
+   */
+  private static class Instance {
+    final HostInfo hostInfo;
+    final KafkaStreams streams;
+    final KafkaStreamsStoreRouter<String, String> router;
+    final HttpServer server;
+    final AtomicInteger requests = new AtomicInteger();
+    final AtomicBoolean truncate = new AtomicBoolean();
+
+    Instance() throws IOException {
+      hostInfo = new HostInfo("localhost", freePort());
+
+      final StreamsBuilder builder = new StreamsBuilder();
+      builder.table(TOPIC, Materialized.<String, String, KeyValueStore<Bytes, byte[]>>as(STORE));
+
+      final Properties configs = new Properties();
+      configs.put(StreamsConfig.APPLICATION_ID_CONFIG, "store-router-test");
+      configs.put(StreamsConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getKafkaConnect());
+      configs.put(StreamsConfig.APPLICATION_SERVER_CONFIG, hostInfo.host() + ":" + hostInfo.port());
+      configs.put(StreamsConfig.STATE_DIR_CONFIG,
+          Files.createTempDirectory("kafka-streams").toFile().getAbsolutePath());
+      configs.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.String().getClass());
+      configs.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.String().getClass());
+      configs.put(StreamsConfig.consumerPrefix("auto.offset.reset"), "earliest");
+      streams = new KafkaStreams(builder.build(), configs);
+
+      router =
+          new KafkaStreamsStoreRouter<>(
+              STORE,
+              streams,
+              "http",
+              hostInfo,
+              SERDE,
+              SERDE,
+              httpClient,
+              OBJECT_MAPPER,
+              "",
+              executor);
+
+      server = HttpServer.create(new InetSocketAddress(hostInfo.host(), hostInfo.port()), 0);
+      server.createContext("/kafka-streams/stores/" + STORE + "/keys", exchange -> {
+        requests.incrementAndGet();
+        final List<byte[]> keys =
+            OBJECT_MAPPER.readValue(exchange.getRequestBody(), new TypeReference<List<byte[]>>() {
+            });
+        List<byte[]> values = router.getLocalSerialized(keys);
+        if (truncate.get()) {
+          values = values.subList(0, values.size() - 1);
+        }
+        final byte[] body = OBJECT_MAPPER.writeValueAsBytes(values);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+          output.write(body);
+        }
+      });
+      server.start();
+      streams.start();
+    }
+
+    /**
+     * @return true once the instance is running, owns partitions and serves all its keys
+     */
+    boolean loaded() {
+      if (streams.state() != KafkaStreams.State.RUNNING || streams.allMetadataForStore(STORE).size() != 2) {
+        return false;
+      }
+      try {
+        final List<String> keys = ownedKeys();
+        return !keys.isEmpty() && router.getAll(keys).size() == keys.size();
+      } catch (InvalidStateStoreException e) {
+        return false;
+      }
+    }
+
+    List<String> ownedKeys() {
+      final List<String> keys = new ArrayList<>();
+      for (int i = 0; i < KEYS; i++) {
+        if (hostInfo.equals(streams.metadataForKey(STORE, key(i), SERDE.serializer()).hostInfo())) {
+          keys.add(key(i));
+        }
+      }
+      return keys;
+    }
+
+    void close() {
+      streams.close();
+      server.stop(0);
+    }
+  }
+}
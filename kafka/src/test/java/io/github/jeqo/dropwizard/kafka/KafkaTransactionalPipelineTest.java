@@ -0,0 +1,158 @@
+package io.github.jeqo.dropwizard.kafka;
+
+import com.codahale.metrics.MetricRegistry;
+import info.batey.kafka.unit.KafkaUnit;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs transactional pipelines against an embedded broker, rebalancing partitions between them.
+ */
+public class KafkaTransactionalPipelineTest {
+
+  private static final String INPUT = "pipeline-input";
+  private static final String OUTPUT = "pipeline-output";
+  private static final int RECORDS = 400;
+
+  private static KafkaUnit kafka;
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    kafka = new KafkaUnit(freePort(), freePort());
+    kafka.setKafkaBrokerConfig("offsets.topic.replication.factor", "1");
+    kafka.setKafkaBrokerConfig("transaction.state.log.replication.factor", "1");
+    kafka.setKafkaBrokerConfig("transaction.state.log.min.isr", "1");
+    kafka.setKafkaBrokerConfig("group.initial.rebalance.delay.ms", "0");
+    kafka.startup();
+    kafka.createTopic(INPUT, 4);
+    kafka.createTopic(OUTPUT, 1);
+  }
+
+  @AfterClass
+  public static void tearDown() {
+    if (kafka != null) {
+      kafka.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldWriteEachRecordOnceAcrossRebalances() throws Exception {
+    final Properties producerConfigs = new Properties();
+    producerConfigs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getKafkaConnect());
+    try (KafkaProducer<String, String> producer =
+             new KafkaProducer<>(producerConfigs, new StringSerializer(), new StringSerializer())) {
+      for (int i = 0; i < RECORDS; i++) {
+        producer.send(new ProducerRecord<>(INPUT, "key-" + i, "value-" + i));
+      }
+    }
+
+    final KafkaTransactionalPipeline<String, String, String, String> first = pipeline("first");
+    final KafkaTransactionalPipeline<String, String, String, String> second = pipeline("second");
+    first.start();
+    try {
+      List<String> outputs = awaitOutputs(RECORDS / 4);
+      second.start();
+      outputs = awaitOutputs(RECORDS);
+
+      assertTrue(first.isRunning());
+      assertTrue(second.isRunning());
+      assertEquals(RECORDS, outputs.size());
+      final Set<String> distinct = new HashSet<>(outputs);
+      assertEquals(RECORDS, distinct.size());
+    } finally {
+      first.stop();
+      second.stop();
+    }
+  }
+
+  private static KafkaTransactionalPipeline<String, String, String, String> pipeline(String name) {
+    final Properties consumerConfigs = new Properties();
+    consumerConfigs.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getKafkaConnect());
+    consumerConfigs.put(ConsumerConfig.GROUP_ID_CONFIG, "pipeline-test");
+    consumerConfigs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+    consumerConfigs.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+    consumerConfigs.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+    consumerConfigs.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, "10");
+
+    return new KafkaTransactionalPipeline<>(
+        name,
+        "pipeline-test",
+        new KafkaConsumer<>(consumerConfigs, new StringDeserializer(), new StringDeserializer()),
+        topicPartition -> {
+          final Properties producerConfigs = new Properties();
+          producerConfigs.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getKafkaConnect());
+          producerConfigs.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG,
+              "pipeline-test-" + topicPartition.topic() + "-" + topicPartition.partition());
+          producerConfigs.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, "true");
+          return new KafkaProducer<>(producerConfigs, new StringSerializer(), new StringSerializer());
+        },
+        Collections.singletonList(INPUT),
+        record -> {
+          // slows consumption down, so the second pipeline joins while records are pending
+          Thread.sleep(5L);
+          return Collections.singletonList(new ProducerRecord<>(OUTPUT, record.key(), record.value()));
+        },
+        20,
+        100L,
+        100L,
+        10000L,
+        new MetricRegistry());
+  }
+
+  private static List<String> awaitOutputs(int expected) throws InterruptedException {
+    final Properties configs = new Properties();
+    configs.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafka.getKafkaConnect());
+    configs.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+    configs.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+    configs.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+    final List<String> outputs = new ArrayList<>();
+    try (KafkaConsumer<String, String> consumer =
+             new KafkaConsumer<>(configs, new StringDeserializer(), new StringDeserializer())) {
+      consumer.assign(Collections.singletonList(new TopicPartition(OUTPUT, 0)));
+      final long deadline = System.currentTimeMillis() + 60000L;
+      while (outputs.size() < expected) {
+        if (System.currentTimeMillis() > deadline) {
+          fail("Expected " + expected + " outputs, got " + outputs.size());
+        }
+        for (ConsumerRecord<String, String> record : consumer.poll(200L)) {
+          outputs.add(record.value());
+        }
+      }
+      // outputs written after the expected ones would be duplicates
+      Thread.sleep(1000L);
+      for (ConsumerRecord<String, String> record : consumer.poll(1000L)) {
+        outputs.add(record.value());
+      }
+    }
+    return outputs;
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+}
@@ -17,6 +17,22 @@ public class OpenTracingFactory {
   @JsonProperty("jaeger")
   private JaegerClientFactory jaegerClientFactory;
 
+  public String getProvider() {
+    return provider;
+  }
+
+  public void setProvider(String provider) {
+    this.provider = provider;
+  }
+
+  public JaegerClientFactory getJaegerClientFactory() {
+    return jaegerClientFactory;
+  }
+
+  public void setJaegerClientFactory(JaegerClientFactory jaegerClientFactory) {
+    this.jaegerClientFactory = jaegerClientFactory;
+  }
+
   /**
    * Builds a {@link Tracer} depending on {@link TracingProvider}.
    * Current supported providers: JEAGER, MOCK.